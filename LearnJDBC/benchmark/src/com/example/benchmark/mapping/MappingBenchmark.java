@@ -0,0 +1,175 @@
+package com.example.benchmark.mapping;
+
+import com.example.bean.Customer;
+import com.example.bean.Order;
+import com.example.bean.User;
+import com.example.benchmark.stub.SyntheticTable;
+import com.example.dao.mapper.RowMapper;
+import com.example.dao.mapper.RowMapperCache;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.dbutils.handlers.BeanListHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 19:20
+ * @Description:
+ *      比较把结果集封装成Bean的几种方式，每次操作封装整个结果集
+ *          handWritten       手写getXxx按索引取值再调用构造器，和CustomerForQuery.testQuery一样
+ *          reflective        原来BaseDao.commonQuery的做法：每一行每一列都getDeclaredField + setAccessible + set
+ *          rowMapper         现在BaseDao.commonQuery的做法：RowMapperCache中的BeanRowMapper（MethodHandle）
+ *          beanListHandler   dbutils的BeanListHandler
+ *          resultSetHandler  自定义的dbutils ResultSetHandler，按列名取值调用setter
+ *
+ *      结果集是SyntheticResultSet，不需要数据库，读取时也不会产生新对象，
+ *      用MappingBenchmarkRunner运行时会加上GC profiler，结果中的gc.alloc.rate.norm就是每次操作分配的字节数
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MappingBenchmark {
+
+    @Param({"customer", "order", "user"})
+    public String table;
+
+    @Param({"1", "100", "10000", "1000000"})
+    public int rows;
+
+    private SyntheticTable synthetic;
+    private Class<?> beanClass;
+    private RowMapper<?> handWrittenMapper;
+    private ResultSetHandler<? extends List<?>> customHandler;
+    private BeanListHandler<?> beanListHandler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (table) {
+            case "customer":
+                synthetic = SyntheticTable.customers(rows);
+                beanClass = Customer.class;
+                handWrittenMapper = rs -> new Customer(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getDate(4));
+                customHandler = rs -> {
+                    List<Customer> list = new ArrayList<>();
+                    while (rs.next()) {
+                        Customer customer = new Customer();
+                        customer.setId(rs.getInt("id"));
+                        customer.setName(rs.getString("name"));
+                        customer.setEmail(rs.getString("email"));
+                        customer.setBirth(rs.getDate("birth"));
+                        list.add(customer);
+                    }
+                    return list;
+                };
+                break;
+            case "order":
+                synthetic = SyntheticTable.orders(rows);
+                beanClass = Order.class;
+                handWrittenMapper = rs -> new Order(rs.getInt(1), rs.getString(2), rs.getDate(3));
+                customHandler = rs -> {
+                    List<Order> list = new ArrayList<>();
+                    while (rs.next()) {
+                        Order order = new Order();
+                        order.setOrderId(rs.getInt("orderId"));
+                        order.setOrderName(rs.getString("orderName"));
+                        order.setOrderDate(rs.getDate("orderDate"));
+                        list.add(order);
+                    }
+                    return list;
+                };
+                break;
+            case "user":
+                synthetic = SyntheticTable.users(rows);
+                beanClass = User.class;
+                handWrittenMapper = rs -> new User(rs.getString(1), rs.getString(2), rs.getInt(3));
+                customHandler = rs -> {
+                    List<User> list = new ArrayList<>();
+                    while (rs.next()) {
+                        User user = new User();
+                        user.setUser(rs.getString("user"));
+                        user.setPassword(rs.getString("password"));
+                        user.setBalance(rs.getInt("balance"));
+                        list.add(user);
+                    }
+                    return list;
+                };
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的表：" + table);
+        }
+        beanListHandler = new BeanListHandler<>(beanClass);
+    }
+
+    @Benchmark
+    public List<Object> handWritten() throws SQLException {
+        ResultSet rs = synthetic.newResultSet();
+        List<Object> list = new ArrayList<>();
+        while (rs.next()) {
+            list.add(handWrittenMapper.mapRow(rs));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<Object> reflective() throws Exception {
+        ResultSet rs = synthetic.newResultSet();
+        ResultSetMetaData metaData = rs.getMetaData();
+        List<Object> list = new ArrayList<>();
+        while (rs.next()) {
+            Object t = beanClass.newInstance();
+            for (int i = 0; i < metaData.getColumnCount(); i++) {
+                Object columnValue = rs.getObject(i + 1);
+                String columnLabel = metaData.getColumnLabel(i + 1);
+                Field field = beanClass.getDeclaredField(columnLabel);
+                field.setAccessible(true);
+                field.set(t, columnValue);
+            }
+            list.add(t);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<Object> rowMapper() throws SQLException {
+        ResultSet rs = synthetic.newResultSet();
+        // 和BaseDao.commonQuery一样，每次查询都从缓存中取一次封装器
+        RowMapper<?> mapper = RowMapperCache.getMapper(beanClass, rs.getMetaData());
+        List<Object> list = new ArrayList<>();
+        while (rs.next()) {
+            list.add(mapper.mapRow(rs));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<?> beanListHandler() throws SQLException {
+        return beanListHandler.handle(synthetic.newResultSet());
+    }
+
+    @Benchmark
+    public List<?> resultSetHandler() throws SQLException {
+        return customHandler.handle(synthetic.newResultSet());
+    }
+}
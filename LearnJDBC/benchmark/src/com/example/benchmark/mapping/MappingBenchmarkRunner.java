@@ -0,0 +1,45 @@
+package com.example.benchmark.mapping;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 19:30
+ * @Description:
+ *      运行MappingBenchmark，加上GC profiler统计每次操作分配的内存，结果写到
+ *          benchmark/results/mapping.json
+ *
+ *      可以用系统属性调整：
+ *          bench.tables     表列表，逗号分隔，默认 customer,order,user
+ *          bench.rows       行数列表，默认 1,100,10000,1000000
+ *          bench.results    结果目录，默认 benchmark/results
+ */
+public class MappingBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String[] tables = System.getProperty("bench.tables", "customer,order,user").split(",");
+        String[] rows = System.getProperty("bench.rows", "1,100,10000,1000000").split(",");
+        File resultDir = new File(System.getProperty("bench.results", "benchmark/results"));
+        if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IllegalStateException("无法创建结果目录：" + resultDir.getAbsolutePath());
+        }
+        File result = new File(resultDir, "mapping.json");
+
+        new Runner(new OptionsBuilder()
+                .include(MappingBenchmark.class.getName())
+                .param("table", tables)
+                .param("rows", rows)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build()).run();
+        System.out.println("结果已写入：" + result.getAbsolutePath());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.benchmark.pool;
+
+import com.example.utils.JDBCPoolUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 18:45
+ * @Description:
+ *      比较JDBCPoolUtils中各个连接池借还连接的性能
+ *          borrowReturn  吞吐量，每秒借还多少次
+ *          acquire       借连接的耗时分布（SampleTime），结果中有p0.99
+ *
+ *      线程数由PoolBenchmarkRunner从1到256逐个指定，也可以直接用JMH的 -t 参数
+ *      连接到的是StubDriver，不需要MySQL服务器；SQL统计（jdbc.stats）和泄漏检测（jdbc.leak.thresholdMs）关掉了，测的只是连接池本身
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-Djdbc.stats=false", "-Djdbc.leak.thresholdMs=0"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PoolBenchmark {
+
+    @Param({"c3p0", "dbcp", "druid", "bagpool"})
+    public String pool;
+
+    @Param({"16"})
+    public int poolSize;
+
+    // 借到连接后模拟使用连接的工作量（Blackhole.consumeCPU的token数），0表示借了立即还
+    @Param({"0"})
+    public long holdTokens;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // 替换掉JDBCPoolUtils中读取配置文件连接MySQL的同名提供者
+        JDBCPoolUtils.register(new StubPoolProvider(pool, poolSize, 0));
+        JDBCPoolUtils.prewarm(pool, poolSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        JDBCPoolUtils.shutdown(pool);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void borrowReturn() throws SQLException {
+        Connection conn = JDBCPoolUtils.getConnection(pool);
+        Blackhole.consumeCPU(holdTokens);
+        conn.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Connection acquire(HeldConnection held) throws SQLException {
+        Connection conn = JDBCPoolUtils.getConnection(pool);
+        held.conn = conn;
+        return conn;
+    }
+
+    /**
+     * acquire只统计借连接的耗时，使用和归还连接放在每次调用之后的TearDown里，不计入结果
+     */
+    @State(Scope.Thread)
+    public static class HeldConnection {
+        Connection conn;
+
+        @TearDown(Level.Invocation)
+        public void release(PoolBenchmark benchmark) throws SQLException {
+            if (conn != null) {
+                Blackhole.consumeCPU(benchmark.holdTokens);
+                conn.close();
+                conn = null;
+            }
+        }
+    }
+}
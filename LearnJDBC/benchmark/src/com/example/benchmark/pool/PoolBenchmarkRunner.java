@@ -0,0 +1,51 @@
+package com.example.benchmark.pool;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 18:55
+ * @Description:
+ *      依次用1、2、4 ... 256个线程运行PoolBenchmark，每个线程数的结果单独写一个JSON文件
+ *          benchmark/results/pool-threads-线程数.json
+ *
+ *      可以用系统属性调整：
+ *          bench.threads    线程数列表，逗号分隔，默认 1,2,4,8,16,32,64,128,256
+ *          bench.pools      连接池列表，默认 c3p0,dbcp,druid,bagpool
+ *          bench.poolSize   连接池大小列表，默认 16
+ *          bench.results    结果目录，默认 benchmark/results
+ */
+public class PoolBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String[] threadCounts = System.getProperty("bench.threads", "1,2,4,8,16,32,64,128,256").split(",");
+        String[] pools = System.getProperty("bench.pools", "c3p0,dbcp,druid,bagpool").split(",");
+        String[] poolSizes = System.getProperty("bench.poolSize", "16").split(",");
+        File resultDir = new File(System.getProperty("bench.results", "benchmark/results"));
+        if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IllegalStateException("无法创建结果目录：" + resultDir.getAbsolutePath());
+        }
+
+        for (String threadCount : threadCounts) {
+            int threads = Integer.parseInt(threadCount.trim());
+            File result = new File(resultDir, "pool-threads-" + threads + ".json");
+
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(PoolBenchmark.class.getName())
+                    .threads(threads)
+                    .param("pool", pools)
+                    .param("poolSize", poolSizes)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.getPath());
+            new Runner(options.build()).run();
+            System.out.println("结果已写入：" + result.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.benchmark.pool;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.example.benchmark.stub.StubDriver;
+import com.example.pool.BagPoolDataSource;
+import com.example.pool.BagPoolProvider;
+import com.example.pool.C3P0PoolProvider;
+import com.example.pool.DBCPPoolProvider;
+import com.example.pool.DruidPoolProvider;
+import com.example.pool.PoolGauges;
+import com.example.pool.PoolProvider;
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import org.apache.commons.dbcp.BasicDataSource;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 18:35
+ * @Description:
+ *      基准测试用的连接池提供者，和JDBCPoolUtils中注册的同名，但连接的是StubDriver
+ *      四个连接池的初始连接数、最大连接数都设为poolSize，借连接的超时都是30秒，并且都不做有效性检查，
+ *      这样比较的只是连接池本身借还连接的开销
+ *
+ *      销毁连接池、读取连接池状态直接交给对应的正式提供者
+ */
+public class StubPoolProvider implements PoolProvider {
+
+    private static final int CHECKOUT_TIMEOUT_MILLIS = 30000;
+
+    private final String name;
+    private final int poolSize;
+    private final String url;
+    private final PoolProvider delegate;
+
+    /**
+     * @param name          JDBCPoolUtils中的连接池名字：c3p0、dbcp、druid、bagpool
+     * @param poolSize      连接池大小
+     * @param connectMicros StubDriver建立一个物理连接的耗时
+     */
+    public StubPoolProvider(String name, int poolSize, long connectMicros) {
+        this.name = name;
+        this.poolSize = poolSize;
+        this.url = StubDriver.url(name, connectMicros);
+        switch (name) {
+            case C3P0PoolProvider.NAME:
+                delegate = new C3P0PoolProvider();
+                break;
+            case DBCPPoolProvider.NAME:
+                delegate = new DBCPPoolProvider();
+                break;
+            case DruidPoolProvider.NAME:
+                delegate = new DruidPoolProvider();
+                break;
+            case BagPoolProvider.NAME:
+                delegate = new BagPoolProvider();
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的连接池：" + name);
+        }
+        StubDriver.register();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public DataSource createDataSource() throws Exception {
+        switch (name) {
+            case C3P0PoolProvider.NAME:
+                return createC3P0();
+            case DBCPPoolProvider.NAME:
+                return createDBCP();
+            case DruidPoolProvider.NAME:
+                return createDruid();
+            default:
+                return createBagPool();
+        }
+    }
+
+    private DataSource createC3P0() throws Exception {
+        ComboPooledDataSource dataSource = new ComboPooledDataSource();
+        dataSource.setDriverClass(StubDriver.class.getName());
+        dataSource.setJdbcUrl(url);
+        dataSource.setInitialPoolSize(poolSize);
+        dataSource.setMinPoolSize(poolSize);
+        dataSource.setMaxPoolSize(poolSize);
+        dataSource.setAcquireIncrement(1);
+        dataSource.setCheckoutTimeout(CHECKOUT_TIMEOUT_MILLIS);
+        dataSource.setTestConnectionOnCheckout(false);
+        dataSource.setTestConnectionOnCheckin(false);
+        return dataSource;
+    }
+
+    private DataSource createDBCP() {
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setDriverClassName(StubDriver.class.getName());
+        dataSource.setUrl(url);
+        dataSource.setInitialSize(poolSize);
+        dataSource.setMinIdle(poolSize);
+        dataSource.setMaxIdle(poolSize);
+        dataSource.setMaxActive(poolSize);
+        dataSource.setMaxWait(CHECKOUT_TIMEOUT_MILLIS);
+        dataSource.setTestOnBorrow(false);
+        dataSource.setTestOnReturn(false);
+        return dataSource;
+    }
+
+    private DataSource createDruid() throws Exception {
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setDriverClassName(StubDriver.class.getName());
+        dataSource.setUrl(url);
+        dataSource.setInitialSize(poolSize);
+        dataSource.setMinIdle(poolSize);
+        dataSource.setMaxActive(poolSize);
+        dataSource.setMaxWait(CHECKOUT_TIMEOUT_MILLIS);
+        dataSource.setTestOnBorrow(false);
+        dataSource.setTestOnReturn(false);
+        dataSource.setTestWhileIdle(false);
+        dataSource.init();
+        return dataSource;
+    }
+
+    private DataSource createBagPool() throws Exception {
+        Properties pros = new Properties();
+        pros.setProperty("driverClassName", StubDriver.class.getName());
+        pros.setProperty("url", url);
+        pros.setProperty("maxPoolSize", String.valueOf(poolSize));
+        pros.setProperty("connectionTimeout", String.valueOf(CHECKOUT_TIMEOUT_MILLIS));
+        return new BagPoolDataSource(pros);
+    }
+
+    @Override
+    public void destroy(DataSource dataSource) throws Exception {
+        delegate.destroy(dataSource);
+    }
+
+    @Override
+    public PoolGauges getGauges(DataSource dataSource) throws Exception {
+        return delegate.getGauges(dataSource);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.benchmark.stub;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 18:20
+ * @Description:
+ *      StubDriver建立的连接以及由它创建的Statement，都用动态代理实现
+ *      没有特别处理的方法返回对应类型的默认值（0、false、null），保证连接池调用任何方法都不会出错
+ */
+class StubConnection implements InvocationHandler {
+
+    private final String url;
+    private boolean closed;
+    private boolean autoCommit = true;
+    private boolean readOnly;
+    private int transactionIsolation = Connection.TRANSACTION_REPEATABLE_READ;
+
+    private StubConnection(String url) {
+        this.url = url;
+    }
+
+    static Connection newConnection(String url) {
+        return (Connection) Proxy.newProxyInstance(StubConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new StubConnection(url));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            case "isValid":
+                return !closed;
+            case "getAutoCommit":
+                return autoCommit;
+            case "setAutoCommit":
+                autoCommit = (Boolean) args[0];
+                return null;
+            case "isReadOnly":
+                return readOnly;
+            case "setReadOnly":
+                readOnly = (Boolean) args[0];
+                return null;
+            case "getTransactionIsolation":
+                return transactionIsolation;
+            case "setTransactionIsolation":
+                transactionIsolation = (Integer) args[0];
+                return null;
+            case "getMetaData":
+                return newMetaData(proxy);
+            case "prepareStatement":
+            case "prepareCall":
+                checkOpen();
+                return newStatement(PreparedStatement.class, proxy, (String) args[0]);
+            case "createStatement":
+                checkOpen();
+                return newStatement(Statement.class, proxy, null);
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "StubConnection[" + url + "]";
+            default:
+                return StubJdbc.defaultValue(method.getReturnType());
+        }
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接已关闭", "08003");
+        }
+    }
+
+    private DatabaseMetaData newMetaData(Object connection) {
+        return (DatabaseMetaData) Proxy.newProxyInstance(StubConnection.class.getClassLoader(),
+                new Class<?>[]{DatabaseMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getURL":
+                            return url;
+                        case "getDriverName":
+                        case "getDatabaseProductName":
+                            return "Stub";
+                        case "getDriverVersion":
+                        case "getDatabaseProductVersion":
+                            return "1.0";
+                        case "getConnection":
+                            return connection;
+                        default:
+                            return StubJdbc.defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    /**
+     * Statement只记录SQL和参数，executeQuery时从StubDatabase中查出注册好的数据
+     */
+    private <T extends Statement> T newStatement(Class<T> type, Object connection, String preparedSql) {
+        List<Object> parameters = new ArrayList<>();
+        return type.cast(Proxy.newProxyInstance(StubConnection.class.getClassLoader(),
+                new Class<?>[]{type}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "executeQuery":
+                            String sql = preparedSql != null ? preparedSql : (String) args[0];
+                            ResultSet resultSet = StubDatabase.query(sql);
+                            if (resultSet == null) {
+                                throw new SQLException("StubDatabase中没有注册SQL：" + sql);
+                            }
+                            return resultSet;
+                        case "executeUpdate":
+                            return 1;
+                        case "execute":
+                            return false;
+                        case "executeBatch":
+                            return new int[0];
+                        case "setObject":
+                        case "setInt":
+                        case "setString":
+                            int index = (Integer) args[0];
+                            while (parameters.size() < index) {
+                                parameters.add(null);
+                            }
+                            parameters.set(index - 1, args[1]);
+                            return null;
+                        case "clearParameters":
+                            parameters.clear();
+                            return null;
+                        case "getConnection":
+                            return connection;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            return StubJdbc.defaultValue(method.getReturnType());
+                    }
+                }));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.benchmark.stub;
+
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 18:28
+ * @Description:
+ *      StubDriver的“数据”，按SQL文本注册查询结果
+ *      每次executeQuery都调用一次注册的Supplier，得到一个新的结果集
+ */
+public class StubDatabase {
+
+    private static final Map<String, Supplier<ResultSet>> QUERIES = new ConcurrentHashMap<>();
+
+    private StubDatabase() {
+    }
+
+    public static void register(String sql, Supplier<ResultSet> resultSetSupplier) {
+        QUERIES.put(sql, resultSetSupplier);
+    }
+
+    static ResultSet query(String sql) {
+        Supplier<ResultSet> supplier = QUERIES.get(sql);
+        return supplier == null ? null : supplier.get();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.benchmark.stub;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 18:10
+ * @Description:
+ *      基准测试用的本地“数据库”驱动，不需要MySQL服务器
+ *      url格式：jdbc:stub:任意名字?connectMicros=200
+ *          connectMicros  建立一个物理连接要花的微秒数，模拟真实数据库的握手开销，默认0
+ *
+ *      建立的连接由StubConnection实现，只保留连接池会用到的状态（自动提交、只读、是否关闭等），
+ *      执行查询时返回通过StubDatabase注册的数据
+ */
+public class StubDriver implements Driver {
+
+    public static final String URL_PREFIX = "jdbc:stub:";
+
+    static {
+        try {
+            DriverManager.registerDriver(new StubDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 18:12
+     * @Description:
+     *      确保驱动已经注册，和 Class.forName 的效果一样
+     *
+     * @Param: []
+     * @return: void
+     */
+    public static void register() {
+        // 调用静态方法时类已经初始化，驱动也就注册好了
+    }
+
+    public static String url(String name, long connectMicros) {
+        return URL_PREFIX + name + "?connectMicros=" + connectMicros;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        long connectMicros = 0;
+        int index = url.indexOf("connectMicros=");
+        if (index >= 0) {
+            String value = url.substring(index + "connectMicros=".length());
+            int end = value.indexOf('&');
+            connectMicros = Long.parseLong(end >= 0 ? value.substring(0, end) : value);
+        }
+        if (connectMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(connectMicros));
+        }
+        return StubConnection.newConnection(url);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
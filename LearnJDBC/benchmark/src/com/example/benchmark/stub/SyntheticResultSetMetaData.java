@@ -0,0 +1,153 @@
+package com.example.benchmark.stub;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 19:05
+ * @Description:
+ *      SyntheticResultSet的元数据，列名和列别名相同
+ */
+class SyntheticResultSetMetaData implements ResultSetMetaData {
+
+    private final SyntheticTable table;
+
+    SyntheticResultSetMetaData(SyntheticTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return table.getColumnCount();
+    }
+
+    @Override
+    public String getColumnLabel(int column) {
+        return table.getColumnLabel(column);
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return table.getColumnLabel(column);
+    }
+
+    @Override
+    public int getColumnType(int column) {
+        return table.getColumnType(column);
+    }
+
+    @Override
+    public String getColumnTypeName(int column) {
+        switch (table.getColumnType(column)) {
+            case Types.INTEGER:
+                return "INT";
+            case Types.VARCHAR:
+                return "VARCHAR";
+            default:
+                return "DATE";
+        }
+    }
+
+    @Override
+    public String getColumnClassName(int column) {
+        return table.getColumnClassName(column);
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) {
+        return column == 1 && table.getColumnType(column) == Types.INTEGER;
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isSearchable(int column) {
+        return true;
+    }
+
+    @Override
+    public boolean isCurrency(int column) {
+        return false;
+    }
+
+    @Override
+    public int isNullable(int column) {
+        return columnNoNulls;
+    }
+
+    @Override
+    public boolean isSigned(int column) {
+        return table.getColumnType(column) == Types.INTEGER;
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) {
+        return getPrecision(column);
+    }
+
+    @Override
+    public String getSchemaName(int column) {
+        return "";
+    }
+
+    @Override
+    public int getPrecision(int column) {
+        switch (table.getColumnType(column)) {
+            case Types.INTEGER:
+                return 11;
+            case Types.VARCHAR:
+                return 50;
+            default:
+                return 10;
+        }
+    }
+
+    @Override
+    public int getScale(int column) {
+        return 0;
+    }
+
+    @Override
+    public String getTableName(int column) {
+        return "";
+    }
+
+    @Override
+    public String getCatalogName(int column) {
+        return "";
+    }
+
+    @Override
+    public boolean isReadOnly(int column) {
+        return true;
+    }
+
+    @Override
+    public boolean isWritable(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) {
+        return false;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("SyntheticResultSetMetaData不是 " + iface.getName() + " 的包装");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.benchmark.stub;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 19:00
+ * @Description:
+ *      合成的表：列定义 + 行数，每一行的值按行号算出来，不用真的把一百万行存在内存里
+ *      字符串和日期列的值预先生成VALUE_CYCLE个，按行号循环使用，读取时不会产生新对象，
+ *      这样基准测试中统计到的内存分配都来自封装Bean的那一方
+ *
+ *      列别名和bean包下对应类的属性名一致：
+ *          customers()  id, name, email, birth
+ *          orders()     orderId, orderName, orderDate
+ *          users()      user, password, balance
+ */
+public class SyntheticTable {
+
+    private static final int VALUE_CYCLE = 1024;
+
+    private static final int KIND_ID = 0;
+    private static final int KIND_INT = 1;
+    private static final int KIND_STRING = 2;
+    private static final int KIND_DATE = 3;
+
+    private final String[] labels;
+    private final int[] kinds;
+    private final int rowCount;
+    // 每一列循环使用的值，下标为列索引-1，id列为null
+    private final Object[][] values;
+
+    private SyntheticTable(String[] labels, int[] kinds, int rowCount) {
+        this.labels = labels;
+        this.kinds = kinds;
+        this.rowCount = rowCount;
+        this.values = new Object[labels.length][];
+        for (int i = 0; i < labels.length; i++) {
+            if (kinds[i] != KIND_ID) {
+                values[i] = generate(labels[i], kinds[i]);
+            }
+        }
+    }
+
+    private static Object[] generate(String label, int kind) {
+        Object[] cycle = new Object[VALUE_CYCLE];
+        long day = 24L * 60 * 60 * 1000;
+        for (int i = 0; i < VALUE_CYCLE; i++) {
+            switch (kind) {
+                case KIND_INT:
+                    cycle[i] = 1000 + i;
+                    break;
+                case KIND_STRING:
+                    cycle[i] = label + "-" + i + (label.contains("mail") ? "@example.com" : "");
+                    break;
+                default:
+                    // 从1990-01-01开始每行加一天
+                    cycle[i] = new Date(631152000000L + i * day);
+                    break;
+            }
+        }
+        return cycle;
+    }
+
+    public static SyntheticTable customers(int rowCount) {
+        return new SyntheticTable(new String[]{"id", "name", "email", "birth"},
+                new int[]{KIND_ID, KIND_STRING, KIND_STRING, KIND_DATE}, rowCount);
+    }
+
+    public static SyntheticTable orders(int rowCount) {
+        return new SyntheticTable(new String[]{"orderId", "orderName", "orderDate"},
+                new int[]{KIND_ID, KIND_STRING, KIND_DATE}, rowCount);
+    }
+
+    public static SyntheticTable users(int rowCount) {
+        return new SyntheticTable(new String[]{"user", "password", "balance"},
+                new int[]{KIND_STRING, KIND_STRING, KIND_INT}, rowCount);
+    }
+
+    public SyntheticResultSet newResultSet() {
+        return new SyntheticResultSet(this);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return labels.length;
+    }
+
+    public String getColumnLabel(int columnIndex) {
+        return labels[columnIndex - 1];
+    }
+
+    public int getColumnType(int columnIndex) {
+        switch (kinds[columnIndex - 1]) {
+            case KIND_ID:
+            case KIND_INT:
+                return Types.INTEGER;
+            case KIND_STRING:
+                return Types.VARCHAR;
+            default:
+                return Types.DATE;
+        }
+    }
+
+    public String getColumnClassName(int columnIndex) {
+        switch (kinds[columnIndex - 1]) {
+            case KIND_ID:
+            case KIND_INT:
+                return Integer.class.getName();
+            case KIND_STRING:
+                return String.class.getName();
+            default:
+                return Date.class.getName();
+        }
+    }
+
+    int findColumn(String columnLabel) throws SQLException {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equalsIgnoreCase(columnLabel)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("没有名为 " + columnLabel + " 的列");
+    }
+
+    Object getObject(int columnIndex, int row) {
+        if (kinds[columnIndex - 1] == KIND_ID) {
+            // 和真实驱动一样，getObject读整数列时会装箱
+            return Integer.valueOf(row + 1);
+        }
+        return values[columnIndex - 1][row % VALUE_CYCLE];
+    }
+
+    int getInt(int columnIndex, int row) throws SQLException {
+        switch (kinds[columnIndex - 1]) {
+            case KIND_ID:
+                return row + 1;
+            case KIND_INT:
+                return (Integer) values[columnIndex - 1][row % VALUE_CYCLE];
+            default:
+                throw new SQLException("列 " + getColumnLabel(columnIndex) + " 不是整数");
+        }
+    }
+}
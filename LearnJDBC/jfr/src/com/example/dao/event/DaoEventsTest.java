@@ -0,0 +1,58 @@
+package com.example.dao.event;
+
+import com.example.dao.CustomerDao;
+import com.example.dao.daoImpl.CustomerDaoImpl;
+import com.example.utils.JDBCPoolUtils;
+import com.example.utils.JDBCUtils;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 23:45
+ * @Description:
+ *      录制Dao操作的JFR事件，要用JDK 11以上运行
+ */
+public class DaoEventsTest {
+    CustomerDao customerDao = new CustomerDaoImpl();
+
+    @Test
+    public void recordOperations() throws Exception {
+        // jfr模块在classpath上，而且JVM有JFR
+        assertTrue(DaoEvents.isAvailable());
+        Path file = Files.createTempFile("dao", ".jfr");
+        Connection conn = JDBCPoolUtils.getConnectionFromDruid();
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.dao.Operation");
+            recording.start();
+            customerDao.getCustomerById(conn, 1);
+            customerDao.getCount(conn);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // 可以直接用JMC打开file，这里打印出来看一下
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        for (RecordedEvent event : events) {
+            System.out.println(event.getString("operation") + " " + event.getString("fingerprint")
+                    + " pool=" + event.getString("pool") + " rows=" + event.getLong("rows")
+                    + " execution=" + event.getDuration("executionTime") + " mapping=" + event.getDuration("mappingTime"));
+        }
+        assertEquals(2, events.size());
+        assertEquals("druid", events.get(0).getString("pool"));
+
+        JDBCUtils.closeResource(conn, null);
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.dao.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 23:20
+ * @Description:
+ *      BaseDao的一次commonQuery / commonUpdate / getValue调用对应的JFR事件
+ *      事件本身的持续时间是整个调用的耗时，其中又分为执行（预编译、填参数、执行SQL）和映射（遍历结果集封装对象）两部分
+ *
+ *      只能通过DaoEvents使用，这个类引用了jdk.jfr，没有JFR的JVM上不能加载
+ */
+@Name(DaoOperationEvent.NAME)
+@Label("DAO Operation")
+@Category({"LearnJDBC", "DAO"})
+@Description("BaseDao的一次commonQuery、commonUpdate或getValue调用")
+class DaoOperationEvent extends Event {
+
+    static final String NAME = "com.example.dao.Operation";
+
+    @Label("Operation")
+    @Description("commonQuery、commonUpdate或getValue")
+    String operation;
+
+    @Label("Entity")
+    @Description("Dao操作的Bean类型")
+    String entity;
+
+    @Label("SQL Fingerprint")
+    @Description("常量替换为?之后的SQL，和SqlStatsRegistry中的一致")
+    String fingerprint;
+
+    @Label("Parameter Count")
+    int parameterCount;
+
+    @Label("Rows")
+    @Description("查询封装的行数，或者增删改影响的行数")
+    long rows;
+
+    @Label("Execution Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long executionTime;
+
+    @Label("Mapping Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long mappingTime;
+
+    @Label("Pool")
+    @Description("连接来自哪个连接池，JDBCUtils获取的连接为jdbc，连接没有经过SqlStatsRegistry包装时为unknown")
+    String pool;
+
+    @Label("Failed")
+    boolean failed;
+}
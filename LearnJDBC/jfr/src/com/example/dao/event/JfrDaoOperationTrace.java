@@ -0,0 +1,64 @@
+package com.example.dao.event;
+
+import com.example.stats.SqlFingerprint;
+import com.example.stats.SqlStatsRegistry;
+
+import java.sql.Connection;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 23:30
+ * @Description:
+ *      用DaoOperationEvent记录的实现
+ *      在单独的jfr模块中，要用JDK 11以上编译；主模块按Java 8编译，不直接引用这个类，见DaoEvents
+ *      录制没有开启这个事件时begin直接返回NOOP，之后的调用都是空方法；
+ *      SQL指纹和连接池名字只在shouldCommit()为true（达到阈值）时才计算
+ */
+public class JfrDaoOperationTrace implements DaoOperationTrace {
+
+    private final DaoOperationEvent event;
+    private final long start;
+    private long executedAt;
+
+    private JfrDaoOperationTrace(DaoOperationEvent event) {
+        this.event = event;
+        this.start = System.nanoTime();
+    }
+
+    // DaoEvents通过反射调用，所以是public的
+    public static DaoOperationTrace begin(String operation, Class<?> entity) {
+        DaoOperationEvent event = new DaoOperationEvent();
+        if (!event.isEnabled()) {
+            return NOOP;
+        }
+        event.operation = operation;
+        event.entity = entity == null ? null : entity.getName();
+        event.begin();
+        return new JfrDaoOperationTrace(event);
+    }
+
+    @Override
+    public void executed() {
+        executedAt = System.nanoTime();
+    }
+
+    @Override
+    public void commit(Connection conn, String sql, int parameterCount, long rows, boolean failed) {
+        long end = System.nanoTime();
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        long executed = executedAt == 0 ? end : executedAt;
+        event.executionTime = executed - start;
+        event.mappingTime = end - executed;
+        event.fingerprint = SqlFingerprint.of(sql);
+        event.parameterCount = parameterCount;
+        event.rows = rows;
+        event.failed = failed;
+        String source = SqlStatsRegistry.sourceOf(conn);
+        event.pool = source == null ? "unknown" : source;
+        event.commit();
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.bean;
 
+import com.example.blob.LazyBlob;
+import com.example.blob.LazyBlobColumn;
+
 import java.sql.Date;
 
 /**
@@ -14,6 +17,17 @@ public class Customer {
     String name;
     String email;
     private java.sql.Date birth;
+    // 照片，查询时不读取，用到时才从blob_store中查询；结果集中有photo列时是已经读出来的
+    // blob_store中压缩存储的，读取时按codec列解压
+    @LazyBlobColumn(key = "id", codecColumn = "codec", query =
+            "select b.content, b.codec, -1 seq from customers c join blob_store b on b.hash = c.photo_hash " +
+            "where c.id = ? and b.chunk_size = 0 " +
+            "union all " +
+            "select k.content, b.codec, k.seq from customers c join blob_store b on b.hash = c.photo_hash " +
+            "join blob_chunk k on k.hash = b.chunk_hash and k.chunk_size = b.chunk_size " +
+            "where c.id = ? " +
+            "order by seq")
+    private LazyBlob photo;
 
     public Customer(int id, String name, String email, Date birth) {
         this.id = id;
@@ -64,6 +78,14 @@ public class Customer {
         this.birth = birth;
     }
 
+    public LazyBlob getPhoto() {
+        return photo;
+    }
+
+    public void setPhoto(LazyBlob photo) {
+        this.photo = photo;
+    }
+
     public Customer() {
     }
 }
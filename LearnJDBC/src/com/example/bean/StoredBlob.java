@@ -0,0 +1,83 @@
+package com.example.bean;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 15:00
+ * @Description: 用于封装blob_store表中一个对象的信息（不含内容）
+ */
+public class StoredBlob {
+
+    private String hash;
+    private long size;
+    private int refCount;
+    // 0表示没有分块
+    private int chunkSize;
+    // 分块存储时分块的key：存进去的字节（压缩后的）的hash，没有压缩时和hash一样
+    private String chunkHash;
+    // 0表示没有压缩，见BlobCompression.byId
+    private int codec;
+
+    public StoredBlob() {
+    }
+
+    @Override
+    public String toString() {
+        return "StoredBlob{" +
+                "hash='" + hash + '\'' +
+                ", size=" + size +
+                ", refCount=" + refCount +
+                ", chunkSize=" + chunkSize +
+                ", chunkHash='" + chunkHash + '\'' +
+                ", codec=" + codec +
+                '}';
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public String getChunkHash() {
+        return chunkHash;
+    }
+
+    public void setChunkHash(String chunkHash) {
+        this.chunkHash = chunkHash;
+    }
+
+    public int getCodec() {
+        return codec;
+    }
+
+    public void setCodec(int codec) {
+        this.codec = codec;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 18:00
+ * @Description:
+ *      BLOB的压缩算法，全部是流式的，任何时候内存中只有一个块（几十KB），不需要整个BLOB放在堆上
+ *      id存进数据库（blob_store.codec），读取时按id找回算法，所以已经用过的id不能改
+ *
+ *      压缩和解压都有“写入”的形式，是因为BaseDao.commonBlobQuery是把查询结果一行一行写出来的；
+ *      LazyBlob是读出来的，所以解压还有“读取”的形式
+ *      所有返回的流关闭时都会关闭传入的流
+ *
+ *      已有的实现见BlobCompression
+ */
+public interface BlobCodec {
+
+    int getId();
+
+    String getName();
+
+    /**
+     * 写入原始内容，压缩后写到out
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+
+    /**
+     * 写入压缩后的内容，解压后写到out
+     */
+    OutputStream decompress(OutputStream out) throws IOException;
+
+    /**
+     * 从in读取压缩后的内容，读出解压后的内容
+     */
+    InputStream decompress(InputStream in) throws IOException;
+}
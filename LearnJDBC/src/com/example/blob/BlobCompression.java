@@ -0,0 +1,239 @@
+package com.example.blob;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 18:30
+ * @Description:
+ *      BLOB列的透明压缩
+ *      每一列单独选择算法，默认不压缩：
+ *          系统属性 -Djdbc.blob.codec.customers.photo=lz4 （none / deflate / lz4）
+ *          或者 BlobCompression.setCodec("customers.photo", BlobCompression.LZ4)
+ *      Deflate的压缩级别由系统属性 jdbc.blob.deflateLevel 指定，默认6
+ *
+ *      已经压缩过的格式（PNG、JPEG、GIF、WebP、MP4、ZIP、GZIP等）根据文件头识别出来直接跳过，
+ *      再压缩只会浪费CPU；其他内容压缩后没有小于原来的 15/16，也按不压缩存
+ */
+public final class BlobCompression {
+
+    public static final BlobCodec NONE = new BlobCodec() {
+        @Override
+        public int getId() {
+            return 0;
+        }
+
+        @Override
+        public String getName() {
+            return "none";
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public OutputStream decompress(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            return in;
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    };
+    public static final BlobCodec DEFLATE = new DeflateCodec(
+            Integer.getInteger("jdbc.blob.deflateLevel", Deflater.DEFAULT_COMPRESSION));
+    public static final BlobCodec LZ4 = new Lz4Codec();
+
+    private static final BlobCodec[] CODECS = {NONE, DEFLATE, LZ4};
+
+    // 用setCodec设置过的列，优先于系统属性
+    private static final Map<String, BlobCodec> COLUMN_CODECS = new ConcurrentHashMap<>();
+
+    // 识别文件格式最多需要看前12个字节
+    private static final int HEADER_LENGTH = 12;
+
+    private BlobCompression() {
+    }
+
+    /**
+     * @Date: 2026/10/19 18:35
+     * @Description:
+     *      某一列使用的算法
+     *
+     * @Param: [column 表名.列名，例如 customers.photo]
+     * @return: com.example.blob.BlobCodec
+     */
+    public static BlobCodec codecFor(String column) {
+        BlobCodec codec = COLUMN_CODECS.get(column);
+        if (codec != null) {
+            return codec;
+        }
+        String name = System.getProperty("jdbc.blob.codec." + column);
+        return name == null ? NONE : byName(name);
+    }
+
+    public static void setCodec(String column, BlobCodec codec) {
+        COLUMN_CODECS.put(column, codec);
+    }
+
+    public static BlobCodec byId(int id) {
+        for (BlobCodec codec : CODECS) {
+            if (codec.getId() == id) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("未知的压缩算法id：" + id);
+    }
+
+    public static BlobCodec byName(String name) {
+        for (BlobCodec codec : CODECS) {
+            if (codec.getName().equalsIgnoreCase(name.trim())) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("未知的压缩算法：" + name);
+    }
+
+    /**
+     * @Date: 2026/10/19 18:40
+     * @Description:
+     *      按文件头判断是不是已经压缩过的格式
+     *
+     * @Param: [file]
+     * @return: boolean
+     */
+    public static boolean isCompressedFormat(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // 读满或者读到文件末尾
+            }
+            return isCompressedFormat(header.array(), header.position());
+        }
+    }
+
+    static boolean isCompressedFormat(byte[] h, int length) {
+        return startsWith(h, length, 0, 0x89, 'P', 'N', 'G')       // PNG
+                || startsWith(h, length, 0, 0xFF, 0xD8, 0xFF)        // JPEG
+                || startsWith(h, length, 0, 'G', 'I', 'F', '8')      // GIF
+                || startsWith(h, length, 0, 'R', 'I', 'F', 'F') && startsWith(h, length, 8, 'W', 'E', 'B', 'P')
+                || startsWith(h, length, 4, 'f', 't', 'y', 'p')      // MP4、MOV、HEIC
+                || startsWith(h, length, 0, 'P', 'K', 3, 4)          // ZIP、docx、jar
+                || startsWith(h, length, 0, 0x1F, 0x8B)              // GZIP
+                || startsWith(h, length, 0, 'B', 'Z', 'h')           // BZIP2
+                || startsWith(h, length, 0, 0xFD, '7', 'z', 'X', 'Z', 0)
+                || startsWith(h, length, 0, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)
+                || startsWith(h, length, 0, 0x28, 0xB5, 0x2F, 0xFD)  // Zstandard
+                || startsWith(h, length, 0, 'R', 'a', 'r', '!')
+                || startsWith(h, length, 0, 'I', 'D', '3');          // MP3
+    }
+
+    private static boolean startsWith(byte[] h, int length, int offset, int... magic) {
+        if (offset + magic.length > length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((h[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @Date: 2026/10/19 18:45
+     * @Description:
+     *      用codec压缩文件，写到target（覆盖），源文件内存映射后边读边压缩
+     *
+     * @Param: [codec, source, target]
+     * @return: long 压缩后的大小
+     */
+    public static long compress(BlobCodec codec, Path source, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("文件太大，不能超过2GB：" + source);
+            }
+            InputStream in = new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            try (OutputStream out = codec.compress(new BufferedOutputStream(Files.newOutputStream(target),
+                    Lz4Codec.BLOCK_SIZE))) {
+                BlobStreams.copy(in, out);
+            }
+        }
+        return Files.size(target);
+    }
+
+    /**
+     * @Date: 2026/10/19 18:50
+     * @Description:
+     *      按列的设置压缩文件，跳过已经压缩过的格式和压缩效果不好的内容
+     *
+     * @Param: [codec, source]
+     * @return: com.example.blob.BlobCompression.Compressed 压缩后的临时文件，用完要close；不压缩时为null
+     */
+    public static Compressed compressIfWorthwhile(BlobCodec codec, Path source) throws IOException {
+        if (codec == NONE || isCompressedFormat(source)) {
+            return null;
+        }
+        long size = Files.size(source);
+        Path temp = Files.createTempFile("blob-" + codec.getName(), ".tmp");
+        try {
+            long compressedSize = compress(codec, source, temp);
+            if (compressedSize < size - size / 16) {
+                return new Compressed(codec, temp);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.deleteIfExists(temp);
+        return null;
+    }
+
+
+    /**
+     * 压缩后的临时文件，close时删除
+     */
+    public static final class Compressed implements AutoCloseable {
+        private final BlobCodec codec;
+        private final Path file;
+
+        Compressed(BlobCodec codec, Path file) {
+            this.codec = codec;
+            this.file = file;
+        }
+
+        public BlobCodec getCodec() {
+            return codec;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Blob;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 13:20
+ * @Description:
+ *      BLOB和文件之间的流式读写，代替BlobTest中 setBlob(FileInputStream) 和 1KB byte[] 循环的写法
+ *
+ *      上传：文件用内存映射（FileChannel.map）打开，通过setBinaryStream连同长度一起交给驱动，
+ *            驱动知道长度就不用先把流读完再算；我们这边也不用先把文件读进一个byte[]。
+ *            但Connector/J 5.1（客户端预编译）发送时仍会把内容复制进它在Java堆上的发送缓冲区，
+ *            所以单个BLOB仍然受堆大小和max_allowed_packet限制，省掉的只是我们自己那一份拷贝
+ *      下载：结果集中的BLOB在驱动中已经是完整的byte[]，这里从驱动的InputStream读到一个复用的缓冲区，
+ *            再通过直接内存的ByteBuffer写入FileChannel，省掉的是每次新建缓冲区和再复制出一个完整byte[]
+ *            缓冲区每个线程一份，反复使用，大小由系统属性 jdbc.blob.bufferSize 指定，默认1MB
+ */
+public final class BlobStreams {
+
+    public static final int BUFFER_SIZE = Integer.getInteger("jdbc.blob.bufferSize", 1024 * 1024);
+
+    private static final ThreadLocal<TransferBuffers> BUFFERS = ThreadLocal.withInitial(TransferBuffers::new);
+
+    private BlobStreams() {
+    }
+
+    /**
+     * @Date: 2026/10/19 13:25
+     * @Description:
+     *      把文件内存映射后绑定到第index个占位符，返回文件的长度
+     *      不需要先把文件读进byte[]，但驱动发送时仍会复制进自己的缓冲区，见类的说明
+     *      映射的内存在ByteBuffer被回收时才释放，执行完语句后应该clearParameters，不让Statement一直引用它
+     *
+     * @Param: [ps, index, file]
+     * @return: long
+     */
+    public static long bindFile(PreparedStatement ps, int index, Path file) throws IOException, SQLException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // 驱动也不支持超过2GB的BLOB
+                throw new IOException("文件太大，不能超过2GB：" + file);
+            }
+            // 映射建立后关闭channel不影响映射
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ps.setBinaryStream(index, new ByteBufferInputStream(mapped), size);
+            return size;
+        }
+    }
+
+    /**
+     * @Date: 2026/10/19 13:30
+     * @Description:
+     *      把输入流全部写入文件（覆盖原来的内容），输入流不关闭
+     *
+     * @Param: [in, target]
+     * @return: long 写入的字节数
+     */
+    public static long copy(InputStream in, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return copy(in, out);
+        }
+    }
+
+    /**
+     * @Date: 2026/10/19 13:32
+     * @Description:
+     *      把输入流全部写入FileChannel的当前位置，两边都不关闭
+     *
+     * @Param: [in, out]
+     * @return: long 写入的字节数
+     */
+    public static long copy(InputStream in, FileChannel out) throws IOException {
+        TransferBuffers buffers = BUFFERS.get();
+        byte[] chunk = buffers.chunk;
+        ByteBuffer direct = buffers.direct;
+
+        long total = 0;
+        int n;
+        // 尽量把缓冲区读满再写，减少write的次数
+        while ((n = readFully(in, chunk)) > 0) {
+            direct.clear();
+            direct.put(chunk, 0, n);
+            direct.flip();
+            while (direct.hasRemaining()) {
+                out.write(direct);
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * @Date: 2026/10/19 16:05
+     * @Description:
+     *      把输入流全部写入FileChannel的position位置开始的地方，不改变channel的当前位置，两边都不关闭
+     *      多个线程可以同时往同一个channel的不同位置写
+     *
+     * @Param: [in, out, position]
+     * @return: long 写入的字节数
+     */
+    public static long copy(InputStream in, FileChannel out, long position) throws IOException {
+        TransferBuffers buffers = BUFFERS.get();
+        byte[] chunk = buffers.chunk;
+        ByteBuffer direct = buffers.direct;
+
+        long total = 0;
+        int n;
+        while ((n = readFully(in, chunk)) > 0) {
+            direct.clear();
+            direct.put(chunk, 0, n);
+            direct.flip();
+            while (direct.hasRemaining()) {
+                total += out.write(direct, position + total);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @Date: 2026/10/19 16:08
+     * @Description:
+     *      把输入流全部写入输出流，两边都不关闭
+     *
+     * @Param: [in, out]
+     * @return: long 写入的字节数
+     */
+    public static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] chunk = BUFFERS.get().chunk;
+        long total = 0;
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            out.write(chunk, 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * @Date: 2026/10/19 13:35
+     * @Description:
+     *      把Blob全部写入文件，写完释放Blob
+     *
+     * @Param: [blob, target]
+     * @return: long 写入的字节数
+     */
+    public static long copy(Blob blob, Path target) throws IOException, SQLException {
+        try (InputStream in = blob.getBinaryStream()) {
+            return copy(in, target);
+        } finally {
+            blob.free();
+        }
+    }
+
+    /**
+     * @Date: 2026/10/19 15:10
+     * @Description:
+     *      计算文件内容的SHA-256，文件内存映射后直接交给MessageDigest，不需要把整个文件读进Java堆
+     *
+     * @Param: [file]
+     * @return: java.lang.String 64位小写十六进制
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > 0) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // 每个JRE都必须支持SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    /**
+     * @Date: 2026/10/19 17:22
+     * @Description:
+     *      写入ByteBuffer的OutputStream，从buffer的position开始写，写满了抛出IOException
+     *
+     * @Param: [buffer]
+     * @return: java.io.OutputStream
+     */
+    public static OutputStream outputStream(ByteBuffer buffer) {
+        return new ByteBufferOutputStream(buffer);
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int filled = 0;
+        while (filled < buffer.length) {
+            int n = in.read(buffer, filled, buffer.length - filled);
+            if (n < 0) {
+                break;
+            }
+            filled += n;
+        }
+        return filled;
+    }
+
+
+    /**
+     * 每个线程复用的缓冲区：InputStream只能读到byte[]，FileChannel写直接内存最快，两个都留着
+     */
+    private static class TransferBuffers {
+        final byte[] chunk = new byte[BUFFER_SIZE];
+        final ByteBuffer direct = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+}
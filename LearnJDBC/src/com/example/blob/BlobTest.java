@@ -1,14 +1,30 @@
 package com.example.blob;
 
 import com.example.bean.Customer;
+import com.example.bean.StoredBlob;
+import com.example.dao.BlobStoreDao;
+import com.example.dao.CustomerDao;
+import com.example.dao.daoImpl.BlobStoreDaoImpl;
+import com.example.dao.cache.OffHeapBlobCache;
+import com.example.dao.daoImpl.CustomerDaoImpl;
+import com.example.dao.daoImpl.PhotoCachingCustomerDao;
+import com.example.utils.JDBCPoolUtils;
 import com.example.utils.JDBCUtils;
 import org.junit.Test;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.sql.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
 
 /**
  * @author: Yi-27
@@ -18,106 +34,195 @@ import java.sql.*;
  */
 public class BlobTest {
 
-    // 向数据表customers中插入Blob类型的字段
+    // 向数据表customers中插入一个customer和他的照片
+    // 照片通过Dao保存到blob_store中，同样的图片插入多少次都只存一份
+    @Test
+    public void testInsert() throws Exception {
+        CustomerDao customerDao = new CustomerDaoImpl();
+        Connection conn = JDBCUtils.getConnection();
+
+        customerDao.insert(conn, new Customer(0, "Gakki", "Gakki@qq.com", Date.valueOf("1988-06-11")));
+        List<Customer> customers = customerDao.getAll(conn);
+        int id = customers.get(customers.size() - 1).getId();
+
+        // 打开图片，该图片地址在项目根目录下
+        BlobTransfer transfer = customerDao.savePhoto(conn, id, Paths.get("gakki.png"));
+        if (transfer != null) {
+            System.out.println("数据插入成功：" + transfer);
+        } else {
+            System.out.println("数据插入失败");
+        }
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    // 从数据库中读取customer和他的照片
+    @Test
+    public void testSelect() throws Exception {
+        CustomerDao customerDao = new CustomerDaoImpl();
+        Connection conn = JDBCUtils.getConnection();
+
+        Customer customer = customerDao.getCustomerById(conn, 22);
+        System.out.println(customer);
+        // 位置从项目目录下开始
+        BlobTransfer transfer = customerDao.loadPhoto(conn, 22, Paths.get("src/gakki2.png"));
+        System.out.println("读取：" + transfer);
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    // 同样的内容只存一份：再保存一次gakki.png，引用计数加1
+    @Test
+    public void testBlobStore() throws Exception {
+        BlobStoreDao blobStore = new BlobStoreDaoImpl();
+        Connection conn = JDBCUtils.getConnection();
+
+        // 先保证已经存过
+        String hash = blobStore.put(conn, Paths.get("gakki.png"));
+        assertEquals(BlobStreams.sha256(Paths.get("gakki.png")), hash);
+        StoredBlob before = blobStore.getStoredBlob(conn, hash);
+        System.out.println(before);
+
+        // 再存一次只增加引用
+        assertEquals(hash, blobStore.put(conn, Paths.get("gakki.png")));
+        assertEquals(before.getRefCount() + 1, blobStore.getStoredBlob(conn, hash).getRefCount());
+
+        assertEquals(1, blobStore.release(conn, hash));
+        StoredBlob after = blobStore.getStoredBlob(conn, hash);
+        System.out.println(after);
+        assertEquals(before.getRefCount(), after.getRefCount());
+
+        // 上面第一次put增加的引用也释放掉
+        assertEquals(1, blobStore.release(conn, hash));
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    // 通过Dao上传照片：文件内存映射后连同长度一起交给驱动
+    @Test
+    public void testSavePhoto() throws Exception {
+        CustomerDao customerDao = new CustomerDaoImpl();
+        Connection conn = JDBCUtils.getConnection();
+
+        BlobTransfer transfer = customerDao.savePhoto(conn, 22, Paths.get("gakki.png"));
+        System.out.println("上传：" + transfer);
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    // 通过Dao下载照片：用大的直接内存缓冲区写入FileChannel
     @Test
-    public void testInsert(){
-        Connection conn = null;
-        PreparedStatement ps = null;
-        FileInputStream fis = null;
-        try {
-            conn = JDBCUtils.getConnection();
-            String sql = "insert into customers(name, email, birth, photo) values(?, ?, ?, ?);";
-
-            ps = conn.prepareStatement(sql);
-
-            ps.setObject(1, "Gakki");
-            ps.setObject(2, "Gakki@qq.com");
-            ps.setObject(3, "1988-06-11");
-
-            // 打开图片，该图片地址在项目根目录下
-            fis = new FileInputStream("gakki.png");
-            ps.setBlob(4, fis);
-
-            int i = ps.executeUpdate();
-            if (i > 0){
-                System.out.println(i);
-                System.out.println("数据插入成功");
-            }else {
-                System.out.println("数据插入失败");
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            // 关闭资源
-            try {
-                if (fis != null)
-                    fis.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            JDBCUtils.closeResource(conn, ps);
+    public void testLoadPhoto() throws Exception {
+        CustomerDao customerDao = new CustomerDaoImpl();
+        Connection conn = JDBCUtils.getConnection();
+
+        BlobTransfer transfer = customerDao.loadPhoto(conn, 22, Paths.get("src/gakki2.png"));
+        System.out.println("下载：" + transfer);
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    // 延迟加载照片：getAll不读取photo列，用到哪个customer的照片才查询哪个
+    @Test
+    public void testLazyPhoto() throws Exception {
+        CustomerDao customerDao = new CustomerDaoImpl();
+        Connection conn = JDBCUtils.getConnection();
+
+        Customer customer = customerDao.getCustomerById(conn, 22);
+        System.out.println(customer.getPhoto() + " 已加载：" + customer.getPhoto().isLoaded());
+        BlobTransfer transfer = customer.getPhoto().writeTo(conn, Paths.get("src/gakki3.png"));
+        System.out.println("下载：" + transfer);
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    // 分块存储：大于64KB的照片切成64KB一块，4个连接池中的连接并行上传、并行下载，还可以只读其中一段
+    @Test
+    public void testChunkedPhoto() throws Exception {
+        try (ChunkedBlobStore chunkedStore = new ChunkedBlobStore(JDBCPoolUtils::getConnectionFromDruid, 4, 64 * 1024)) {
+            CustomerDao customerDao = new CustomerDaoImpl(new BlobStoreDaoImpl(chunkedStore));
+            BlobStoreDao blobStore = new BlobStoreDaoImpl(chunkedStore);
+            Connection conn = JDBCPoolUtils.getConnectionFromDruid();
+
+            // gakki.png已经存过的话只增加引用，在它后面随便接几个字节（PNG会忽略IEND之后的内容），保证是新的内容
+            Path photo = Files.createTempFile("gakki", ".png");
+            Files.copy(Paths.get("gakki.png"), photo, StandardCopyOption.REPLACE_EXISTING);
+            Files.write(photo, UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            BlobTransfer transfer = customerDao.savePhoto(conn, 22, photo);
+            assertNotNull(transfer);
+            System.out.println("上传：" + transfer);
+            String hash = BlobStreams.sha256(photo);
+            StoredBlob stored = blobStore.getStoredBlob(conn, hash);
+            System.out.println(stored);
+            assertTrue(stored.getChunkSize() > 0);
+
+            Path downloaded = Files.createTempFile("gakki4", ".png");
+            System.out.println("并行下载：" + chunkedStore.download(hash, downloaded));
+            assertEquals(hash, BlobStreams.sha256(downloaded));
+
+            // PNG文件头
+            byte[] header = blobStore.readRange(conn, hash, 0, 8);
+            assertArrayEquals(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'}, header);
+
+            Files.delete(downloaded);
+            Files.delete(photo);
+            JDBCUtils.closeResource(conn, null);
         }
     }
 
-    // 从数据库中读取Blob类型的字段
+    // 堆外照片缓存：第二次readPhoto直接返回缓存的只读视图，savePhoto之后缓存失效
+    @Test
+    public void testPhotoCache() throws Exception {
+        PhotoCachingCustomerDao customerDao = new PhotoCachingCustomerDao(new CustomerDaoImpl(),
+                new OffHeapBlobCache<>(64L * 1024 * 1024, OffHeapBlobCache.EvictionPolicy.LFU));
+        Connection conn = JDBCUtils.getConnection();
+
+        ByteBuffer photo = customerDao.readPhoto(conn, 22);
+        System.out.println("第一次：" + photo.remaining() + " 字节，直接内存：" + photo.isDirect());
+        photo = customerDao.readPhoto(conn, 22);
+        System.out.println("第二次：" + photo.remaining() + " 字节，只读：" + photo.isReadOnly());
+
+        customerDao.savePhoto(conn, 22, Paths.get("gakki.png"));
+        System.out.println(customerDao.getCache());
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    // 压缩存储：文本这类能压缩的内容用LZ4压缩后保存，读取时自动解压；PNG本身已经压缩过，直接按原样保存
     @Test
-    public void testSelect(){
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet resultSet = null;
-        InputStream binaryStream = null;
-        FileOutputStream fos = null;
-        try {
-            conn = JDBCUtils.getConnection();
-            String sql = "select id, name, birth, email, photo from customers where id = ?;";
-            ps = conn.prepareStatement(sql);
-            ps.setObject(1, 22);
-
-            // 执行得到结果集
-            resultSet = ps.executeQuery();
-            if (resultSet.next()) {
-                int id = resultSet.getInt("id");
-                String name = resultSet.getString("name");
-                String email = resultSet.getString("email");
-                java.sql.Date birth = resultSet.getDate("birth");
-
-                // 封装进对象
-                Customer customer = new Customer(id, name, email, birth);
-                System.out.println(customer);
-                // 获取Blob对象
-                Blob photo = resultSet.getBlob("photo");
-                // 获取blob对象的二进制流对象
-                binaryStream = photo.getBinaryStream(); // 这里的输入流相当于从 数据库 输入到 Java程序中
-                // 构建输出流对象
-                fos = new FileOutputStream("src/gakki2.png"); // 位置从项目目录下开始
-
-                // 一次读字节流的大小
-                byte[] buf = new byte[1024];
-                int len;
-                while((len = binaryStream.read(buf)) != -1){
-                    // 写入文件中
-                    fos.write(buf, 0, len);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            // 关闭资源
-            try {
-                if (fos != null)
-                    fos.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            try {
-                if (binaryStream != null)
-                    binaryStream.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            JDBCUtils.closeResource(conn, ps, resultSet);
+    public void testCompressedPhoto() throws Exception {
+        CustomerDao customerDao = new CustomerDaoImpl(new BlobStoreDaoImpl(null, BlobCompression.LZ4));
+        BlobStoreDao blobStore = new BlobStoreDaoImpl();
+        Connection conn = JDBCUtils.getConnection();
+
+        Path text = Files.createTempFile("customers", ".csv");
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            builder.append(i).append(",Gakki,Gakki@qq.com,1988-06-11\n");
         }
+        Files.write(text, builder.toString().getBytes(StandardCharsets.UTF_8));
+
+        assertNotNull(customerDao.savePhoto(conn, 22, text));
+        String hash = BlobStreams.sha256(text);
+        StoredBlob stored = blobStore.getStoredBlob(conn, hash);
+        System.out.println(stored);
+        assertEquals(BlobCompression.LZ4.getId(), stored.getCodec());
+
+        Path downloaded = Files.createTempFile("customers", ".csv");
+        System.out.println("下载：" + customerDao.loadPhoto(conn, 22, downloaded));
+        // 解压后和原来的文件一样
+        assertEquals(hash, BlobStreams.sha256(downloaded));
+        Files.delete(downloaded);
+
+        // 第30个字节开始的30个字节
+        byte[] range = blobStore.readRange(conn, hash, 30, 30);
+        assertEquals(builder.substring(30, 60), new String(range, StandardCharsets.UTF_8));
 
+        // 已经压缩过的格式跳过，codec=0
+        assertNotNull(customerDao.savePhoto(conn, 22, Paths.get("gakki.png")));
+        assertEquals(0, blobStore.getStoredBlob(conn, BlobStreams.sha256(Paths.get("gakki.png"))).getCodec());
 
+        Files.delete(text);
+        JDBCUtils.closeResource(conn, null);
     }
 }
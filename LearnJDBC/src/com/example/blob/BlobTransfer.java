@@ -0,0 +1,44 @@
+package com.example.blob;
+
+import java.util.Locale;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 13:10
+ * @Description:
+ *      一次BLOB上传或下载的结果：传输的字节数和耗时，用来看吞吐量（MB/s）
+ */
+public class BlobTransfer {
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    private final long bytes;
+    private final long elapsedNanos;
+
+    public BlobTransfer(long bytes, long elapsedNanos) {
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * 吞吐量，耗时为0时返回0
+     */
+    public double getMegabytesPerSecond() {
+        return elapsedNanos <= 0 ? 0 : bytes / MB / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.2f MB in %.1f ms (%.1f MB/s)",
+                bytes / MB, elapsedNanos / 1e6, getMegabytesPerSecond());
+    }
+}
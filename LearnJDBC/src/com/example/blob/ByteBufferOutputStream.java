@@ -0,0 +1,38 @@
+package com.example.blob;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 17:20
+ * @Description:
+ *      把OutputStream写入的内容放进ByteBuffer（一般是直接内存），和ByteBufferInputStream相反
+ *      写满了抛出IOException，不会扩容
+ */
+class ByteBufferOutputStream extends OutputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferOutputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            throw new IOException("ByteBuffer已经写满：" + buffer.capacity());
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > buffer.remaining()) {
+            throw new IOException("ByteBuffer剩余 " + buffer.remaining() + " 字节，写不下 " + len + " 字节");
+        }
+        buffer.put(b, off, len);
+    }
+}
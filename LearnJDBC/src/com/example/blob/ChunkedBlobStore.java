@@ -0,0 +1,290 @@
+package com.example.blob;
+
+import com.example.utils.ConnectionSource;
+import com.example.utils.JDBCUtils;
+import com.example.utils.StatementCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 16:10
+ * @Description:
+ *      分块存储大的BLOB
+ *      一个50MB的对象一次setBlob上传，整个过程占着一个连接，还可能超过max_allowed_packet；
+ *      这里把对象按chunkSize切成blob_chunk表中的多行，用threads个连接池中的连接并行上传、并行下载
+ *
+ *      create table blob_chunk(
+ *          hash char(64) not null,
+ *          chunk_size int not null,
+ *          seq int not null,
+ *          content mediumblob not null,
+ *          primary key (hash, chunk_size, seq)
+ *      );
+ *      alter table blob_store add column chunk_size int not null default 0,
+ *          add column chunk_hash char(64) null, add key idx_chunk (chunk_hash, chunk_size);
+ *
+ *      对象仍然登记在blob_store中（chunk_size > 0，content为空），引用计数、hash去重都和小对象一样，
+ *      把它交给BlobStoreDaoImpl后，超过chunkSize的文件自动分块上传；按范围读取见BlobStoreDao.readRange
+ *
+ *      分块的key是 (存进去的字节的hash, chunk_size, seq)，登记在blob_store.chunk_hash中：
+ *      压缩存储的对象存的是压缩后的字节，hash和原始内容的不一样，所以同样的内容换了算法或者分块大小，
+ *      分块也是另外一组，不会和之前的混在一起；key相同的分块内容一定相同
+ *
+ *      分块在各自的连接上写入并立即提交，不在调用者的事务中：调用者回滚后分块会留下来，
+ *      下次上传同样的字节、同样的分块大小时insert ignore直接跳过；
+ *      没有上传在进行时可以用下面的语句清理没有登记的分块：
+ *          delete k from blob_chunk k left join blob_store b on b.chunk_hash = k.hash and b.chunk_size = k.chunk_size
+ *          where b.hash is null
+ *
+ *      以前按 (hash, seq) 存的分块表可以这样升级（那时的分块都是按原始内容的hash存的）：
+ *          alter table blob_chunk add column chunk_size int not null default 0 after hash;
+ *          update blob_chunk k join blob_store b on b.hash = k.hash set k.chunk_size = b.chunk_size;
+ *          alter table blob_chunk drop primary key, add primary key (hash, chunk_size, seq);
+ *          update blob_store set chunk_hash = hash where chunk_size > 0;
+ *
+ *      例如：
+ *          ChunkedBlobStore chunked = new ChunkedBlobStore(JDBCPoolUtils::getConnectionFromDruid, 4);
+ *          CustomerDao customerDao = new CustomerDaoImpl(new BlobStoreDaoImpl(chunked));
+ *      threads不要超过连接池的最大连接数，用完要close
+ */
+public class ChunkedBlobStore implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_SIZE = Integer.getInteger("jdbc.blob.chunkSize", 1024 * 1024);
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final ConnectionSource connectionSource;
+    private final int threads;
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+    public ChunkedBlobStore(ConnectionSource connectionSource, int threads) {
+        this(connectionSource, threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param connectionSource 每个线程获取一个连接
+     * @param threads          同时传输的分块数
+     * @param chunkSize        每一块的字节数，要小于max_allowed_packet
+     */
+    public ChunkedBlobStore(ConnectionSource connectionSource, int threads, int chunkSize) {
+        if (threads < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("threads、chunkSize都必须大于0");
+        }
+        this.connectionSource = connectionSource;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        int poolNumber = POOL_NUMBER.incrementAndGet();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "blob-chunk-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @Date: 2026/10/19 16:20
+     * @Description:
+     *      把文件按getChunkSize()分块并行写入blob_chunk，已经存在的分块跳过
+     *      文件内存映射，每一块是映射内存的一个切片，直接交给驱动，不用先复制成byte[]（驱动发送时仍会复制进自己的缓冲区）
+     *      只写分块，不登记到blob_store，见BlobStoreDaoImpl.put
+     *
+     * @Param: [hash 这个文件本身的hash（压缩后的文件就是压缩后的hash），作为分块的key, file]
+     * @return: int 分块数
+     */
+    public int upload(String hash, Path file) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("文件太大，不能超过2GB：" + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int chunks = chunkCount(size, chunkSize);
+            String sql = "insert ignore into blob_chunk(content, hash, chunk_size, seq) values(?, ?, ?, ?)";
+            runParallel(chunks, (conn, seq) -> {
+                ByteBuffer slice = mapped.duplicate();
+                slice.position(seq * chunkSize);
+                slice.limit((int) Math.min(size, (long) (seq + 1) * chunkSize));
+                slice = slice.slice();
+
+                PreparedStatement ps = StatementCache.prepare(conn, sql);
+                try {
+                    ps.setBinaryStream(1, new ByteBufferInputStream(slice), slice.remaining());
+                    ps.setString(2, hash);
+                    ps.setInt(3, chunkSize);
+                    ps.setInt(4, seq);
+                    ps.executeUpdate();
+                } catch (SQLException e) {
+                    StatementCache.discard(conn, sql);
+                    throw e;
+                } finally {
+                    // 不让缓存中的Statement一直引用映射的文件
+                    ps.clearParameters();
+                    StatementCache.release(conn, sql, ps);
+                }
+            });
+            return chunks;
+        }
+    }
+
+    /**
+     * @Date: 2026/10/19 16:30
+     * @Description:
+     *      把分块存储的对象并行下载到文件（覆盖），每个线程把自己的分块写到文件中对应的位置
+     *
+     * @Param: [hash, target]
+     * @return: com.example.blob.BlobTransfer 没有这个hash时返回null
+     */
+    public BlobTransfer download(String hash, Path target) throws Exception {
+        long start = System.nanoTime();
+        long size;
+        int objectChunkSize;
+        int codec;
+        String chunkHash;
+        Connection conn = connectionSource.getConnection();
+        PreparedStatement ps = null;
+        ResultSet resultSet = null;
+        try {
+            ps = conn.prepareStatement("select size, chunk_size, codec, chunk_hash from blob_store where hash = ?");
+            ps.setString(1, hash);
+            resultSet = ps.executeQuery();
+            if (!resultSet.next()) {
+                return null;
+            }
+            size = resultSet.getLong(1);
+            objectChunkSize = resultSet.getInt(2);
+            codec = resultSet.getInt(3);
+            chunkHash = resultSet.getString(4);
+        } finally {
+            JDBCUtils.closeResource(conn, ps, resultSet);
+        }
+        if (objectChunkSize <= 0) {
+            throw new IllegalArgumentException("不是分块存储的对象，用BlobStoreDao.get下载：" + hash);
+        }
+        if (codec != 0) {
+            // 分块里是压缩后的内容，只能从头按顺序解压，不能各自写到文件中的位置
+            throw new IllegalArgumentException("压缩存储的对象，用BlobStoreDao.get下载：" + hash);
+        }
+
+        int chunks = chunkCount(size, objectChunkSize);
+        String sql = "select content from blob_chunk where hash = ? and chunk_size = ? and seq = ?";
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            runParallel(chunks, (c, seq) -> {
+                PreparedStatement chunkPs = StatementCache.prepare(c, sql);
+                ResultSet chunkRs = null;
+                try {
+                    chunkPs.setString(1, chunkHash);
+                    chunkPs.setInt(2, objectChunkSize);
+                    chunkPs.setInt(3, seq);
+                    chunkRs = chunkPs.executeQuery();
+                    if (!chunkRs.next()) {
+                        throw new SQLException("缺少第 " + seq + " 块：" + hash);
+                    }
+                    try (InputStream in = chunkRs.getBinaryStream(1)) {
+                        BlobStreams.copy(in, out, (long) seq * objectChunkSize);
+                    }
+                } catch (SQLException e) {
+                    StatementCache.discard(c, sql);
+                    throw e;
+                } finally {
+                    JDBCUtils.closeResource(null, null, chunkRs);
+                    StatementCache.release(c, sql, chunkPs);
+                }
+            });
+        }
+        return new BlobTransfer(size, System.nanoTime() - start);
+    }
+
+    /**
+     * @Date: 2026/10/19 16:40
+     * @Description:
+     *      最多threads个线程，各自借一个连接，轮流领取下一个分块，直到领完
+     *      一个线程失败后其他线程不再领取新的分块，全部结束后抛出第一个异常
+     *
+     * @Param: [chunks, work]
+     * @return: void
+     */
+    private void runParallel(int chunks, ChunkWork work) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < Math.min(threads, chunks); i++) {
+            futures.add(executor.submit(() -> {
+                Connection conn = connectionSource.getConnection();
+                try {
+                    int seq;
+                    while ((seq = next.getAndIncrement()) < chunks) {
+                        work.transfer(conn, seq);
+                    }
+                } catch (Exception e) {
+                    next.set(chunks);
+                    throw e;
+                } finally {
+                    JDBCUtils.closeResource(conn, null);
+                }
+                return null;
+            }));
+        }
+
+        Exception failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                Exception exception = cause instanceof Exception ? (Exception) cause : e;
+                if (failure == null) {
+                    failure = exception;
+                } else {
+                    failure.addSuppressed(exception);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public static int chunkCount(long size, int chunkSize) {
+        // 空对象也存一块，这样下载时能区分“空”和“缺少分块”
+        return (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+
+    /**
+     * 在一个线程自己的连接上传输一个分块
+     */
+    @FunctionalInterface
+    private interface ChunkWork {
+        void transfer(Connection conn, int seq) throws Exception;
+    }
+}
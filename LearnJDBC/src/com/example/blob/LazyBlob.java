@@ -0,0 +1,298 @@
+package com.example.blob;
+
+import com.example.pool.RoutingConnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 14:25
+ * @Description:
+ *      延迟加载的BLOB字段
+ *      查询Bean时不把BLOB读出来，只记下 查询语句 和 key，用到的时候才用传入的连接查询，边读边用
+ *      getAll这类列表查询即使Bean中有照片属性，也不会再每一行都传输几MB
+ *
+ *      如果查询时已经选了这一列（比如 select * ），数据已经传输过来了，就直接包装已经读出来的字节
+ *
+ *      不可变，可以在多个Bean之间共享；每次读取都会重新查询，需要多次使用的话自己保存getBytes的结果
+ */
+public final class LazyBlob {
+
+    private final String selectSql;
+    // 查询结果中压缩算法id所在的列，为null时不解压
+    private final String codecColumn;
+    private final Object key;
+    // 查询时已经读出来的内容，延迟加载的为null
+    private final byte[] bytes;
+
+    private LazyBlob(String selectSql, String codecColumn, Object key, byte[] bytes) {
+        this.selectSql = selectSql;
+        this.codecColumn = codecColumn;
+        this.key = key;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @Date: 2026/10/19 14:30
+     * @Description:
+     *      延迟加载的BLOB，读取时执行selectSql，key填入每一个占位符，查出多行时按顺序接在一起
+     *
+     * @Param: [selectSql 例如 select photo from customers where id = ?, key]
+     * @return: com.example.blob.LazyBlob
+     */
+    public static LazyBlob deferred(String selectSql, Object key) {
+        return deferred(selectSql, null, key);
+    }
+
+    /**
+     * @Date: 2026/10/19 19:10
+     * @Description:
+     *      和上面一样，只是存的是压缩后的内容，查询结果第一行的codecColumn列是压缩算法的id，读取时边读边解压
+     *
+     * @Param: [selectSql, codecColumn 为null或者空时不解压, key]
+     * @return: com.example.blob.LazyBlob
+     */
+    public static LazyBlob deferred(String selectSql, String codecColumn, Object key) {
+        return new LazyBlob(selectSql, codecColumn == null || codecColumn.isEmpty() ? null : codecColumn, key, null);
+    }
+
+    public static String selectSql(LazyBlobColumn column) {
+        if (!column.query().isEmpty()) {
+            return column.query();
+        }
+        return "select " + column.column() + " from " + column.table() + " where " + column.key() + " = ?";
+    }
+
+    /**
+     * @Date: 2026/10/19 14:32
+     * @Description:
+     *      已经读出来的BLOB，value为null时返回null
+     *
+     * @Param: [value 结果集中的值，byte[]或者Blob]
+     * @return: com.example.blob.LazyBlob
+     */
+    public static LazyBlob loaded(Object value) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return new LazyBlob(null, null, null, (byte[]) value);
+        }
+        if (value instanceof java.sql.Blob) {
+            java.sql.Blob blob = (java.sql.Blob) value;
+            try {
+                return new LazyBlob(null, null, null, blob.getBytes(1, (int) blob.length()));
+            } finally {
+                blob.free();
+            }
+        }
+        throw new SQLException("不能转换成LazyBlob：" + value.getClass().getName());
+    }
+
+    public boolean isLoaded() {
+        return bytes != null;
+    }
+
+    /**
+     * @Date: 2026/10/19 14:35
+     * @Description:
+     *      打开BLOB的输入流，延迟加载的会用conn查询一次，流关闭时释放ResultSet和Statement
+     *      压缩存储的读出来的是解压后的内容
+     *      结果集是流式读取的，流关闭之前conn上不能再执行别的查询
+     *
+     * @Param: [conn 已经读出来的可以传null]
+     * @return: java.io.InputStream 这一行不存在或者BLOB为null时返回null
+     */
+    public InputStream openStream(Connection conn) throws SQLException {
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+        // 读写分离的连接上和BaseDao的查询一样走从库
+        Connection physical = RoutingConnection.forRead(conn);
+        PreparedStatement ps = physical.prepareStatement(selectSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ResultSet resultSet = null;
+        try {
+            // 分块存储时一行是一块，不流式读取的话驱动会先把所有分块读进内存
+            ps.setFetchSize(blobFetchSize(physical));
+            for (int i = 1; i <= parameterCount(selectSql); i++) {
+                ps.setObject(i, key);
+            }
+            resultSet = ps.executeQuery();
+            InputStream in = nextStream(resultSet);
+            if (in == null) {
+                resultSet.close();
+                ps.close();
+                return null;
+            }
+            // 先取出算法，解压器读到的第一行之后结果集就往下移了
+            BlobCodec codec = codecColumn == null ? BlobCompression.NONE : BlobCompression.byId(resultSet.getInt(codecColumn));
+            try {
+                return codec.decompress(new StatementInputStream(in, ps, resultSet));
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            ps.close();
+            throw e;
+        }
+    }
+
+    // MySQL驱动只有fetchSize为Integer.MIN_VALUE时逐行流式读取，开了useCursorFetch时每次取一行
+    private static int blobFetchSize(Connection conn) throws SQLException {
+        DatabaseMetaData dbMetaData = conn.getMetaData();
+        String driverName = dbMetaData.getDriverName();
+        String url = dbMetaData.getURL();
+        if (driverName != null && driverName.contains("MySQL") && (url == null || !url.contains("useCursorFetch=true"))) {
+            return Integer.MIN_VALUE;
+        }
+        return 1;
+    }
+
+    // 下一个不为null的BLOB，没有了返回null
+    private static InputStream nextStream(ResultSet resultSet) throws SQLException {
+        while (resultSet.next()) {
+            InputStream in = resultSet.getBinaryStream(1);
+            if (in != null) {
+                return in;
+            }
+        }
+        return null;
+    }
+
+    private static int parameterCount(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @Date: 2026/10/19 14:40
+     * @Description:
+     *      把BLOB写入文件，见BlobStreams.copy
+     *
+     * @Param: [conn, target]
+     * @return: com.example.blob.BlobTransfer BLOB不存在时返回null
+     */
+    public BlobTransfer writeTo(Connection conn, Path target) throws SQLException, IOException {
+        long start = System.nanoTime();
+        try (InputStream in = openStream(conn)) {
+            if (in == null) {
+                return null;
+            }
+            return new BlobTransfer(BlobStreams.copy(in, target), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @Date: 2026/10/19 14:42
+     * @Description:
+     *      读出全部内容，BLOB不存在时返回null
+     *
+     * @Param: [conn]
+     * @return: byte[]
+     */
+    public byte[] getBytes(Connection conn) throws SQLException, IOException {
+        if (bytes != null) {
+            return bytes.clone();
+        }
+        try (InputStream in = openStream(conn)) {
+            if (in == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return bytes != null ? "LazyBlob[" + bytes.length + " bytes]" : "LazyBlob[" + selectSql + ", " + key + "]";
+    }
+
+
+    /**
+     * 一行读完接着读下一行，关闭时一起关闭ResultSet和PreparedStatement
+     */
+    private static class StatementInputStream extends FilterInputStream {
+        private final PreparedStatement ps;
+        private final ResultSet resultSet;
+
+        StatementInputStream(InputStream in, PreparedStatement ps, ResultSet resultSet) {
+            super(in);
+            this.ps = ps;
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            while ((b = in.read()) == -1 && advance()) {
+                // 换到下一行继续读
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int n;
+            while ((n = in.read(b, off, len)) == -1 && advance()) {
+                // 换到下一行继续读
+            }
+            return n;
+        }
+
+        private boolean advance() throws IOException {
+            try {
+                InputStream next = nextStream(resultSet);
+                if (next == null) {
+                    return false;
+                }
+                in.close();
+                in = next;
+                return true;
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                try {
+                    resultSet.close();
+                    ps.close();
+                } catch (SQLException e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.blob;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 14:20
+ * @Description:
+ *      标在LazyBlob类型的属性上，说明BLOB在哪个表的哪一列、按哪一列定位到行
+ *      BeanRowMapper封装时，结果集中没有这一列但有key列，就创建一个延迟加载的LazyBlob，
+ *      真正读取时才执行 select column from table where key = ? （或者query）
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface LazyBlobColumn {
+
+    String table() default "";
+
+    String column() default "";
+
+    /**
+     * 定位行的列，一般是主键，结果集中必须有这一列
+     */
+    String key() default "id";
+
+    /**
+     * 不为空时代替 select column from table where key = ? ，例如BLOB在另一个表中需要join的时候，
+     * 每个占位符都填入key列的值；查出多行时第一列按顺序接在一起
+     */
+    String query() default "";
+
+    /**
+     * 不为空时，query的结果中这一列是压缩算法的id（见BlobCompression.byId），读取时按第一行的值解压
+     */
+    String codecColumn() default "";
+}
@@ -0,0 +1,495 @@
+package com.example.blob;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 18:10
+ * @Description:
+ *      纯Java的LZ4，不依赖任何库
+ *      每个块内部是标准的LZ4 block格式，块的外面是自己定义的简单封装：
+ *          [4字节 长度，大端][块的内容]
+ *          原始内容最多BLOCK_SIZE字节一块；长度的最高位为1表示这一块压缩后没有变小，存的是原始内容
+ *      没有全局的头和校验和，内容的完整性由blob_store的hash保证
+ *
+ *      压缩用贪心的单次哈希查找，比Deflate快得多，压缩率低一些，适合在上传、下载的路径上实时做
+ */
+class Lz4Codec implements BlobCodec {
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final int RAW_FLAG = 0x80000000;
+    private static final int MIN_MATCH = 4;
+    // 最后5个字节一定是字面量，最后一个匹配至少在结尾前12个字节开始
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 12;
+
+    @Override
+    public int getId() {
+        return 2;
+    }
+
+    @Override
+    public String getName() {
+        return "lz4";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) {
+        return new CompressingOutputStream(out);
+    }
+
+    @Override
+    public OutputStream decompress(OutputStream out) {
+        return new DecompressingOutputStream(out);
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) {
+        return new DecompressingInputStream(in);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * @Date: 2026/10/19 18:15
+     * @Description:
+     *      把src[srcOff, srcOff + srcLen)压缩成一个LZ4 block，dst至少要有maxCompressedLength(srcLen)的空间
+     *
+     * @Param: [src, srcOff, srcLen, dst, dstOff, table 哈希表，长度为 1 << HASH_LOG，会被覆盖]
+     * @return: int 压缩后的长度
+     */
+    static int compressBlock(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int[] table) {
+        int end = srcOff + srcLen;
+        int anchor = srcOff;
+        int dp = dstOff;
+
+        if (srcLen > MF_LIMIT) {
+            Arrays.fill(table, -1);
+            int matchLimit = end - LAST_LITERALS;
+            int mfLimit = end - MF_LIMIT;
+            int sp = srcOff;
+            while (sp < mfLimit) {
+                int sequence = readInt(src, sp);
+                int h = hash(sequence);
+                int ref = table[h];
+                table[h] = sp;
+                if (ref < 0 || sp - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    // 越久找不到匹配，跳得越快，不可压缩的内容不会一个字节一个字节地查
+                    sp += 1 + ((sp - anchor) >>> 6);
+                    continue;
+                }
+                // 向前扩展匹配
+                while (sp > anchor && ref > srcOff && src[sp - 1] == src[ref - 1]) {
+                    sp--;
+                    ref--;
+                }
+                // 向后扩展匹配，不能进入最后5个字节
+                int matchLength = MIN_MATCH;
+                while (sp + matchLength < matchLimit && src[sp + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+
+                dp = writeSequence(src, anchor, sp - anchor, sp - ref, matchLength, dst, dp);
+                sp += matchLength;
+                anchor = sp;
+            }
+        }
+
+        // 剩下的全部作为字面量
+        int literalLength = end - anchor;
+        int tokenPos = dp++;
+        dp = writeLength(literalLength, dst, dp);
+        dst[tokenPos] = (byte) (Math.min(literalLength, 15) << 4);
+        System.arraycopy(src, anchor, dst, dp, literalLength);
+        return dp + literalLength - dstOff;
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLength, int offset, int matchLength,
+                                     byte[] dst, int dp) {
+        int tokenPos = dp++;
+        dp = writeLength(literalLength, dst, dp);
+        System.arraycopy(src, literalStart, dst, dp, literalLength);
+        dp += literalLength;
+
+        dst[dp++] = (byte) offset;
+        dst[dp++] = (byte) (offset >>> 8);
+
+        int extra = matchLength - MIN_MATCH;
+        dp = writeLength(extra, dst, dp);
+        dst[tokenPos] = (byte) ((Math.min(literalLength, 15) << 4) | Math.min(extra, 15));
+        return dp;
+    }
+
+    // 长度 >= 15 时，token中放15，剩下的用若干个255和最后一个 <255 的字节表示
+    private static int writeLength(int length, byte[] dst, int dp) {
+        if (length >= 15) {
+            int rest = length - 15;
+            while (rest >= 255) {
+                dst[dp++] = (byte) 255;
+                rest -= 255;
+            }
+            dst[dp++] = (byte) rest;
+        }
+        return dp;
+    }
+
+    /**
+     * @Date: 2026/10/19 18:20
+     * @Description:
+     *      解压一个LZ4 block，数据不合法时抛出IOException，不会越界读写
+     *
+     * @Param: [src, srcOff, srcLen, dst, dstOff, dstMax dst最多能写多少]
+     * @return: int 解压后的长度
+     */
+    static int decompressBlock(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstMax) throws IOException {
+        int sp = srcOff;
+        int srcEnd = srcOff + srcLen;
+        int dp = dstOff;
+        int dstEnd = dstOff + dstMax;
+
+        while (true) {
+            if (sp >= srcEnd) {
+                throw new IOException("LZ4数据不完整");
+            }
+            int token = src[sp++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == 15) {
+                int b;
+                do {
+                    if (sp >= srcEnd) {
+                        throw new IOException("LZ4数据不完整");
+                    }
+                    b = src[sp++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > srcEnd - sp || literalLength > dstEnd - dp) {
+                throw new IOException("LZ4字面量长度不合法");
+            }
+            System.arraycopy(src, sp, dst, dp, literalLength);
+            sp += literalLength;
+            dp += literalLength;
+
+            // 最后一个序列只有字面量
+            if (sp == srcEnd) {
+                return dp - dstOff;
+            }
+
+            if (srcEnd - sp < 2) {
+                throw new IOException("LZ4数据不完整");
+            }
+            int offset = (src[sp] & 0xFF) | ((src[sp + 1] & 0xFF) << 8);
+            sp += 2;
+            if (offset == 0 || offset > dp - dstOff) {
+                throw new IOException("LZ4匹配偏移不合法：" + offset);
+            }
+
+            int matchLength = token & 15;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    if (sp >= srcEnd) {
+                        throw new IOException("LZ4数据不完整");
+                    }
+                    b = src[sp++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > dstEnd - dp) {
+                throw new IOException("LZ4匹配长度不合法");
+            }
+
+            int ref = dp - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(dst, ref, dst, dp, matchLength);
+            } else {
+                // 重叠的匹配（比如连续重复的字节）只能逐个复制
+                for (int i = 0; i < matchLength; i++) {
+                    dst[dp + i] = dst[ref + i];
+                }
+            }
+            dp += matchLength;
+        }
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int readHeader(byte[] b) {
+        return ((b[0] & 0xFF) << 24) | ((b[1] & 0xFF) << 16) | ((b[2] & 0xFF) << 8) | (b[3] & 0xFF);
+    }
+
+    private static void checkBlockLength(int length, boolean raw) throws IOException {
+        if (length > (raw ? BLOCK_SIZE : maxCompressedLength(BLOCK_SIZE))) {
+            throw new IOException("LZ4块长度不合法：" + length);
+        }
+    }
+
+
+    /**
+     * 攒够一块就压缩写出，close时写出最后不满的一块
+     */
+    private static class CompressingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[4 + maxCompressedLength(BLOCK_SIZE)];
+        private final int[] table = new int[1 << HASH_LOG];
+        private int length;
+        private boolean closed;
+
+        CompressingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (length == BLOCK_SIZE) {
+                flushBlock();
+            }
+            block[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (length == BLOCK_SIZE) {
+                    flushBlock();
+                }
+                int n = Math.min(len, BLOCK_SIZE - length);
+                System.arraycopy(b, off, block, length, n);
+                length += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (length == 0) {
+                return;
+            }
+            int n = compressBlock(block, 0, length, compressed, 4, table);
+            int header;
+            if (n < length) {
+                header = n;
+            } else {
+                // 没有变小，存原始内容
+                System.arraycopy(block, 0, compressed, 4, length);
+                n = length;
+                header = length | RAW_FLAG;
+            }
+            compressed[0] = (byte) (header >>> 24);
+            compressed[1] = (byte) (header >>> 16);
+            compressed[2] = (byte) (header >>> 8);
+            compressed[3] = (byte) header;
+            out.write(compressed, 0, 4 + n);
+            length = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                flushBlock();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * 写入的字节先凑齐4字节的头，再凑齐一整块，解压后写到out
+     */
+    private static class DecompressingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] header = new byte[4];
+        private final byte[] block = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private final byte[] decompressed = new byte[BLOCK_SIZE];
+        private int headerLength;
+        // 当前块的长度，还在读头时为-1
+        private int blockLength = -1;
+        private boolean raw;
+        private int filled;
+        private boolean closed;
+
+        DecompressingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (blockLength < 0) {
+                    int n = Math.min(len, 4 - headerLength);
+                    System.arraycopy(b, off, header, headerLength, n);
+                    headerLength += n;
+                    off += n;
+                    len -= n;
+                    if (headerLength == 4) {
+                        int value = readHeader(header);
+                        raw = (value & RAW_FLAG) != 0;
+                        blockLength = value & ~RAW_FLAG;
+                        checkBlockLength(blockLength, raw);
+                        filled = 0;
+                        headerLength = 0;
+                    }
+                    continue;
+                }
+                int n = Math.min(len, blockLength - filled);
+                System.arraycopy(b, off, block, filled, n);
+                filled += n;
+                off += n;
+                len -= n;
+                if (filled == blockLength) {
+                    if (raw) {
+                        out.write(block, 0, blockLength);
+                    } else {
+                        out.write(decompressed, 0, decompressBlock(block, 0, blockLength, decompressed, 0, BLOCK_SIZE));
+                    }
+                    blockLength = -1;
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (blockLength >= 0 || headerLength > 0) {
+                    throw new EOFException("LZ4数据在块的中间结束了");
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * 一次读一整块并解压，再从解压后的缓冲区中读
+     */
+    private static class DecompressingInputStream extends InputStream {
+        private final InputStream in;
+        private final byte[] header = new byte[4];
+        private final byte[] block = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private final byte[] decompressed = new byte[BLOCK_SIZE];
+        private int position;
+        private int limit;
+
+        DecompressingInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return decompressed[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(decompressed, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - position;
+        }
+
+        // 读入并解压下一块，没有了返回false
+        private boolean fill() throws IOException {
+            int n = readFully(header, 4);
+            if (n == 0) {
+                return false;
+            }
+            if (n < 4) {
+                throw new EOFException("LZ4数据在块头的中间结束了");
+            }
+            int value = readHeader(header);
+            int blockLength = value & ~RAW_FLAG;
+            checkBlockLength(blockLength, (value & RAW_FLAG) != 0);
+            if (readFully(block, blockLength) < blockLength) {
+                throw new EOFException("LZ4数据在块的中间结束了");
+            }
+            if ((value & RAW_FLAG) != 0) {
+                System.arraycopy(block, 0, decompressed, 0, blockLength);
+                limit = blockLength;
+            } else {
+                limit = decompressBlock(block, 0, blockLength, decompressed, 0, BLOCK_SIZE);
+            }
+            position = 0;
+            // 空块（长度为0）继续读下一块
+            return limit > 0 || fill();
+        }
+
+        private int readFully(byte[] buffer, int length) throws IOException {
+            int filled = 0;
+            while (filled < length) {
+                int n = in.read(buffer, filled, length - filled);
+                if (n < 0) {
+                    break;
+                }
+                filled += n;
+            }
+            return filled;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
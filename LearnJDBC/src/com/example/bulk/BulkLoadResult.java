@@ -0,0 +1,72 @@
+package com.example.bulk;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 13:25
+ * @Description:
+ *      一次并行导入的汇总结果
+ */
+public class BulkLoadResult {
+
+    private final long committedRows;
+    private final int committedPartitions;
+    private final List<PartitionFailure> failures;
+    private final long elapsedNanos;
+
+    public BulkLoadResult(long committedRows, int committedPartitions, List<PartitionFailure> failures, long elapsedNanos) {
+        this.committedRows = committedRows;
+        this.committedPartitions = committedPartitions;
+        this.failures = failures;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getCommittedRows() {
+        return committedRows;
+    }
+
+    public int getCommittedPartitions() {
+        return committedPartitions;
+    }
+
+    public List<PartitionFailure> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @Date: 2026/10/18 13:26
+     * @Description:
+     *      所有线程合计的吞吐量，只统计已经提交的行
+     *
+     * @Param: []
+     * @return: double
+     */
+    public double getRowsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return committedRows * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkLoadResult{" +
+                "committedRows=" + committedRows +
+                ", committedPartitions=" + committedPartitions +
+                ", failedPartitions=" + failures.size() +
+                ", elapsedMillis=" + getElapsedMillis() +
+                ", rowsPerSecond=" + String.format("%.1f", getRowsPerSecond()) +
+                '}';
+    }
+}
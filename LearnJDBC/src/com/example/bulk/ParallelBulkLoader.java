@@ -0,0 +1,204 @@
+package com.example.bulk;
+
+import com.example.dao.AdaptiveBatchSizer;
+import com.example.utils.ConnectionSource;
+import com.example.utils.JDBCUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 13:30
+ * @Description:
+ *      并行分区批量导入
+ *      InsertTest.test2 是一个线程、一个连接把所有数据灌进去，数据库的并行写入能力完全没用上
+ *
+ *      这里的做法：
+ *          1. 生产者（调用load的线程）从输入中按 partitionSize 切出一个个分区
+ *          2. 分区放进有界队列，队列满了生产者就阻塞等待，内存里最多只有 threads + queueCapacity 个分区
+ *          3. threads 个工作线程各自从连接池借连接，每个分区 批处理 + 一个事务 提交
+ *          4. 某个分区失败只回滚这个分区，记录下来继续导其他分区，已经提交的数据不受影响
+ *
+ *      连接通过ConnectionSource获取，例如 JDBCPoolUtils::getConnectionFromDruid，
+ *      注意threads不要超过连接池的最大连接数（druid.properties中maxActive=10）
+ */
+public class ParallelBulkLoader {
+
+    public static final int DEFAULT_PARTITION_SIZE = 100000;
+
+    private final ConnectionSource connectionSource;
+    private final int threads;
+    private final int partitionSize;
+    private final int queueCapacity;
+    // 所有工作线程共用一个，各线程的耗时都会反馈进来
+    private final AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer();
+
+    public ParallelBulkLoader(ConnectionSource connectionSource, int threads) {
+        this(connectionSource, threads, DEFAULT_PARTITION_SIZE, threads);
+    }
+
+    public ParallelBulkLoader(ConnectionSource connectionSource, int threads, int partitionSize, int queueCapacity) {
+        if (threads < 1 || partitionSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("threads、partitionSize、queueCapacity都必须大于0");
+        }
+        this.connectionSource = connectionSource;
+        this.threads = threads;
+        this.partitionSize = partitionSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @Date: 2026/10/18 13:40
+     * @Description:
+     *      把rows中的每一行作为占位符参数，并行执行sql
+     *      会阻塞到所有分区都处理完为止
+     *
+     * @Param: [sql 批处理的SQL，最后不能加分号, rows 每一行的占位符参数]
+     * @return: com.example.bulk.BulkLoadResult
+     */
+    public BulkLoadResult load(String sql, Iterator<Object[]> rows) throws InterruptedException {
+        long start = System.nanoTime();
+
+        AtomicLong committedRows = new AtomicLong();
+        AtomicInteger committedPartitions = new AtomicInteger();
+        ConcurrentLinkedQueue<PartitionFailure> failures = new ConcurrentLinkedQueue<>();
+
+        // 信号量限制在途的分区数，保证生产者不会无限制地切分区把内存撑爆
+        // 工作线程释放信号量之后到取下一个任务之间有一个空档，所以队列容量按信号量总数给，保证不会被拒绝
+        Semaphore permits = new Semaphore(threads + queueCapacity);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(threads + queueCapacity), new LoaderThreadFactory());
+
+        try {
+            int partitionIndex = 0;
+            long rowIndex = 0;
+            while (rows.hasNext()) {
+                List<Object[]> partition = new ArrayList<>(partitionSize);
+                while (rows.hasNext() && partition.size() < partitionSize) {
+                    partition.add(rows.next());
+                }
+
+                permits.acquire();
+                final int index = partitionIndex++;
+                final long firstRowIndex = rowIndex;
+                rowIndex += partition.size();
+                executor.execute(() -> {
+                    try {
+                        loadPartition(sql, partition);
+                        committedRows.addAndGet(partition.size());
+                        committedPartitions.incrementAndGet();
+                    } catch (Exception e) {
+                        failures.add(new PartitionFailure(index, firstRowIndex, partition, e));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } finally {
+            // 不再接收新分区，等已经提交的分区全部跑完
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        List<PartitionFailure> failureList = new ArrayList<>(failures);
+        failureList.sort((a, b) -> Integer.compare(a.getPartitionIndex(), b.getPartitionIndex()));
+        return new BulkLoadResult(committedRows.get(), committedPartitions.get(),
+                Collections.unmodifiableList(failureList), System.nanoTime() - start);
+    }
+
+    /**
+     * @Date: 2026/10/18 13:50
+     * @Description:
+     *      一个分区一个事务：关闭自动提交 -> 分批executeBatch -> 提交，出错回滚后抛出
+     *
+     * @Param: [sql, partition]
+     * @return: void
+     */
+    private void loadPartition(String sql, List<Object[]> partition) throws Exception {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        try {
+            conn = connectionSource.getConnection();
+            conn.setAutoCommit(false);
+            ps = conn.prepareStatement(sql);
+
+            int pending = 0;
+            int batchSize = batchSizer.getBatchSize();
+            for (Object[] args : partition) {
+                for (int i = 0; i < args.length; i++) {
+                    ps.setObject(i + 1, args[i]);
+                }
+                ps.addBatch();
+                pending++;
+
+                if (pending >= batchSize) {
+                    executeBatch(ps, pending);
+                    pending = 0;
+                    batchSize = batchSizer.getBatchSize();
+                }
+            }
+            if (pending > 0) {
+                executeBatch(ps, pending);
+            }
+
+            conn.commit();
+        } catch (Exception e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    e.addSuppressed(ex);
+                }
+            }
+            throw e;
+        } finally {
+            // 连接池中的连接还回去之前要恢复自动提交
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            JDBCUtils.closeResource(conn, ps);
+        }
+    }
+
+    private void executeBatch(PreparedStatement ps, int rows) throws SQLException {
+        long start = System.nanoTime();
+        ps.executeBatch();
+        batchSizer.record(rows, System.nanoTime() - start);
+        ps.clearBatch();
+    }
+
+    /**
+     * 工作线程设置为守护线程，并带上编号方便排查
+     */
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "bulk-loader-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
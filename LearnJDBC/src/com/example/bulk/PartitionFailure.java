@@ -0,0 +1,53 @@
+package com.example.bulk;
+
+import java.util.List;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 13:20
+ * @Description:
+ *      一个分区导入失败的记录
+ *      每个分区是一个独立的事务，失败的分区已经回滚，不影响其他已经提交的分区
+ *      保留了这个分区的原始数据，方便上层修正后重新导入
+ */
+public class PartitionFailure {
+
+    private final int partitionIndex;
+    // 该分区第一行在整个输入中的下标，从0开始
+    private final long firstRowIndex;
+    private final List<Object[]> rows;
+    private final Exception cause;
+
+    public PartitionFailure(int partitionIndex, long firstRowIndex, List<Object[]> rows, Exception cause) {
+        this.partitionIndex = partitionIndex;
+        this.firstRowIndex = firstRowIndex;
+        this.rows = rows;
+        this.cause = cause;
+    }
+
+    public int getPartitionIndex() {
+        return partitionIndex;
+    }
+
+    public long getFirstRowIndex() {
+        return firstRowIndex;
+    }
+
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    public Exception getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionFailure{" +
+                "partitionIndex=" + partitionIndex +
+                ", rows=[" + firstRowIndex + ", " + (firstRowIndex + rows.size()) + ")" +
+                ", cause=" + cause +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.connection;
+
+import com.example.pool.BagPoolDataSource;
+import com.example.utils.JDBCPoolUtils;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 17:30
+ * @Description:
+ *      使用自己实现的BagPool连接池
+ */
+public class BagPoolTest {
+
+    // 方式一：使用配置文件直接创建
+    @Test
+    public void testGetConnection() throws Exception {
+        Properties pros = new Properties();
+        InputStream resourceAsStream = ClassLoader.getSystemClassLoader().getResourceAsStream("bagpool.properties");
+        pros.load(resourceAsStream);
+
+        BagPoolDataSource dataSource = new BagPoolDataSource(pros);
+
+        Connection conn = dataSource.getConnection();
+        System.out.println(conn);
+
+        // 关闭连接（还回连接池）
+        conn.close();
+        dataSource.close();
+    }
+
+    // 方式二：通过JDBCPoolUtils获取，多个线程同时借还
+    @Test
+    public void testConcurrentBorrow() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < 64; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    Connection conn = JDBCPoolUtils.getConnectionFromBagPool();
+                    conn.close();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        System.out.println("花费的时间为：" + (System.currentTimeMillis() - start));
+
+        executor.shutdown();
+        JDBCPoolUtils.shutdown(JDBCPoolUtils.BAG_POOL);
+    }
+}
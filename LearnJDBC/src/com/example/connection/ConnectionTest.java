@@ -1,5 +1,6 @@
 package com.example.connection;
 
+import com.example.utils.ConnectionFactory;
 import org.junit.Test;
 
 import java.io.InputStream;
@@ -157,4 +158,18 @@ public class ConnectionTest {
         // 6. 关闭连接
         connection.close();
     }
+
+    // 方式六：配置文件只解析一次、驱动只加载一次，由ConnectionFactory完成，JDBCUtils.getConnection用的就是它
+    @Test
+    public void testConnection6() throws Exception {
+        ConnectionFactory factory = ConnectionFactory.getDefault();
+        System.out.println("使用连接池：" + factory.isPooled() + "，监视配置文件：" + factory.isWatching());
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            Connection connection = factory.getConnection();
+            connection.close();
+        }
+        System.out.println("获取100次连接花费的时间为：" + (System.currentTimeMillis() - start));
+    }
 }
@@ -1,6 +1,9 @@
 package com.example.connection;
 
 import com.alibaba.druid.pool.DruidDataSourceFactory;
+import com.example.pool.LeakDetector;
+import com.example.pool.PoolMetricsSnapshot;
+import com.example.utils.JDBCPoolUtils;
 import com.mchange.v2.c3p0.DataSources;
 import org.junit.Test;
 
@@ -8,8 +11,12 @@ import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
+import static org.junit.Assert.*;
+
 /**
  * @author: Yi-27
  * @projectName: LearnJDBC
@@ -40,4 +47,69 @@ public class DruidTest {
         DataSources.destroy(dataSource);
     }
 
+    // 通过JDBCPoolUtils延迟创建Druid连接池，并行预热
+    @Test
+    public void testPrewarm() throws Exception {
+        System.out.println("预热前是否已创建：" + JDBCPoolUtils.isInitialized(JDBCPoolUtils.DRUID));
+
+        long start = System.currentTimeMillis();
+        int count = JDBCPoolUtils.prewarm(JDBCPoolUtils.DRUID, 10);
+        System.out.println("预热了 " + count + " 个连接，花费的时间为：" + (System.currentTimeMillis() - start));
+
+        // c3p0和dbcp没有用到，就不会创建
+        System.out.println("c3p0是否已创建：" + JDBCPoolUtils.isInitialized(JDBCPoolUtils.C3P0));
+        System.out.println("dbcp是否已创建：" + JDBCPoolUtils.isInitialized(JDBCPoolUtils.DBCP));
+
+        JDBCPoolUtils.shutdown(JDBCPoolUtils.DRUID);
+    }
+
+    // 连接池的指标，也可以用jconsole查看 com.example.pool:type=PoolMetrics 下的MBean
+    @Test
+    public void testMetrics() throws Exception {
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            connections.add(JDBCPoolUtils.getConnectionFromDruid());
+        }
+        PoolMetricsSnapshot snapshot = JDBCPoolUtils.getMetrics(JDBCPoolUtils.DRUID).snapshot();
+        System.out.println(snapshot);
+        System.out.println("借连接等待时间p99（纳秒）：" + snapshot.getBorrowWaitP99Nanos());
+
+        for (Connection conn : connections) {
+            conn.close();
+        }
+        // 所有连接池的指标，没有创建的连接池gauges都是-1
+        JDBCPoolUtils.getMetricsSnapshots().forEach(System.out::println);
+
+        JDBCPoolUtils.shutdown(JDBCPoolUtils.DRUID);
+    }
+
+    // 借了不还，泄漏检测报告出借出的位置，配置了回收时间的话强制回收
+    @Test
+    public void testLeakDetector() throws Exception {
+        LeakDetector.setThresholdMillis(500);
+        LeakDetector.setStackSampleRate(1);
+        LeakDetector leakDetector = JDBCPoolUtils.getMetrics(JDBCPoolUtils.DRUID).getLeakDetector();
+        // 前面的测试借过连接，后台线程已经在定期检查，可能比下面手动的scan先发现，所以只看计数的变化
+        PoolMetricsSnapshot before = JDBCPoolUtils.getMetrics(JDBCPoolUtils.DRUID).snapshot();
+
+        Connection leaked = JDBCPoolUtils.getConnectionFromDruid();
+        Thread.sleep(600);
+        leakDetector.scan(); // System.err中打印出了上面这一行
+        PoolMetricsSnapshot snapshot = JDBCPoolUtils.getMetrics(JDBCPoolUtils.DRUID).snapshot();
+        // 不管是谁发现的，同一次借出只报告一次
+        assertEquals(1, snapshot.getLeakCount() - before.getLeakCount());
+        assertEquals(1, snapshot.getSuspectedLeaks());
+
+        LeakDetector.setReclaimMillis(500);
+        leakDetector.scan();
+        assertTrue(leaked.isClosed());
+        snapshot = JDBCPoolUtils.getMetrics(JDBCPoolUtils.DRUID).snapshot();
+        System.out.println(snapshot);
+        assertEquals(1, snapshot.getReclaimedCount() - before.getReclaimedCount());
+
+        LeakDetector.setReclaimMillis(-1);
+        LeakDetector.setThresholdMillis(30000);
+        LeakDetector.setStackSampleRate(0.1);
+        JDBCPoolUtils.shutdown(JDBCPoolUtils.DRUID);
+    }
 }
@@ -1,5 +1,8 @@
 package com.example.crud;
 
+import com.example.bulk.BulkLoadResult;
+import com.example.bulk.ParallelBulkLoader;
+import com.example.utils.JDBCPoolUtils;
 import com.example.utils.JDBCUtils;
 import org.junit.Test;
 
@@ -7,6 +10,7 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -136,5 +140,33 @@ public class InsertTest {
         }
     }
 
+    // 方式五：多个连接池连接并行导入，每个分区一个事务
+    @Test
+    public void test4() throws InterruptedException {
+        final int total = 1000000;
+        // 按需生成数据，不需要事先把所有行放进内存
+        Iterator<Object[]> rows = new Iterator<Object[]>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < total;
+            }
+
+            @Override
+            public Object[] next() {
+                i++;
+                return new Object[]{"name_" + i};
+            }
+        };
+
+        // druid.properties中maxActive=10，线程数不要超过它
+        ParallelBulkLoader loader = new ParallelBulkLoader(JDBCPoolUtils::getConnectionFromDruid, 8, 50000, 8);
+        BulkLoadResult result = loader.load("insert into goods(`NAME`) values(?)", rows);
+
+        System.out.println(result);
+        result.getFailures().forEach(System.out::println);
+    }
+
 
 }
@@ -0,0 +1,97 @@
+package com.example.dao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 11:30
+ * @Description:
+ *      自适应的批处理大小
+ *      InsertTest里每批的条数是写死的（500、1000000），攒得太少网络往返多，攒得太多单批太慢、包太大
+ *      这里根据每一批实际花费的时间来调整下一批的大小，让每一批的耗时尽量接近目标耗时
+ *
+ *      调整规则：
+ *          1. 由本批的 耗时/条数 估算出单条耗时，再算出 目标耗时 内能处理的理想条数
+ *          2. 新的大小取 当前大小 与 理想条数 的平均值，避免一次抖动就大起大落
+ *          3. 每次最多翻倍或减半，并且限制在 [minSize, maxSize] 之间
+ */
+public class AdaptiveBatchSizer {
+
+    // 默认初始值沿用InsertTest中的500
+    public static final int DEFAULT_INITIAL_SIZE = 500;
+    public static final int DEFAULT_MIN_SIZE = 16;
+    public static final int DEFAULT_MAX_SIZE = 50000;
+    // 每一批的目标耗时
+    public static final long DEFAULT_TARGET_MILLIS = 100;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetNanos;
+
+    // 可能被多个线程共享（同一个Dao对象），只做简单的可见性保证，偶尔的覆盖无所谓
+    private volatile int batchSize;
+
+    public AdaptiveBatchSizer() {
+        this(DEFAULT_INITIAL_SIZE, DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_TARGET_MILLIS);
+    }
+
+    public AdaptiveBatchSizer(int initialSize, int minSize, int maxSize, long targetMillis) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("批大小范围不合法：[" + minSize + ", " + maxSize + "]");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.batchSize = clamp(initialSize, minSize, maxSize);
+    }
+
+    /**
+     * @Date: 2026/10/18 11:35
+     * @Description:
+     *      下一批应该攒多少条
+     *
+     * @Param: []
+     * @return: int
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @Date: 2026/10/18 11:36
+     * @Description:
+     *      记录一批的执行情况，并据此调整下一批的大小
+     *
+     * @Param: [rows 本批的条数, elapsedNanos 本批executeBatch花费的时间]
+     * @return: void
+     */
+    public void record(int rows, long elapsedNanos) {
+        if (rows <= 0) {
+            return;
+        }
+        int current = batchSize;
+        // 耗时太短测不准时，按1纳秒算，相当于直接翻倍
+        long perRowNanos = Math.max(1, elapsedNanos / rows);
+        long ideal = targetNanos / perRowNanos;
+
+        long next = (current + ideal) / 2;
+        next = Math.max(next, current / 2);
+        next = Math.min(next, (long) current * 2);
+        batchSize = clamp(next, minSize, maxSize);
+    }
+
+    private static int clamp(long value, int min, int max) {
+        return (int) Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveBatchSizer{" +
+                "batchSize=" + batchSize +
+                ", minSize=" + minSize +
+                ", maxSize=" + maxSize +
+                ", targetMillis=" + TimeUnit.NANOSECONDS.toMillis(targetNanos) +
+                '}';
+    }
+}
@@ -1,13 +1,36 @@
 package com.example.dao;
 
+import com.example.blob.BlobStreams;
+import com.example.blob.BlobTransfer;
+import com.example.dao.event.DaoEvents;
+import com.example.dao.event.DaoOperationTrace;
+import com.example.dao.mapper.BeanRowMapper;
+import com.example.dao.mapper.RowMapperCache;
+import com.example.pool.RoutingConnection;
 import com.example.utils.JDBCUtils;
+import com.example.utils.StatementCache;
 
-import java.lang.reflect.Field;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author: Yi-27
@@ -58,6 +81,7 @@ public abstract class BaseDao<T> {
      * @Description:
      *  通用的查询操作，用于返回数据表中的一些数据 这里考虑到事务
      *  这里不自己获取连接，用传过来的连接，并且不再这里关闭，让上层自己关
+     *  每次调用生成一个JFR事件，见DaoEvents
      *
      * @Param: [conn, clazz, sql, args]
      * @return: java.util.List<T>
@@ -65,10 +89,15 @@ public abstract class BaseDao<T> {
     public List<T> commonQuery(Connection conn, String sql, Object ...args){
         PreparedStatement ps = null;
         ResultSet resultSet = null;
+        DaoOperationTrace trace = DaoEvents.begin("commonQuery", clazz);
+        long rows = 0;
+        boolean failed = false;
 
         try {
+            // 读写分离的连接上查询走从库，见RoutingConnection
+            conn = RoutingConnection.forRead(conn);
             // 2. 预编译SQL语句
-            ps = conn.prepareStatement(sql);
+            ps = StatementCache.prepare(conn, sql); // 同一个连接上的同一条SQL只预编译一次
             // 3. 向占位符填入数据 没有占位符这里就不用考虑了
             for (int i = 0; i < args.length; i++) {
                 ps.setObject(i+1, args[i]);
@@ -76,55 +105,154 @@ public abstract class BaseDao<T> {
 
             // 4. 执行查询语句
             resultSet = ps.executeQuery();
+            trace.executed(); // 之后的时间都算在封装对象上
             // 5. 处理结果集
             if (resultSet != null){
                 // 获取结果集的元数据
                 ResultSetMetaData metaData = resultSet.getMetaData();
+                // 根据 类 和 结果集的列 获取缓存好的封装器，每条SQL只解析一次属性，而不是每一行每一列都反射一次
+                BeanRowMapper<T> rowMapper = RowMapperCache.getMapper(clazz, metaData);
                 // 结果集不为空的时候，才会创建返回的List
                 List<T> tList = new ArrayList<>();
 
                 while(resultSet.next()){
-                    // 这时不能直接通过new来获取实现类对象
-                    // 那么就用反射
-                    T t = clazz.newInstance();
-
-                    // metaData.getColumnCount()：从结果集元数据中提取出字段个数
-                    for (int i = 0; i < metaData.getColumnCount(); i++) {
-                        // 从结果集中，提取字段的值
-                        Object columnValue = resultSet.getObject(i + 1);// 由于不知道是什么类型，所以用Object
-
-                        // 从结果集元数据中，提取字段的字段名，与值对应
-                        // getColumnName()：获取列名 ---不推荐使用
-                        // getColumnLabel()：获取别名，当sql语句没有别名时，这样获取的就是列名
-//                        String columnName = metaData.getColumnName(i + 1);
-                        String columnLabel = metaData.getColumnLabel(i + 1);
-
-                        // 通过反射给创建的这个 t 对象属性赋值
-                        // 获取当前的字段对应类中的属性镀锡
-                        Field field = clazz.getDeclaredField(columnLabel);
-                        // 防止该属性是私有属性导致无法set成功
-                        field.setAccessible(true);
-                        field.set(t, columnValue); // 给指定 t 对象set指定属性的值
-                    }
+                    // 由封装器创建对象并给属性赋值
+                    T t = rowMapper.mapRow(resultSet);
 
                     // 完成一个 t 的属性填充，就向返回tList中添加
                     tList.add(t);
                 }
 
+                rows = tList.size();
                 // 最后返回查询后封装的数据
                 return tList;
             }
         } catch (Exception e) {
+            failed = true;
+            StatementCache.discard(conn, sql);
             e.printStackTrace();
         }finally {
             // 6. 关闭资源，这个地方也要关闭
-            JDBCUtils.closeResource(null, ps, resultSet);
+            JDBCUtils.closeResource(null, null, resultSet);
+            StatementCache.release(conn, sql, ps); // 缓存中的Statement不关闭，留着下次用
+            trace.commit(conn, sql, args.length, rows, failed);
         }
 
         return null; // 没有查询到数据返回null，一定要放在最后
     }
 
 
+    /**
+     * @Date: 2026/10/18 10:35
+     * @Description:
+     *  流式的通用查询，不再把整个结果集装进List里，而是边读边封装
+     *  对于MySQL会开启驱动的流式读取，内存占用和表的大小无关，第一行读到就可以开始处理
+     *
+     *  注意：
+     *      1. 返回的Stream必须关闭（推荐try-with-resources），关闭时会释放ResultSet和PreparedStatement
+     *         数据读完时也会自动释放，但提前结束（比如limit、findFirst）就只能靠close了
+     *      2. MySQL流式读取期间，这个连接不能再执行其他语句，直到Stream关闭
+     *      3. 连接同样由上层自己关
+     *
+     * @Param: [conn, sql, args]
+     * @return: java.util.stream.Stream<T>
+     */
+    public Stream<T> streamQuery(Connection conn, String sql, Object ...args) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet resultSet = null;
+        try {
+            conn = RoutingConnection.forRead(conn);
+            // 流式读取要求 只能向前 + 只读 的结果集
+            ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(streamingFetchSize(conn));
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i+1, args[i]);
+            }
+
+            resultSet = ps.executeQuery();
+            BeanRowMapper<T> rowMapper = RowMapperCache.getMapper(clazz, resultSet.getMetaData());
+
+            final PreparedStatement statement = ps;
+            final ResultSet rs = resultSet;
+            Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        if (!rs.next()) {
+                            // 读完了就顺手把资源释放掉
+                            JDBCUtils.closeResource(null, statement, rs);
+                            return false;
+                        }
+                        action.accept(rowMapper.mapRow(rs));
+                        return true;
+                    } catch (SQLException e) {
+                        JDBCUtils.closeResource(null, statement, rs);
+                        throw new UncheckedSQLException(e);
+                    }
+                }
+            };
+
+            return StreamSupport.stream(spliterator, false)
+                    .onClose(() -> JDBCUtils.closeResource(null, statement, rs));
+        } catch (SQLException | RuntimeException e) {
+            // 还没交给调用者之前出错，这里负责关闭
+            JDBCUtils.closeResource(null, ps, resultSet);
+            throw e;
+        }
+    }
+
+
+    /**
+     * @Date: 2026/10/18 10:50
+     * @Description:
+     *  流式查询的回调写法，每封装好一行就交给action处理，处理完自动释放资源
+     *
+     * @Param: [conn, action, sql, args]
+     * @return: long 处理的行数
+     */
+    public long queryForEach(Connection conn, Consumer<? super T> action, String sql, Object ...args) throws SQLException {
+        long count = 0;
+        try (Stream<T> stream = streamQuery(conn, sql, args)) {
+            Iterator<T> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                count++;
+            }
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        }
+        return count;
+    }
+
+
+    /**
+     * @Date: 2026/10/18 10:55
+     * @Description:
+     *  流式读取时使用的fetchSize
+     *      MySQL Connector/J：默认只有 Integer.MIN_VALUE 才会逐行流式读取；
+     *          如果url中开启了 useCursorFetch=true，则使用服务端游标，每次取 STREAM_FETCH_SIZE 行
+     *      其他驱动：直接把fetchSize当作每次网络往返取的行数
+     *
+     * @Param: [conn]
+     * @return: int
+     */
+    private static int streamingFetchSize(Connection conn) throws SQLException {
+        DatabaseMetaData dbMetaData = conn.getMetaData();
+        String driverName = dbMetaData.getDriverName();
+        if (driverName != null && driverName.contains("MySQL")) {
+            String url = dbMetaData.getURL();
+            if (url != null && url.contains("useCursorFetch=true")) {
+                return STREAM_FETCH_SIZE;
+            }
+            return Integer.MIN_VALUE;
+        }
+        return STREAM_FETCH_SIZE;
+    }
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+
     /**
      * @Date: 2020/11/7 17:12
      * @Description:
@@ -137,33 +265,215 @@ public abstract class BaseDao<T> {
     public int commonUpdate(Connection conn, String sql, Object ...args){
         // 这里直接传过来了连接，因此就不需要手动获取连接了
         PreparedStatement ps = null;
+        DaoOperationTrace trace = DaoEvents.begin("commonUpdate", clazz);
+        int rows = 0;
+        boolean failed = false;
 
         try {
+            conn = RoutingConnection.forWrite(conn);
             // 预编译SQL语句
-            ps = conn.prepareStatement(sql);
+            ps = StatementCache.prepare(conn, sql);
             // 填占位符
             for (int i = 0; i < args.length; i++) {
                 ps.setObject(i+1, args[i]);
             }
 
             // 执行操作并返回
-            return ps.executeUpdate();
+            rows = ps.executeUpdate();
+            return rows;
         } catch (SQLException e) {
+            failed = true;
+            StatementCache.discard(conn, sql);
             e.printStackTrace();
         } finally {
             // 关闭资源
-            JDBCUtils.closeResource(null, ps); // 这里由于提供了conn所以不再这里关，交给上面一层关，关闭连接内部有非空判断
+            StatementCache.release(conn, sql, ps); // 这里由于提供了conn所以不再这里关，交给上面一层关，Statement也留在缓存中
+            trace.commit(conn, sql, args.length, rows, failed);
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * @Date: 2026/10/18 11:45
+     * @Description:
+     *     通用的批量增删改操作，参考InsertTest中 批处理 + 手动提交 的写法
+     *     每批的条数由AdaptiveBatchSizer根据实际耗时自动调整，同一条SQL的调整结果会被记住
+     *
+     *     事务：
+     *         如果连接是自动提交的，这里会关闭自动提交，全部执行完再统一提交，出错则回滚，最后恢复自动提交
+     *         如果连接已经在事务中（自动提交已关闭），那么提交和回滚都交给上层
+     *
+     * @Param: [conn, sql, argsList 每一条的占位符参数]
+     * @return: int 影响的行数，驱动返回SUCCESS_NO_INFO（比如MySQL重写后的批量插入）时按1条计算
+     */
+    public int commonBatchUpdate(Connection conn, String sql, List<Object[]> argsList){
+        if (argsList.isEmpty()) {
+            return 0;
+        }
+
+        PreparedStatement ps = null;
+        boolean ownTransaction = false;
+
+        // 不能在最后加 分号; ，会导致rewriteBatchedStatements批量处理失败
+        String trimmedSql = sql.trim();
+        String batchSql = trimmedSql.endsWith(";") ? trimmedSql.substring(0, trimmedSql.length() - 1) : trimmedSql;
+
+        try {
+            conn = RoutingConnection.forWrite(conn);
+            if (conn.getAutoCommit()) {
+                // 设置不允许自动提交数据
+                conn.setAutoCommit(false);
+                ownTransaction = true;
+            }
+
+            AdaptiveBatchSizer sizer = batchSizers.computeIfAbsent(batchSql, k -> new AdaptiveBatchSizer());
+            ps = StatementCache.prepare(conn, batchSql);
+
+            int count = 0;
+            int pending = 0;
+            int batchSize = sizer.getBatchSize();
+            for (Object[] args : argsList) {
+                for (int i = 0; i < args.length; i++) {
+                    ps.setObject(i+1, args[i]);
+                }
+                // 1. 攒 "sql"
+                ps.addBatch();
+                pending++;
+
+                if (pending >= batchSize) {
+                    // 2. 执行batch，并根据耗时调整下一批的大小
+                    count += executeBatch(ps, sizer, pending);
+                    pending = 0;
+                    batchSize = sizer.getBatchSize();
+                }
+            }
+            if (pending > 0) {
+                count += executeBatch(ps, sizer, pending);
+            }
+
+            // 提交数据
+            if (ownTransaction) {
+                conn.commit();
+            }
+            return count;
+        } catch (SQLException e) {
+            StatementCache.discard(conn, batchSql);
+            if (ownTransaction) {
+                // 回滚操作
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            e.printStackTrace();
+        } finally {
+            // 恢复自动提交
+            if (ownTransaction) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            StatementCache.release(conn, batchSql, ps);
         }
 
         return 0;
     }
 
+    /**
+     * @Date: 2026/10/19 15:20
+     * @Description:
+     *  在一个事务中执行多条通用操作，和commonBatchUpdate一样：
+     *         如果连接是自动提交的，这里会关闭自动提交，work返回null时回滚，否则提交，最后恢复自动提交
+     *         如果连接已经在事务中（自动提交已关闭），那么提交和回滚都交给上层
+     *  通用操作出错时只打印异常并返回null或0，work需要自己把失败转换成返回null
+     *
+     * @Param: [conn, work]
+     * @return: R work的返回值，回滚了或者出错时返回null
+     */
+    protected <R> R commonTransaction(Connection conn, Function<Connection, R> work){
+        boolean ownTransaction = false;
+        try {
+            conn = RoutingConnection.forWrite(conn);
+            if (conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                ownTransaction = true;
+            }
+
+            R result = work.apply(conn);
+            if (ownTransaction) {
+                if (result == null) {
+                    conn.rollback();
+                } else {
+                    conn.commit();
+                }
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            if (ownTransaction) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            e.printStackTrace();
+        } finally {
+            if (ownTransaction) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // 每条批量SQL各自学习自己的批大小，不同语句的单条耗时差别很大
+    private final Map<String, AdaptiveBatchSizer> batchSizers = new ConcurrentHashMap<>();
+
+    /**
+     * @Date: 2026/10/18 11:50
+     * @Description:
+     *     执行一批并清空，同时把耗时反馈给sizer
+     *
+     * @Param: [ps, sizer, rows]
+     * @return: int
+     */
+    private static int executeBatch(PreparedStatement ps, AdaptiveBatchSizer sizer, int rows) throws SQLException {
+        long start = System.nanoTime();
+        int[] results = ps.executeBatch();
+        sizer.record(rows, System.nanoTime() - start);
+        // 3. 清空已执行的batch
+        ps.clearBatch();
+
+        int count = 0;
+        for (int result : results) {
+            if (result >= 0) {
+                count += result;
+            } else if (result == Statement.SUCCESS_NO_INFO) {
+                count++;
+            }
+        }
+        return count;
+    }
+
 
     public <E> E getValue(Connection conn, String sql, Object ...args) {
         PreparedStatement ps = null;
         ResultSet resultSet = null;
+        DaoOperationTrace trace = DaoEvents.begin("getValue", clazz);
+        int rows = 0;
+        boolean failed = false;
         try {
-            ps = conn.prepareStatement(sql);
+            conn = RoutingConnection.forRead(conn);
+            ps = StatementCache.prepare(conn, sql);
             // 填充占位符
             for (int i = 0; i < args.length; i++) {
                 ps.setObject(i+1, args[i]);
@@ -171,17 +481,172 @@ public abstract class BaseDao<T> {
 
             // 执行
             resultSet = ps.executeQuery();
+            trace.executed();
             if (resultSet.next()){
+                rows = 1;
                 return (E) resultSet.getObject(1);
             }
         } catch (SQLException e) {
+            failed = true;
+            StatementCache.discard(conn, sql);
             e.printStackTrace();
         } finally {
             // 关闭资源
-            JDBCUtils.closeResource(null, ps, resultSet);
+            JDBCUtils.closeResource(null, null, resultSet);
+            StatementCache.release(conn, sql, ps);
+            trace.commit(conn, sql, args.length, rows, failed);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * @Date: 2026/10/19 13:40
+     * @Description:
+     *     把文件写入BLOB字段，第一个占位符是BLOB，args依次填第二个及之后的占位符
+     *     例如 update customers set photo = ? where id = ?
+     *     文件内存映射后连同长度交给驱动，见BlobStreams.bindFile
+     *
+     * @Param: [conn, sql, file, args]
+     * @return: com.example.blob.BlobTransfer 影响的行数为0或者出错时返回null
+     */
+    public BlobTransfer commonBlobUpdate(Connection conn, String sql, Path file, Object ...args){
+        PreparedStatement ps = null;
+        try {
+            conn = RoutingConnection.forWrite(conn);
+            long start = System.nanoTime();
+            ps = StatementCache.prepare(conn, sql);
+            long size = BlobStreams.bindFile(ps, 1, file);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i+2, args[i]);
+            }
+
+            if (ps.executeUpdate() > 0) {
+                return new BlobTransfer(size, System.nanoTime() - start);
+            }
+        } catch (SQLException | IOException e) {
+            StatementCache.discard(conn, sql);
+            e.printStackTrace();
+        } finally {
+            clearParameters(ps); // 不让缓存中的Statement一直引用映射的文件
+            StatementCache.release(conn, sql, ps);
         }
 
         return null;
     }
 
+
+    /**
+     * @Date: 2026/10/19 13:45
+     * @Description:
+     *     把查询结果第一列的BLOB写入文件（覆盖），边读边写，缓冲区见BlobStreams.copy
+     *     有多行时按顺序接在一起，例如分块存储的BLOB（见ChunkedBlobStore）按seq排序查出所有分块
+     *
+     * @Param: [conn, sql, target, args]
+     * @return: com.example.blob.BlobTransfer 没有查到或者BLOB全为null、出错时返回null，这时不会创建文件
+     */
+    public BlobTransfer commonBlobQuery(Connection conn, String sql, Path target, Object ...args){
+        try (FileSink sink = new FileSink(target)) {
+            return blobQuery(conn, sql, sink, args);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * @Date: 2026/10/19 16:00
+     * @Description:
+     *     和上面一样，只是写入OutputStream，OutputStream不关闭
+     *
+     * @Param: [conn, sql, out, args]
+     * @return: com.example.blob.BlobTransfer 没有查到或者BLOB全为null、出错时返回null
+     */
+    public BlobTransfer commonBlobQuery(Connection conn, String sql, OutputStream out, Object ...args){
+        return blobQuery(conn, sql, in -> BlobStreams.copy(in, out), args);
+    }
+
+    private BlobTransfer blobQuery(Connection conn, String sql, BlobSink sink, Object[] args){
+        PreparedStatement ps = null;
+        ResultSet resultSet = null;
+        try {
+            conn = RoutingConnection.forRead(conn);
+            long start = System.nanoTime();
+            ps = StatementCache.prepare(conn, sql);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i+1, args[i]);
+            }
+
+            resultSet = ps.executeQuery();
+            long size = 0;
+            boolean found = false;
+            while (resultSet.next()) {
+                try (InputStream in = resultSet.getBinaryStream(1)) {
+                    if (in != null) {
+                        size += sink.write(in);
+                        found = true;
+                    }
+                }
+            }
+            if (found) {
+                return new BlobTransfer(size, System.nanoTime() - start);
+            }
+        } catch (SQLException | IOException e) {
+            StatementCache.discard(conn, sql);
+            e.printStackTrace();
+        } finally {
+            JDBCUtils.closeResource(null, null, resultSet);
+            StatementCache.release(conn, sql, ps);
+        }
+
+        return null;
+    }
+
+    /**
+     * 查询出的BLOB写到哪里
+     */
+    @FunctionalInterface
+    private interface BlobSink {
+        long write(InputStream in) throws IOException;
+    }
+
+    /**
+     * 写入文件，第一次有内容时才创建（覆盖）文件
+     */
+    private static class FileSink implements BlobSink, Closeable {
+        private final Path target;
+        private FileChannel channel;
+
+        FileSink(Path target) {
+            this.target = target;
+        }
+
+        @Override
+        public long write(InputStream in) throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            return BlobStreams.copy(in, channel);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    private static void clearParameters(PreparedStatement ps) {
+        if (ps != null) {
+            try {
+                ps.clearParameters();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
 }
@@ -0,0 +1,132 @@
+package com.example.dao;
+
+import com.example.bean.StoredBlob;
+import com.example.blob.BlobTransfer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 15:00
+ * @Description:
+ *  此接口用于规范按内容寻址的BLOB存储（blob_store表）
+ *  同样的内容只存一份，用内容的SHA-256作为主键，ref_count记录有多少处引用它，
+ *  引用减到0时才删除；其他表只保存hash，例如 customers.photo_hash
+ *
+ *  create table blob_store(
+ *      hash char(64) not null primary key,
+ *      size bigint not null,
+ *      ref_count int not null,
+ *      chunk_size int not null default 0,
+ *      chunk_hash char(64) null,
+ *      codec tinyint not null default 0,
+ *      content longblob not null,
+ *      key idx_ref_count (ref_count),
+ *      key idx_chunk (chunk_hash, chunk_size)
+ *  );
+ *  alter table customers add column photo_hash char(64) null, add key idx_photo_hash (photo_hash);
+ *
+ *  已有的customers.photo搬到blob_store中（可以重复执行，已经搬过的行photo_hash不为null会被跳过），
+ *  同样的照片只存一份，引用数为用到它的行数：
+ *      insert into blob_store(hash, size, ref_count, content)
+ *          select sha2(photo, 256), length(max(photo)), count(*), max(photo) from customers
+ *          where photo is not null and photo_hash is null group by sha2(photo, 256)
+ *          on duplicate key update ref_count = blob_store.ref_count + values(ref_count);
+ *      update customers set photo_hash = sha2(photo, 256) where photo is not null and photo_hash is null;
+ *  两条语句放在同一个事务中执行；确认无误后可以 update customers set photo = null 释放原来的空间
+ *
+ *  chunk_size > 0 的对象分块存在blob_chunk表中，content为空，chunk_hash是分块的key，见ChunkedBlobStore
+ *  codec不为0的对象存的是压缩后的内容（size仍然是原始大小），读取时自动解压，见BlobCompression
+ *      alter table blob_store add column codec tinyint not null default 0;
+ */
+public interface BlobStoreDao {
+
+    /**
+     * @Date: 2026/10/19 15:05
+     * @Description:
+     *  保存文件内容并增加一次引用
+     *  先计算hash，已经存过的只把ref_count加1，不再传输内容
+     *
+     * @Param: [conn, file]
+     * @return: java.lang.String 内容的hash，失败时返回null
+     */
+    String put(Connection conn, Path file);
+
+    /**
+     * @Date: 2026/10/19 15:05
+     * @Description:
+     *  保存输入流的内容并增加一次引用，输入流不关闭
+     *  边读边计算hash，同时写到临时文件中，读完再按put(conn, file)保存
+     *
+     * @Param: [conn, in]
+     * @return: java.lang.String 内容的hash，失败时返回null
+     */
+    String put(Connection conn, InputStream in);
+
+    /**
+     * @Date: 2026/10/19 15:05
+     * @Description:
+     *  把内容下载到文件
+     *
+     * @Param: [conn, hash, target]
+     * @return: com.example.blob.BlobTransfer 没有这个hash或者失败时返回null
+     */
+    BlobTransfer get(Connection conn, String hash, Path target);
+
+    /**
+     * @Date: 2026/10/19 17:25
+     * @Description:
+     *  把全部内容读到一个正好大小的直接内存ByteBuffer中（已经flip），结果长期持有时不占Java堆
+     *  （驱动读结果集时内容仍然会先以byte[]经过堆，见BlobStreams）
+     *
+     * @Param: [conn, hash]
+     * @return: java.nio.ByteBuffer 没有这个hash或者失败时返回null
+     */
+    ByteBuffer read(Connection conn, String hash);
+
+    /**
+     * @Date: 2026/10/19 16:50
+     * @Description:
+     *  只读取从offset开始的length个字节，超出对象末尾的部分不返回
+     *  只传输需要的部分：不分块的在数据库中用substring截取，分块的只查询覆盖这个范围的分块
+ *  压缩存储的对象在压缩后的内容中没法定位，只能从头解压到offset，跳过前面的部分
+     *
+     * @Param: [conn, hash, offset, length]
+     * @return: byte[] 没有这个hash、offset超出对象末尾或者失败时返回null
+     */
+    byte[] readRange(Connection conn, String hash, long offset, int length);
+
+    /**
+     * @Date: 2026/10/19 15:05
+     * @Description:
+     *  获取hash对应对象的大小和引用计数
+     *
+     * @Param: [conn, hash]
+     * @return: com.example.bean.StoredBlob 没有这个hash时返回null
+     */
+    StoredBlob getStoredBlob(Connection conn, String hash);
+
+    /**
+     * @Date: 2026/10/19 15:05
+     * @Description:
+     *  减少一次引用，减到0时删除内容
+     *
+     * @Param: [conn, hash]
+     * @return: int 减少了引用的行数，没有这个hash或者失败时为0
+     */
+    int release(Connection conn, String hash);
+
+    /**
+     * @Date: 2026/10/19 15:05
+     * @Description:
+     *  删除所有已经没有引用的内容，用于批量释放引用之后
+     *
+     * @Param: [conn]
+     * @return: int 删除的个数
+     */
+    int purge(Connection conn);
+}
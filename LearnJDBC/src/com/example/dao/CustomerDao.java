@@ -1,9 +1,14 @@
 package com.example.dao;
 
 import com.example.bean.Customer;
+import com.example.blob.BlobTransfer;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author: Yi-27
@@ -19,9 +24,9 @@ public interface CustomerDao {
      * @Description:
      *  Customers表通用的插入操作，这里都是单次插入
      * @Param: [conn, customer]
-     * @return: void
+     * @return: int 插入的行数，失败时为0
      */
-    void insert(Connection conn, Customer customer);
+    int insert(Connection conn, Customer customer);
 
     /**
      * @Date: 2020/11/8 8:41
@@ -29,9 +34,9 @@ public interface CustomerDao {
      *  删除指定的customer
      *
      * @Param: [conn, id]
-     * @return: void
+     * @return: int 删除的行数，没有这个id或者失败时为0
      */
-    void deleteById(Connection conn, int id);
+    int deleteById(Connection conn, int id);
 
     /**
      * @Date: 2020/11/8 8:41
@@ -39,9 +44,9 @@ public interface CustomerDao {
      *  更新指定的customer
      *
      * @Param: [conn, customer]
-     * @return: void
+     * @return: int 更新的行数，没有这个id或者失败时为0
      */
-    void update(Connection conn, Customer customer);
+    int update(Connection conn, Customer customer);
 
     /**
      * @Date: 2020/11/8 8:41
@@ -53,6 +58,47 @@ public interface CustomerDao {
      */
     Customer getCustomerById(Connection conn, int id);
 
+    /**
+     * @Date: 2026/10/19 11:30
+     * @Description:
+     *  一次查询获取多个customer，没有的id不会出现在结果中，结果的顺序不一定和ids相同
+     *
+     * @Param: [conn, ids]
+     * @return: java.util.List<com.example.bean.Customer> 查询失败时返回null
+     */
+    List<Customer> getCustomersByIds(Connection conn, List<Integer> ids);
+
+    /**
+     * @Date: 2026/10/18 12:00
+     * @Description:
+     *  批量插入customer，每批的条数会根据耗时自动调整
+     *  连接是自动提交时，全部成功才提交；已在事务中时交给上层提交
+     *
+     * @Param: [conn, customers]
+     * @return: int 插入的条数
+     */
+    int insertAll(Connection conn, List<Customer> customers);
+
+    /**
+     * @Date: 2026/10/18 12:00
+     * @Description:
+     *  批量更新customer，按id更新name、birth、email
+     *
+     * @Param: [conn, customers]
+     * @return: int 更新的条数
+     */
+    int updateAll(Connection conn, List<Customer> customers);
+
+    /**
+     * @Date: 2026/10/18 12:00
+     * @Description:
+     *  批量删除指定id的customer
+     *
+     * @Param: [conn, ids]
+     * @return: int 删除的条数
+     */
+    int deleteByIds(Connection conn, List<Integer> ids);
+
     /**
      * @Date: 2020/11/8 8:41
      * @Description:
@@ -63,6 +109,17 @@ public interface CustomerDao {
      */
     List<Customer> getAll(Connection conn);
 
+    /**
+     * @Date: 2026/10/18 11:05
+     * @Description:
+     *  流式获取全部customer，不会把整张表装进内存
+     *  返回的Stream用完必须关闭，关闭前该连接不能执行其他语句
+     *
+     * @Param: [conn]
+     * @return: java.util.stream.Stream<com.example.bean.Customer>
+     */
+    Stream<Customer> streamAll(Connection conn) throws SQLException;
+
     /**
      * @Date: 2020/11/8 8:41
      * @Description:
@@ -82,4 +139,36 @@ public interface CustomerDao {
      * @return: java.sql.Date
      */
     java.sql.Date getMaxBirth(Connection conn);
+
+    /**
+     * @Date: 2026/10/19 13:50
+     * @Description:
+     *  把文件保存为指定customer的照片
+     *  内容存到blob_store中，同样的照片只存一份，customers.photo_hash引用它，原来的照片释放一次引用
+     *
+     * @Param: [conn, id, file]
+     * @return: com.example.blob.BlobTransfer 上传的字节数和速度，没有这个id或者失败时返回null
+     */
+    BlobTransfer savePhoto(Connection conn, int id, Path file);
+
+    /**
+     * @Date: 2026/10/19 13:50
+     * @Description:
+     *  把指定customer的照片下载到文件
+     *
+     * @Param: [conn, id, target]
+     * @return: com.example.blob.BlobTransfer 下载的字节数和速度，没有这个id、没有照片或者失败时返回null
+     */
+    BlobTransfer loadPhoto(Connection conn, int id, Path target);
+
+    /**
+     * @Date: 2026/10/19 17:30
+     * @Description:
+     *  把指定customer的照片读到直接内存中，长期持有时不占Java堆
+     *  （驱动读结果集时内容仍然会先以byte[]经过堆，见BlobStreams）
+     *
+     * @Param: [conn, id]
+     * @return: java.nio.ByteBuffer 没有这个id、没有照片或者失败时返回null
+     */
+    ByteBuffer readPhoto(Connection conn, int id);
 }
@@ -0,0 +1,29 @@
+package com.example.dao;
+
+import java.sql.SQLException;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 10:30
+ * @Description:
+ *      对SQLException的非受检包装
+ *      Stream、Consumer这类函数式接口里不能抛受检异常，只能用它包一层再抛出去
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause);
+    }
+
+    public UncheckedSQLException(String message, SQLException cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
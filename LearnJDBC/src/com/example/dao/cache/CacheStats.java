@@ -0,0 +1,100 @@
+package com.example.dao.cache;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 9:30
+ * @Description:
+ *      缓存某一时刻的统计，不可变，次数都是从创建（或上次reset）起累计的
+ *          hits / misses       get命中和未命中的次数
+ *          loads               未命中后真正查询数据库的次数
+ *          loadFailures        查询数据库抛出异常的次数
+ *          coalescedLoads      未命中时发现同一个key正在被别的线程加载，直接等它结果的次数
+ *          evictions           超过容量被淘汰的条目数
+ *          invalidations       因为增删改被移除的条目数
+ */
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long loads;
+    private final long loadFailures;
+    private final long coalescedLoads;
+    private final long evictions;
+    private final long invalidations;
+    private final int size;
+    private final int maximumSize;
+
+    CacheStats(long hits, long misses, long loads, long loadFailures, long coalescedLoads,
+               long evictions, long invalidations, int size, int maximumSize) {
+        this.hits = hits;
+        this.misses = misses;
+        this.loads = loads;
+        this.loadFailures = loadFailures;
+        this.coalescedLoads = coalescedLoads;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.size = size;
+        this.maximumSize = maximumSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getLoads() {
+        return loads;
+    }
+
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    public long getCoalescedLoads() {
+        return coalescedLoads;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * 命中率，还没有访问过时为0
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", hitRate=" + String.format("%.4f", getHitRate()) +
+                ", loads=" + loads +
+                ", loadFailures=" + loadFailures +
+                ", coalescedLoads=" + coalescedLoads +
+                ", evictions=" + evictions +
+                ", invalidations=" + invalidations +
+                ", size=" + size +
+                ", maximumSize=" + maximumSize +
+                '}';
+    }
+}
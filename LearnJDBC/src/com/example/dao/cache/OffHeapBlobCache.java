@@ -0,0 +1,329 @@
+package com.example.dao.cache;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 17:00
+ * @Description:
+ *      堆外的BLOB缓存，按总字节数限制大小
+ *      每个BLOB存在一个自己的直接内存ByteBuffer中，不占Java堆，几MB的照片不会让GC反复复制和扫描
+ *      get返回只读的视图（asReadOnlyBuffer），和缓存共享同一块内存，不复制
+ *
+ *      被淘汰或失效的ByteBuffer不会立即释放，还在用它的读者可以继续安全地读完，
+ *      没人引用之后由GC回收直接内存；所以maxBytes要比 -XX:MaxDirectMemorySize 小得多，给还没回收的留出空间
+ *
+ *      淘汰策略：
+ *          LRU  淘汰最久没被访问的
+ *          LFU  淘汰访问次数最少的，次数相同时淘汰最早进入这个次数的；适合少数照片一直很热的情况
+ *
+ *      一把锁保护所有条目，锁内只有HashMap操作，读写BLOB内容都在锁外
+ */
+public class OffHeapBlobCache<K> {
+
+    public enum EvictionPolicy {
+        LRU, LFU
+    }
+
+    private final long maxBytes;
+    // 超过这个大小的不缓存，一个条目不能把其他条目都挤掉
+    private final long maxEntryBytes;
+    private final Policy<K> policy;
+
+    private final Object lock = new Object();
+    private final Map<K, ByteBuffer> entries = new HashMap<>();
+    private long usedBytes;
+
+    // 每次失效都加1，加载前记下来，放入时变了就说明加载期间有修改，加载到的可能是旧数据
+    private final AtomicLong invalidationStamp = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxBytes 所有条目加起来最多多少字节
+     * @param policy   淘汰策略
+     */
+    public OffHeapBlobCache(long maxBytes, EvictionPolicy policy) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes必须大于0");
+        }
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.max(1, maxBytes / 4);
+        this.policy = policy == EvictionPolicy.LFU ? new LfuPolicy<>() : new LruPolicy<>();
+    }
+
+    /**
+     * @Date: 2026/10/19 17:10
+     * @Description:
+     *      获取缓存的BLOB，返回只读视图，position为0，limit为BLOB的长度
+     *      每次返回新的视图对象，读者之间的position互不影响
+     *
+     * @Param: [key]
+     * @return: java.nio.ByteBuffer 没有缓存时返回null
+     */
+    public ByteBuffer get(K key) {
+        ByteBuffer buffer;
+        synchronized (lock) {
+            buffer = entries.get(key);
+            if (buffer != null) {
+                policy.recordAccess(key);
+            }
+        }
+        if (buffer == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * @Date: 2026/10/19 17:12
+     * @Description:
+     *      加载之前调用，把返回值传给put
+     *
+     * @Param: []
+     * @return: long
+     */
+    public long stamp() {
+        return invalidationStamp.get();
+    }
+
+    /**
+     * @Date: 2026/10/19 17:15
+     * @Description:
+     *      放入一个BLOB（从position到limit），不是直接内存的会先复制到直接内存，
+     *      直接内存的不复制，放入后调用者不能再修改它
+     *      从stamp()到现在有过失效时不放入，加载期间被修改过的数据可能已经过时
+     *      空间不够时按淘汰策略淘汰，太大的（超过maxBytes的1/4）不缓存
+     *
+     * @Param: [key, data, stamp]
+     * @return: boolean 是否放入了
+     */
+    public boolean put(K key, ByteBuffer data, long stamp) {
+        int size = data.remaining();
+        if (size > maxEntryBytes) {
+            rejected.increment();
+            return false;
+        }
+        ByteBuffer buffer = data.isDirect() && !data.isReadOnly() ? data.slice() : copyToDirect(data);
+
+        synchronized (lock) {
+            if (invalidationStamp.get() != stamp) {
+                return false;
+            }
+            ByteBuffer old = entries.remove(key);
+            if (old != null) {
+                usedBytes -= old.capacity();
+                policy.remove(key);
+            }
+            while (usedBytes + size > maxBytes && !entries.isEmpty()) {
+                K victim = policy.victim();
+                policy.remove(victim);
+                usedBytes -= entries.remove(victim).capacity();
+                evictions.increment();
+            }
+            entries.put(key, buffer);
+            usedBytes += buffer.capacity();
+            policy.recordInsert(key);
+        }
+        return true;
+    }
+
+    private static ByteBuffer copyToDirect(ByteBuffer data) {
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.remaining());
+        direct.put(data.duplicate());
+        direct.flip();
+        return direct;
+    }
+
+    public void invalidate(K key) {
+        synchronized (lock) {
+            invalidationStamp.incrementAndGet();
+            ByteBuffer old = entries.remove(key);
+            if (old != null) {
+                usedBytes -= old.capacity();
+                policy.remove(key);
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (lock) {
+            invalidationStamp.incrementAndGet();
+            invalidations.add(entries.size());
+            for (K key : entries.keySet()) {
+                policy.remove(key);
+            }
+            entries.clear();
+            usedBytes = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    public long getUsedBytes() {
+        synchronized (lock) {
+            return usedBytes;
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * 太大而没有缓存的次数
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        invalidations.reset();
+        rejected.reset();
+    }
+
+    @Override
+    public String toString() {
+        long h = hits.sum();
+        long requests = h + misses.sum();
+        return "OffHeapBlobCache{" +
+                "policy=" + policy.getClass().getSimpleName() +
+                ", entries=" + size() +
+                ", usedBytes=" + getUsedBytes() +
+                ", maxBytes=" + maxBytes +
+                ", hitRate=" + String.format("%.4f", requests == 0 ? 0 : (double) h / requests) +
+                ", evictions=" + evictions.sum() +
+                ", invalidations=" + invalidations.sum() +
+                ", rejected=" + rejected.sum() +
+                '}';
+    }
+
+
+    /**
+     * 淘汰策略，所有方法都在lock内调用
+     */
+    private interface Policy<K> {
+        void recordInsert(K key);
+
+        void recordAccess(K key);
+
+        void remove(K key);
+
+        // 下一个要淘汰的key，调用时至少有一个条目
+        K victim();
+    }
+
+    /**
+     * 按访问顺序排列，最前面的是最久没被访问的
+     */
+    private static class LruPolicy<K> implements Policy<K> {
+        private final LinkedHashMap<K, Boolean> order = new LinkedHashMap<>(16, 0.75f, true);
+
+        @Override
+        public void recordInsert(K key) {
+            order.put(key, Boolean.TRUE);
+        }
+
+        @Override
+        public void recordAccess(K key) {
+            order.get(key);
+        }
+
+        @Override
+        public void remove(K key) {
+            order.remove(key);
+        }
+
+        @Override
+        public K victim() {
+            return order.keySet().iterator().next();
+        }
+    }
+
+    /**
+     * 访问次数 -> 这个次数的key（按进入的先后），访问一次就从当前次数移到下一个次数
+     * 淘汰时取次数最少的那一组中最早进入的
+     */
+    private static class LfuPolicy<K> implements Policy<K> {
+        private final Map<K, Integer> frequencies = new HashMap<>();
+        private final TreeMap<Integer, LinkedHashSet<K>> buckets = new TreeMap<>();
+
+        @Override
+        public void recordInsert(K key) {
+            frequencies.put(key, 1);
+            buckets.computeIfAbsent(1, f -> new LinkedHashSet<>()).add(key);
+        }
+
+        @Override
+        public void recordAccess(K key) {
+            Integer frequency = frequencies.get(key);
+            if (frequency == null) {
+                return;
+            }
+            removeFromBucket(key, frequency);
+            frequencies.put(key, frequency + 1);
+            buckets.computeIfAbsent(frequency + 1, f -> new LinkedHashSet<>()).add(key);
+        }
+
+        @Override
+        public void remove(K key) {
+            Integer frequency = frequencies.remove(key);
+            if (frequency != null) {
+                removeFromBucket(key, frequency);
+            }
+        }
+
+        private void removeFromBucket(K key, int frequency) {
+            LinkedHashSet<K> bucket = buckets.get(frequency);
+            bucket.remove(key);
+            if (bucket.isEmpty()) {
+                buckets.remove(frequency);
+            }
+        }
+
+        @Override
+        public K victim() {
+            Iterator<K> iterator = buckets.firstEntry().getValue().iterator();
+            return iterator.next();
+        }
+    }
+}
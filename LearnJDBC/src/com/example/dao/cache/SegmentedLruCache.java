@@ -0,0 +1,248 @@
+package com.example.dao.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 9:10
+ * @Description:
+ *      有容量上限的分段LRU（Segmented LRU）缓存
+ *          新放入的条目先进入试用区（probation），在试用区中再被访问一次才晋升到保护区（protected）
+ *          淘汰时先淘汰试用区中最久没用的；保护区满了，最久没用的降回试用区，而不是直接淘汰
+ *      这样只被扫描一次的冷数据（比如getAll之后逐个查一遍）只会在试用区里打转，挤不掉反复被访问的热数据
+ *
+ *      按key的hash分成多个分片，每个分片一把锁，各自按 容量/分片数 淘汰
+ *      可以设置写入后的过期时间，过期的条目在get时才删除，算作一次未命中
+ */
+public class SegmentedLruCache<K, V> {
+
+    // 保护区占每个分片容量的比例
+    private static final double PROTECTED_RATIO = 0.8;
+    private static final int MAX_SHARDS = 16;
+    // 每个分片至少这么大，容量小的缓存分片太多会让淘汰很不准
+    private static final int MIN_SHARD_CAPACITY = 32;
+
+    private final Shard<K, V>[] shards;
+    private final int maximumSize;
+    private final long expireAfterWriteNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param maximumSize            最多缓存的条目数
+     * @param expireAfterWriteMillis 写入后多久过期，<=0 不过期
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SegmentedLruCache(int maximumSize, long expireAfterWriteMillis) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize必须大于0");
+        }
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = expireAfterWriteMillis <= 0 ? 0 : expireAfterWriteMillis * 1_000_000L;
+
+        int shardCount = 1;
+        while (shardCount < MAX_SHARDS && maximumSize / (shardCount * 2) >= MIN_SHARD_CAPACITY) {
+            shardCount *= 2;
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            // 余数分给前面的分片，总容量正好是maximumSize
+            int capacity = maximumSize / shardCount + (i < maximumSize % shardCount ? 1 : 0);
+            shards[i] = new Shard<>(capacity);
+        }
+    }
+
+    public SegmentedLruCache(int maximumSize) {
+        this(maximumSize, 0);
+    }
+
+    /**
+     * @Date: 2026/10/19 9:20
+     * @Description:
+     *      获取缓存的值，同时记录命中或未命中
+     *
+     * @Param: [key]
+     * @return: V 没有缓存或者已经过期时返回null
+     */
+    public V get(K key) {
+        V value = shardFor(key).get(key, System.nanoTime());
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * @Date: 2026/10/19 9:22
+     * @Description:
+     *      放入缓存，已经有的话替换值（位置不变），超过容量时淘汰
+     *
+     * @Param: [key, value 不能为null]
+     * @return: void
+     */
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("不能缓存null");
+        }
+        long expiresAt = expireAfterWriteNanos == 0 ? 0 : System.nanoTime() + expireAfterWriteNanos;
+        evictions.add(shardFor(key).put(key, value, expiresAt));
+    }
+
+    public void invalidate(K key) {
+        if (shardFor(key).remove(key)) {
+            invalidations.increment();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Shard<K, V> shard : shards) {
+            invalidations.add(shard.clear());
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard<K, V> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @Date: 2026/10/19 9:25
+     * @Description:
+     *      当前的命中、未命中、淘汰次数，加载相关的次数由使用者填进去
+     *
+     * @Param: [loads, loadFailures, coalescedLoads]
+     * @return: com.example.dao.cache.CacheStats
+     */
+    public CacheStats stats(long loads, long loadFailures, long coalescedLoads) {
+        return new CacheStats(hits.sum(), misses.sum(), loads, loadFailures, coalescedLoads,
+                evictions.sum(), invalidations.sum(), size(), maximumSize);
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        invalidations.reset();
+    }
+
+    private Shard<K, V> shardFor(K key) {
+        int h = key.hashCode();
+        // 把高位混进来，Integer之类hash连续的key也能分散开
+        h ^= h >>> 16;
+        return shards[h & (shards.length - 1)];
+    }
+
+
+    private static class Node<V> {
+        V value;
+        long expiresAt;
+
+        Node(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * 一个分片，两个LinkedHashMap都按插入顺序，被访问时重新放到末尾，开头就是最久没用的
+     */
+    private static class Shard<K, V> {
+        private final int capacity;
+        private final int protectedCapacity;
+        private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>();
+        private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<>();
+
+        Shard(int capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = Math.max(1, (int) (capacity * PROTECTED_RATIO));
+        }
+
+        synchronized V get(K key, long now) {
+            Node<V> node = protectedSegment.remove(key);
+            if (node != null) {
+                if (node.isExpired(now)) {
+                    return null;
+                }
+                protectedSegment.put(key, node);
+                return node.value;
+            }
+
+            node = probation.remove(key);
+            if (node == null || node.isExpired(now)) {
+                return null;
+            }
+            // 第二次被访问，晋升到保护区；保护区满了，把最久没用的降回试用区
+            protectedSegment.put(key, node);
+            if (protectedSegment.size() > protectedCapacity) {
+                Map.Entry<K, Node<V>> eldest = removeEldest(protectedSegment);
+                probation.put(eldest.getKey(), eldest.getValue());
+            }
+            return node.value;
+        }
+
+        /**
+         * @return 淘汰的条目数
+         */
+        synchronized int put(K key, V value, long expiresAt) {
+            Node<V> node = protectedSegment.get(key);
+            if (node == null) {
+                node = probation.get(key);
+            }
+            if (node != null) {
+                node.value = value;
+                node.expiresAt = expiresAt;
+                return 0;
+            }
+
+            probation.put(key, new Node<>(value, expiresAt));
+            int evicted = 0;
+            while (probation.size() + protectedSegment.size() > capacity) {
+                removeEldest(probation.isEmpty() ? protectedSegment : probation);
+                evicted++;
+            }
+            return evicted;
+        }
+
+        synchronized boolean remove(K key) {
+            return protectedSegment.remove(key) != null || probation.remove(key) != null;
+        }
+
+        synchronized int clear() {
+            int size = size();
+            probation.clear();
+            protectedSegment.clear();
+            return size;
+        }
+
+        synchronized int size() {
+            return probation.size() + protectedSegment.size();
+        }
+
+        private static <K, V> Map.Entry<K, Node<V>> removeEldest(LinkedHashMap<K, Node<V>> map) {
+            Iterator<Map.Entry<K, Node<V>>> iterator = map.entrySet().iterator();
+            Map.Entry<K, Node<V>> eldest = iterator.next();
+            iterator.remove();
+            return eldest;
+        }
+    }
+}
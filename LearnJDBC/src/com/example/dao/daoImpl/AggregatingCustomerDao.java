@@ -0,0 +1,343 @@
+package com.example.dao.daoImpl;
+
+import com.example.bean.Customer;
+import com.example.blob.BlobTransfer;
+import com.example.dao.CustomerDao;
+import com.example.utils.ConnectionSource;
+import com.example.utils.JDBCUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 10:30
+ * @Description:
+ *      维护聚合值的CustomerDao，包装另一个CustomerDao
+ *      getCount和getMaxBirth原来每次都要扫一遍customers表，现在第一次调用时查一次，
+ *      之后根据经过这个Dao的增删改直接更新，调用时直接返回
+ *
+ *      max(birth)的维护：
+ *          插入、或者修改后的birth >= 当前最大值     直接更新最大值
+ *          删除、或者修改后的birth都比当前最大值小     不知道被删/被改的是不是最大的那一行，只标记为需要重新计算，
+ *                                                  下次getMaxBirth时才查询，之前没人调用就不查
+ *
+ *      对账：传入了ConnectionSource时，后台线程每隔一段时间用count(*)和max(birth)查一次，
+ *      把没有经过这个Dao的修改、回滚了的事务、执行失败的语句造成的偏差纠正回来
+ *
+ *      用完要close，停止对账
+ */
+public class AggregatingCustomerDao implements CustomerDao, AutoCloseable {
+
+    // 对账时查询期间一直有写入，最多重试这么多次，还不行就等下一轮
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    private final CustomerDao delegate;
+    private final ConnectionSource connectionSource;
+    private final AtomicReference<Aggregates> aggregates = new AtomicReference<>(Aggregates.UNKNOWN);
+    private final ScheduledExecutorService reconciler;
+    private final ScheduledFuture<?> reconcileTask;
+
+    /**
+     * @param delegate                真正访问数据库的Dao
+     * @param connectionSource        对账时获取连接，为null时不对账
+     * @param reconcileIntervalMillis 对账的间隔
+     */
+    public AggregatingCustomerDao(CustomerDao delegate, ConnectionSource connectionSource, long reconcileIntervalMillis) {
+        this.delegate = delegate;
+        this.connectionSource = connectionSource;
+        if (connectionSource == null) {
+            this.reconciler = null;
+            this.reconcileTask = null;
+            return;
+        }
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "customer-aggregates-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reconcileTask = reconciler.scheduleWithFixedDelay(this::reconcileQuietly,
+                reconcileIntervalMillis, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public AggregatingCustomerDao(CustomerDao delegate) {
+        this(delegate, null, 0);
+    }
+
+    @Override
+    public Long getCount(Connection conn) {
+        Aggregates current = aggregates.get();
+        if (current.count >= 0) {
+            return current.count;
+        }
+        Long count = delegate.getCount(conn);
+        if (count != null) {
+            // 查询期间有写入的话，查到的值可能已经不对了，不记下来，下次再查
+            aggregates.compareAndSet(current, current.withCount(count));
+        }
+        return count;
+    }
+
+    @Override
+    public BlobTransfer savePhoto(Connection conn, int id, Path file) {
+        return delegate.savePhoto(conn, id, file);
+    }
+
+    @Override
+    public BlobTransfer loadPhoto(Connection conn, int id, Path target) {
+        return delegate.loadPhoto(conn, id, target);
+    }
+
+    @Override
+    public ByteBuffer readPhoto(Connection conn, int id) {
+        return delegate.readPhoto(conn, id);
+    }
+
+    @Override
+    public Date getMaxBirth(Connection conn) {
+        Aggregates current = aggregates.get();
+        if (current.maxBirthKnown) {
+            return copy(current.maxBirth);
+        }
+        Date maxBirth = delegate.getMaxBirth(conn);
+        // BaseDao出错时也返回null，只有确定表是空的时候null才是真正的最大值，否则下次再查
+        if (maxBirth != null || current.count == 0) {
+            aggregates.compareAndSet(current, current.withMaxBirth(maxBirth));
+        }
+        return copy(maxBirth);
+    }
+
+    @Override
+    public int insert(Connection conn, Customer customer) {
+        int count = delegate.insert(conn, customer);
+        if (count > 0) {
+            apply(a -> a.added(count, customer.getBirth()));
+        }
+        return count;
+    }
+
+    @Override
+    public int insertAll(Connection conn, List<Customer> customers) {
+        int count = delegate.insertAll(conn, customers);
+        if (count > 0) {
+            Date latest = latestBirth(customers);
+            apply(a -> a.added(count, latest));
+        }
+        return count;
+    }
+
+    @Override
+    public int deleteById(Connection conn, int id) {
+        int count = delegate.deleteById(conn, id);
+        if (count > 0) {
+            apply(a -> a.removed(count));
+        }
+        return count;
+    }
+
+    @Override
+    public int deleteByIds(Connection conn, List<Integer> ids) {
+        int count = delegate.deleteByIds(conn, ids);
+        if (count > 0) {
+            apply(a -> a.removed(count));
+        }
+        return count;
+    }
+
+    @Override
+    public int update(Connection conn, Customer customer) {
+        int count = delegate.update(conn, customer);
+        if (count > 0) {
+            apply(a -> a.modified(customer.getBirth()));
+        }
+        return count;
+    }
+
+    @Override
+    public int updateAll(Connection conn, List<Customer> customers) {
+        int count = delegate.updateAll(conn, customers);
+        if (count > 0) {
+            Date latest = latestBirth(customers);
+            apply(a -> a.modified(latest));
+        }
+        return count;
+    }
+
+    @Override
+    public Customer getCustomerById(Connection conn, int id) {
+        return delegate.getCustomerById(conn, id);
+    }
+
+    @Override
+    public List<Customer> getCustomersByIds(Connection conn, List<Integer> ids) {
+        return delegate.getCustomersByIds(conn, ids);
+    }
+
+    @Override
+    public List<Customer> getAll(Connection conn) {
+        return delegate.getAll(conn);
+    }
+
+    @Override
+    public Stream<Customer> streamAll(Connection conn) throws SQLException {
+        return delegate.streamAll(conn);
+    }
+
+    /**
+     * @Date: 2026/10/19 10:50
+     * @Description:
+     *      立即对账一次：用一个新连接查询count(*)和max(birth)，替换掉维护的值
+     *      查询期间有写入经过这个Dao时，查到的值可能已经过时，会重试，一直有写入就放弃这一轮
+     *
+     * @Param: []
+     * @return: boolean 是否更新了
+     */
+    public boolean reconcile() throws Exception {
+        if (connectionSource == null) {
+            throw new IllegalStateException("没有提供ConnectionSource，不能对账");
+        }
+        Connection conn = connectionSource.getConnection();
+        try {
+            for (int i = 0; i < RECONCILE_ATTEMPTS; i++) {
+                Aggregates current = aggregates.get();
+                Long count = delegate.getCount(conn);
+                Date maxBirth = delegate.getMaxBirth(conn);
+                if (count == null) {
+                    // BaseDao出错时返回null，异常已经打印了
+                    return false;
+                }
+                // 同上，表不是空的却查到null时不知道最大值
+                Aggregates reconciled = new Aggregates(count, maxBirth, maxBirth != null || count == 0);
+                if (aggregates.compareAndSet(current, reconciled)) {
+                    if (current.count >= 0 && current.count != count) {
+                        System.err.println("customers聚合值对账：count " + current.count + " -> " + count);
+                    }
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            JDBCUtils.closeResource(conn, null);
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            // 抛出异常会让后续的对账全部取消
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @Date: 2026/10/19 10:55
+     * @Description:
+     *      丢掉维护的值，下次调用时重新查询
+     *
+     * @Param: []
+     * @return: void
+     */
+    public void invalidate() {
+        aggregates.set(Aggregates.UNKNOWN);
+    }
+
+    @Override
+    public void close() {
+        if (reconciler != null) {
+            reconcileTask.cancel(false);
+            reconciler.shutdown();
+        }
+    }
+
+    private void apply(UnaryOperator<Aggregates> change) {
+        aggregates.updateAndGet(change);
+    }
+
+    private static Date latestBirth(List<Customer> customers) {
+        Date latest = null;
+        for (Customer customer : customers) {
+            Date birth = customer.getBirth();
+            if (birth != null && (latest == null || birth.after(latest))) {
+                latest = birth;
+            }
+        }
+        return latest;
+    }
+
+    private static Date copy(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+
+    /**
+     * 维护的聚合值，不可变，每次修改都换一个新对象，这样读的时候不用加锁，
+     * 查询数据库期间有没有写入也可以用compareAndSet判断
+     *      count          < 0 表示还不知道
+     *      maxBirth       表中没有数据或者birth都为null时为null
+     *      maxBirthKnown  false 表示还不知道或者需要重新计算
+     */
+    private static final class Aggregates {
+        static final Aggregates UNKNOWN = new Aggregates(-1, null, false);
+
+        final long count;
+        final Date maxBirth;
+        final boolean maxBirthKnown;
+
+        Aggregates(long count, Date maxBirth, boolean maxBirthKnown) {
+            this.count = count;
+            // 存副本，调用者传进来的Date之后可能被修改
+            this.maxBirth = copy(maxBirth);
+            this.maxBirthKnown = maxBirthKnown;
+        }
+
+        Aggregates withCount(long count) {
+            return new Aggregates(count, maxBirth, maxBirthKnown);
+        }
+
+        Aggregates withMaxBirth(Date maxBirth) {
+            return new Aggregates(count, maxBirth, true);
+        }
+
+        Aggregates added(int rows, Date latestBirth) {
+            long newCount = count < 0 ? count : count + rows;
+            if (maxBirthKnown && latestBirth != null && (maxBirth == null || latestBirth.after(maxBirth))) {
+                return new Aggregates(newCount, latestBirth, true);
+            }
+            return new Aggregates(newCount, maxBirth, maxBirthKnown);
+        }
+
+        Aggregates removed(int rows) {
+            long newCount = count < 0 ? count : Math.max(0, count - rows);
+            // 不知道删掉的是不是最大的那一行
+            return new Aggregates(newCount, maxBirth, false);
+        }
+
+        /**
+         * @param latestBirth 被修改的行中修改后最大的birth
+         */
+        Aggregates modified(Date latestBirth) {
+            if (!maxBirthKnown) {
+                return this;
+            }
+            // 没改的行都 <= 原来的最大值 <= latestBirth，被改的行都 <= latestBirth，新的最大值就是它
+            if (latestBirth != null && (maxBirth == null || !latestBirth.before(maxBirth))) {
+                return new Aggregates(count, latestBirth, true);
+            }
+            // 都变小了，被改的可能正是原来最大的那一行
+            return new Aggregates(count, maxBirth, false);
+        }
+    }
+}
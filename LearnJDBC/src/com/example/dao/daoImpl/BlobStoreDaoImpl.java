@@ -0,0 +1,313 @@
+package com.example.dao.daoImpl;
+
+import com.example.bean.StoredBlob;
+import com.example.blob.BlobCodec;
+import com.example.blob.BlobCompression;
+import com.example.blob.BlobStreams;
+import com.example.blob.BlobTransfer;
+import com.example.blob.ChunkedBlobStore;
+import com.example.dao.BaseDao;
+import com.example.dao.BlobStoreDao;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 15:15
+ * @Description:
+ *  blob_store表的操作，表结构见BlobStoreDao
+ *  传入ChunkedBlobStore时，超过一个分块大小的文件分块并行上传
+ *  传入BlobCodec时，新保存的内容先压缩，压缩后的大小超过一个分块才分块；读取时按每个对象自己的codec解压，
+ *  所以换了算法以后旧的内容照样能读
+ */
+public class BlobStoreDaoImpl extends BaseDao<StoredBlob> implements BlobStoreDao {
+
+    // 不分块的对象content就是全部内容
+    private static final String CONTENT_SQL = "select content from blob_store where hash = ?";
+    // 分块的对象content为空，一块一块地查：MySQL默认把整个结果集读进内存，一次查出所有分块会把整个对象放到堆上
+    private static final String CHUNK_SQL = "select content from blob_chunk where hash = ? and chunk_size = ? and seq = ?";
+
+    // 不分块的用substring截取；分块的只查覆盖[offset, end)的分块，每块再截取落在范围内的部分
+    // 压缩存储的对象不能按位置截取，这里查不到，见readCompressedRange
+    private static final String RANGE_SQL =
+            "select substring(content, ? + 1, ?), -1 seq from blob_store " +
+            "where hash = ? and chunk_size = 0 and codec = 0 and size > ? " +
+            "union all " +
+            "select substring(k.content, greatest(? - k.seq * b.chunk_size, 0) + 1, " +
+            "least(?, (k.seq + 1) * b.chunk_size) - greatest(?, k.seq * b.chunk_size)), k.seq " +
+            "from blob_chunk k join blob_store b on b.chunk_hash = k.hash and b.chunk_size = k.chunk_size " +
+            "where b.hash = ? and b.codec = 0 and b.size > ? and k.seq between ? div b.chunk_size and (? - 1) div b.chunk_size " +
+            "order by seq";
+
+    // 引用减到0的对象的分块；存进去的字节一样的对象共用分块，还有别的对象在用的不算
+    private static final String CHUNKS_OF_RELEASED =
+            "join blob_store b on b.chunk_hash = k.hash and b.chunk_size = k.chunk_size " +
+            "where b.ref_count = 0 and not exists (select 1 from blob_store o " +
+            "where o.chunk_hash = k.hash and o.chunk_size = k.chunk_size and o.ref_count > 0) ";
+
+    // 为null时不分块
+    private final ChunkedBlobStore chunkedStore;
+    private final BlobCodec codec;
+
+    public BlobStoreDaoImpl() {
+        this(null);
+    }
+
+    public BlobStoreDaoImpl(ChunkedBlobStore chunkedStore) {
+        this(chunkedStore, BlobCompression.NONE);
+    }
+
+    public BlobStoreDaoImpl(ChunkedBlobStore chunkedStore, BlobCodec codec) {
+        this.chunkedStore = chunkedStore;
+        this.codec = codec;
+    }
+
+    @Override
+    public String put(Connection conn, Path file) {
+        try {
+            return put(conn, file, BlobStreams.sha256(file));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public String put(Connection conn, InputStream in) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile("blob-store", ".tmp");
+            MessageDigest digest = BlobStreams.newSha256();
+            BlobStreams.copy(new DigestInputStream(in, digest), temp);
+            return put(conn, temp, BlobStreams.toHex(digest.digest()));
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return null;
+    }
+
+    private String put(Connection conn, Path file, String hash) throws IOException {
+        // 已经存过的只增加引用，不用再传输内容
+        String sql = "update blob_store set ref_count = ref_count + 1 where hash = ?;";
+        if (commonUpdate(conn, sql, hash) > 0) {
+            return hash;
+        }
+        // hash和size都是原始内容的，存进去的是压缩后的文件
+        long size = Files.size(file);
+        try (BlobCompression.Compressed compressed = BlobCompression.compressIfWorthwhile(codec, file)) {
+            Path content = compressed == null ? file : compressed.getFile();
+            int codecId = compressed == null ? 0 : compressed.getCodec().getId();
+            if (chunkedStore != null && Files.size(content) > chunkedStore.getChunkSize()) {
+                // 分块按存进去的字节的hash存，压缩过的和原始内容的分块、不同算法压缩出来的分块互不相干
+                String chunkHash = compressed == null ? hash : BlobStreams.sha256(content);
+                try {
+                    chunkedStore.upload(chunkHash, content);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    return null;
+                }
+                sql = "insert into blob_store(content, hash, size, ref_count, chunk_size, chunk_hash, codec) " +
+                        "values('', ?, ?, 1, ?, ?, ?) on duplicate key update ref_count = ref_count + 1;";
+                return commonUpdate(conn, sql, hash, size, chunkedStore.getChunkSize(), chunkHash, codecId) > 0 ? hash : null;
+            }
+            // 两个连接同时第一次保存同样的内容时，后插入的那个变成增加引用
+            sql = "insert into blob_store(content, hash, size, ref_count, codec) values(?, ?, ?, 1, ?) " +
+                    "on duplicate key update ref_count = ref_count + 1;";
+            BlobTransfer transfer = commonBlobUpdate(conn, sql, content, hash, size, codecId);
+            return transfer == null ? null : hash;
+        }
+    }
+
+    @Override
+    public BlobTransfer get(Connection conn, String hash, Path target) {
+        StoredBlob stored = getStoredBlob(conn, hash);
+        if (stored == null) {
+            return null;
+        }
+        if (stored.getChunkSize() > 0 && stored.getCodec() == 0 && chunkedStore != null) {
+            // 没压缩的分块对象，每一块都能直接写到文件中对应的位置，用ChunkedBlobStore并行下载
+            try {
+                return chunkedStore.download(hash, target);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        long start = System.nanoTime();
+        try (OutputStream out = BlobCompression.byId(stored.getCodec()).decompress(
+                new BufferedOutputStream(Files.newOutputStream(target), BlobStreams.BUFFER_SIZE))) {
+            if (!copyStored(conn, stored, out)) {
+                return null;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        try {
+            if (Files.size(target) != stored.getSize()) {
+                throw new IOException("读出的内容不完整：" + hash);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return new BlobTransfer(stored.getSize(), System.nanoTime() - start);
+    }
+
+    @Override
+    public ByteBuffer read(Connection conn, String hash) {
+        StoredBlob stored = getStoredBlob(conn, hash);
+        if (stored == null) {
+            return null;
+        }
+        if (stored.getSize() > Integer.MAX_VALUE) {
+            new IOException("超过2GB，不能读到一个ByteBuffer中：" + hash).printStackTrace();
+            return null;
+        }
+        // 内容按hash寻址不会变，查到的大小就是内容的大小
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) stored.getSize());
+        try (OutputStream out = BlobCompression.byId(stored.getCodec()).decompress(BlobStreams.outputStream(buffer))) {
+            if (!copyStored(conn, stored, out)) {
+                return null;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (buffer.hasRemaining()) {
+            new IOException("读出的内容不完整：" + hash).printStackTrace();
+            return null;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 按顺序把存储的内容（压缩存储的是压缩后的内容）写到out，分块的一块一块地查，堆上同时最多只有一块
+     * 出错或者一块都没有时返回false；压缩存储的不知道有几块，查不到下一块就当作结束，由调用者检查解压后的长度
+     */
+    private boolean copyStored(Connection conn, StoredBlob stored, OutputStream out) {
+        String hash = stored.getHash();
+        if (stored.getChunkSize() == 0) {
+            return commonBlobQuery(conn, CONTENT_SQL, out, hash) != null;
+        }
+        int chunks = stored.getCodec() == 0
+                ? ChunkedBlobStore.chunkCount(stored.getSize(), stored.getChunkSize()) : Integer.MAX_VALUE;
+        for (int seq = 0; seq < chunks; seq++) {
+            if (commonBlobQuery(conn, CHUNK_SQL, out, stored.getChunkHash(), stored.getChunkSize(), seq) == null) {
+                return stored.getCodec() != 0 && seq > 0;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public byte[] readRange(Connection conn, String hash, long offset, int length) {
+        if (offset < 0 || length < 1) {
+            throw new IllegalArgumentException("offset不能小于0，length必须大于0");
+        }
+        long end = offset + length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        BlobTransfer transfer = commonBlobQuery(conn, RANGE_SQL, out,
+                offset, length, hash, offset,
+                offset, end, offset, hash, offset, offset, end);
+        if (transfer != null) {
+            return out.toByteArray();
+        }
+        // RANGE_SQL只查没有压缩的对象，没查到时再看是不是压缩存储的
+        StoredBlob stored = getStoredBlob(conn, hash);
+        if (stored == null || stored.getCodec() == 0 || offset >= stored.getSize()) {
+            return null;
+        }
+        return readCompressedRange(conn, stored, offset, length);
+    }
+
+    /**
+     * 压缩后的内容只能从头解压，解压出来的字节数到offset之前的丢掉，收集够length个就不再要了
+     * 数据库还是要把整个对象传过来
+     */
+    private byte[] readCompressedRange(Connection conn, StoredBlob stored, long offset, int length) {
+        int wanted = (int) Math.min(length, stored.getSize() - offset);
+        ByteArrayOutputStream range = new ByteArrayOutputStream(wanted);
+        OutputStream window = new OutputStream() {
+            private long position;
+
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                long from = Math.max(position, offset);
+                long to = Math.min(position + len, offset + wanted);
+                if (from < to) {
+                    range.write(b, off + (int) (from - position), (int) (to - from));
+                }
+                position += len;
+            }
+        };
+        try (OutputStream out = BlobCompression.byId(stored.getCodec()).decompress(window)) {
+            if (!copyStored(conn, stored, out)) {
+                return null;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (range.size() != wanted) {
+            new IOException("读出的内容不完整：" + stored.getHash()).printStackTrace();
+            return null;
+        }
+        return range.toByteArray();
+    }
+
+    @Override
+    public StoredBlob getStoredBlob(Connection conn, String hash) {
+        String sql = "select hash, size, ref_count refCount, chunk_size chunkSize, chunk_hash chunkHash, codec " +
+                "from blob_store where hash = ?;";
+        List<StoredBlob> list = commonQuery(conn, sql, hash);
+        return list == null || list.isEmpty() ? null : list.get(0);
+    }
+
+    @Override
+    public int release(Connection conn, String hash) {
+        String sql = "update blob_store set ref_count = ref_count - 1 where hash = ? and ref_count > 0;";
+        int count = commonUpdate(conn, sql, hash);
+        if (count > 0) {
+            sql = "delete k from blob_chunk k " + CHUNKS_OF_RELEASED + "and b.hash = ?;";
+            commonUpdate(conn, sql, hash);
+            sql = "delete from blob_store where hash = ? and ref_count = 0;";
+            commonUpdate(conn, sql, hash);
+        }
+        return count;
+    }
+
+    @Override
+    public int purge(Connection conn) {
+        String sql = "delete k from blob_chunk k " + CHUNKS_OF_RELEASED + ";";
+        commonUpdate(conn, sql);
+        sql = "delete from blob_store where ref_count = 0;";
+        return commonUpdate(conn, sql);
+    }
+}
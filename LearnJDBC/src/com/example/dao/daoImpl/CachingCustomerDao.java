@@ -0,0 +1,250 @@
+package com.example.dao.daoImpl;
+
+import com.example.bean.Customer;
+import com.example.blob.BlobTransfer;
+import com.example.dao.CustomerDao;
+import com.example.dao.cache.CacheStats;
+import com.example.dao.cache.SegmentedLruCache;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 9:40
+ * @Description:
+ *      带缓存的CustomerDao，包装另一个CustomerDao（一般是CustomerDaoImpl）
+ *          getCustomerById   先查缓存（SegmentedLruCache），没有才查数据库，查到的放进缓存
+ *          增删改            先交给被包装的Dao执行，再把涉及的id从缓存中移除
+ *          其他查询          直接交给被包装的Dao
+ *
+ *      同一个id同时有多个线程未命中时，只有第一个线程查数据库，其他线程等它的结果
+ *      （用的是第一个线程的连接，其他线程的连接这次没有用到）
+ *
+ *      缓存中存的和返回的都是副本，调用者修改拿到的Customer不会影响缓存
+ *
+ *      注意：
+ *          1. 只有经过这个Dao的修改才会让缓存失效，直接写SQL或者其他程序修改了数据库，缓存不知道，
+ *             这种情况下可以设置过期时间，或者手动invalidate
+ *          2. 在事务中修改时，缓存在执行语句后就失效了，事务提交之前其他线程还可能把旧数据重新读进缓存，
+ *             需要严格一致的话，在提交之后再调用一次invalidate
+ */
+public class CachingCustomerDao implements CustomerDao {
+
+    private final CustomerDao delegate;
+    private final SegmentedLruCache<Integer, Customer> cache;
+    // 正在从数据库加载的id
+    private final ConcurrentMap<Integer, CompletableFuture<Customer>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+
+    /**
+     * @param delegate               真正访问数据库的Dao
+     * @param maximumSize            最多缓存多少个Customer
+     * @param expireAfterWriteMillis 放入缓存后多久过期，<=0 不过期
+     */
+    public CachingCustomerDao(CustomerDao delegate, int maximumSize, long expireAfterWriteMillis) {
+        this.delegate = delegate;
+        this.cache = new SegmentedLruCache<>(maximumSize, expireAfterWriteMillis);
+    }
+
+    public CachingCustomerDao(CustomerDao delegate, int maximumSize) {
+        this(delegate, maximumSize, 0);
+    }
+
+    @Override
+    public Customer getCustomerById(Connection conn, int id) {
+        Customer cached = cache.get(id);
+        if (cached != null) {
+            return copy(cached);
+        }
+
+        CompletableFuture<Customer> future = new CompletableFuture<>();
+        CompletableFuture<Customer> existing = loading.putIfAbsent(id, future);
+        if (existing != null) {
+            // 别的线程正在查同一个id，等它的结果
+            coalescedLoads.increment();
+            Customer loaded = await(existing);
+            return loaded == null ? null : copy(loaded);
+        }
+
+        loads.increment();
+        Customer loaded;
+        try {
+            loaded = delegate.getCustomerById(conn, id);
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            loading.remove(id, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+
+        Customer snapshot = loaded == null ? null : copy(loaded);
+        if (snapshot != null) {
+            cache.put(id, snapshot);
+        }
+        // 加载期间被invalidate过（loading中已经不是自己了），查到的可能是修改之前的数据，不能留在缓存中
+        if (!loading.remove(id, future) && snapshot != null) {
+            cache.invalidate(id);
+        }
+        future.complete(snapshot);
+        return loaded;
+    }
+
+    private static Customer await(CompletableFuture<Customer> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CompletionException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    @Override
+    public int insert(Connection conn, Customer customer) {
+        int count = delegate.insert(conn, customer);
+        // 自增主键一般id为0，不会命中；指定了id插入的，把之前这个id的缓存清掉
+        invalidate(customer.getId());
+        return count;
+    }
+
+    @Override
+    public int deleteById(Connection conn, int id) {
+        int count = delegate.deleteById(conn, id);
+        invalidate(id);
+        return count;
+    }
+
+    @Override
+    public int update(Connection conn, Customer customer) {
+        int count = delegate.update(conn, customer);
+        invalidate(customer.getId());
+        return count;
+    }
+
+    @Override
+    public int insertAll(Connection conn, List<Customer> customers) {
+        int count = delegate.insertAll(conn, customers);
+        for (Customer customer : customers) {
+            invalidate(customer.getId());
+        }
+        return count;
+    }
+
+    @Override
+    public int updateAll(Connection conn, List<Customer> customers) {
+        int count = delegate.updateAll(conn, customers);
+        for (Customer customer : customers) {
+            invalidate(customer.getId());
+        }
+        return count;
+    }
+
+    @Override
+    public int deleteByIds(Connection conn, List<Integer> ids) {
+        int count = delegate.deleteByIds(conn, ids);
+        for (Integer id : ids) {
+            invalidate(id);
+        }
+        return count;
+    }
+
+    @Override
+    public List<Customer> getCustomersByIds(Connection conn, List<Integer> ids) {
+        // 批量查询不经过缓存，要利用缓存就逐个getCustomerById
+        return delegate.getCustomersByIds(conn, ids);
+    }
+
+    @Override
+    public List<Customer> getAll(Connection conn) {
+        return delegate.getAll(conn);
+    }
+
+    @Override
+    public Stream<Customer> streamAll(Connection conn) throws SQLException {
+        return delegate.streamAll(conn);
+    }
+
+    @Override
+    public Long getCount(Connection conn) {
+        return delegate.getCount(conn);
+    }
+
+    @Override
+    public BlobTransfer savePhoto(Connection conn, int id, Path file) {
+        return delegate.savePhoto(conn, id, file);
+    }
+
+    @Override
+    public BlobTransfer loadPhoto(Connection conn, int id, Path target) {
+        return delegate.loadPhoto(conn, id, target);
+    }
+
+    @Override
+    public ByteBuffer readPhoto(Connection conn, int id) {
+        return delegate.readPhoto(conn, id);
+    }
+
+    @Override
+    public Date getMaxBirth(Connection conn) {
+        return delegate.getMaxBirth(conn);
+    }
+
+    /**
+     * @Date: 2026/10/19 9:55
+     * @Description:
+     *      移除某个id的缓存，正在加载这个id的结果也不会再放进缓存
+     *
+     * @Param: [id]
+     * @return: void
+     */
+    public void invalidate(int id) {
+        loading.remove(id);
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        loading.clear();
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats(loads.sum(), loadFailures.sum(), coalescedLoads.sum());
+    }
+
+    public void resetStats() {
+        cache.resetStats();
+        loads.reset();
+        loadFailures.reset();
+        coalescedLoads.reset();
+    }
+
+    private static Customer copy(Customer customer) {
+        Date birth = customer.getBirth();
+        Customer copy = new Customer(customer.getId(), customer.getName(), customer.getEmail(),
+                birth == null ? null : new Date(birth.getTime()));
+        // LazyBlob不可变，可以共享
+        copy.setPhoto(customer.getPhoto());
+        return copy;
+    }
+}
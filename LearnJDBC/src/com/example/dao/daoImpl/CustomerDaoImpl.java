@@ -1,40 +1,90 @@
 package com.example.dao.daoImpl;
 
 import com.example.bean.Customer;
+import com.example.blob.BlobCompression;
+import com.example.blob.BlobTransfer;
 import com.example.dao.BaseDao;
+import com.example.dao.BlobStoreDao;
 import com.example.dao.CustomerDao;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author: Yi-27
  * @projectName: LearnJDBC
  * @create: 2020-11-08 8:50
  * @Description:
- *
+ *  照片存在blob_store中（见BlobStoreDao），customers.photo_hash引用它，
+ *  修改照片、删除customer时在同一个事务中维护引用计数
  */
 public class CustomerDaoImpl extends BaseDao<Customer> implements CustomerDao {
+
+    // 删除customer之前，先锁住这些行并数出有照片的行数，减少引用时必须正好减少这么多行，否则回滚
+    private static final String COUNT_PHOTO_SQL = "select count(photo_hash) from customers where id = ? for update";
+    // 一次最多数这么多个id
+    private static final int COUNT_PHOTO_BATCH = 500;
+
+    // 删除customer之前，先减少它的照片的引用
+    private static final String RELEASE_PHOTO_SQL =
+            "update blob_store set ref_count = ref_count - 1 " +
+            "where hash = (select photo_hash from customers where id = ?) and ref_count > 0";
+
+    private final BlobStoreDao blobStore;
+
+    public CustomerDaoImpl() {
+        // 照片的压缩算法由系统属性 jdbc.blob.codec.customers.photo 指定，默认不压缩
+        this(new BlobStoreDaoImpl(null, BlobCompression.codecFor("customers.photo")));
+    }
+
+    /**
+     * @param blobStore 照片存在哪里，例如带ChunkedBlobStore的BlobStoreDaoImpl，大照片分块并行上传
+     */
+    public CustomerDaoImpl(BlobStoreDao blobStore) {
+        this.blobStore = blobStore;
+    }
+
     @Override
-    public void insert(Connection conn, Customer customer) {
+    public int insert(Connection conn, Customer customer) {
         String sql = "insert into customers(name, birth, email) values(?, ?, ?);";
         // 使用通用的增删改操作
-        commonUpdate(conn, sql, customer.getName(), customer.getBirth(), customer.getEmail());
+        return commonUpdate(conn, sql, customer.getName(), customer.getBirth(), customer.getEmail());
     }
 
     @Override
-    public void deleteById(Connection conn, int id) {
+    public int deleteById(Connection conn, int id) {
         String sql = "delete from customers where id = ?;";
-        // 也使用通用的增删改操作
-        commonUpdate(conn, sql, id);
+        Integer count = commonTransaction(conn, c -> {
+            Long withPhoto = getValue(c, COUNT_PHOTO_SQL, id);
+            // 查询失败，或者有照片却没能减少引用（commonUpdate出错时也返回0），不能删除，否则引用永远减不到0
+            if (withPhoto == null || commonUpdate(c, RELEASE_PHOTO_SQL, id) < withPhoto) {
+                return null;
+            }
+            // 也使用通用的增删改操作
+            int deleted = commonUpdate(c, sql, id);
+            if (deleted == 0) {
+                // 没有这个id或者失败了，回滚掉上面减少的引用
+                return null;
+            }
+            blobStore.purge(c);
+            return deleted;
+        });
+        return count == null ? 0 : count;
     }
 
     @Override
-    public void update(Connection conn, Customer customer) {
+    public int update(Connection conn, Customer customer) {
         String sql = "update customers set name = ?, birth = ?, email = ? where id = ?;";
         // 通用使用通用的更新操作
-        commonUpdate(conn, sql, customer.getName(), customer.getBirth(), customer.getEmail(), customer.getId());
+        return commonUpdate(conn, sql, customer.getName(), customer.getBirth(), customer.getEmail(), customer.getId());
     }
 
     @Override
@@ -44,6 +94,115 @@ public class CustomerDaoImpl extends BaseDao<Customer> implements CustomerDao {
         return customerList.get(0);
     }
 
+    // in (...) 中占位符的个数只用这几种，不够的用最后一个id补齐，
+    // 这样同一个连接上最多只有这么几条不同的SQL，StatementCache不会被各种长度的in列表占满
+    private static final int[] IN_LIST_BUCKETS = {1, 4, 16, 64, 256};
+    private static final String[] IN_LIST_SQL = new String[IN_LIST_BUCKETS.length];
+    static {
+        for (int i = 0; i < IN_LIST_BUCKETS.length; i++) {
+            StringBuilder sql = new StringBuilder("select id, name, email, birth from customers where id in (");
+            for (int j = 0; j < IN_LIST_BUCKETS[i]; j++) {
+                sql.append(j == 0 ? "?" : ", ?");
+            }
+            IN_LIST_SQL[i] = sql.append(")").toString();
+        }
+    }
+
+    @Override
+    public List<Customer> getCustomersByIds(Connection conn, List<Integer> ids) {
+        // 重复的id没必要查
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Customer> customers = new ArrayList<>(distinct.size());
+        int maxBucket = IN_LIST_BUCKETS[IN_LIST_BUCKETS.length - 1];
+        for (int from = 0; from < distinct.size(); from += maxBucket) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + maxBucket, distinct.size()));
+            int bucket = bucketIndex(chunk.size());
+            int size = IN_LIST_BUCKETS[bucket];
+
+            Object[] args = Arrays.copyOf(chunk.toArray(), size);
+            Arrays.fill(args, chunk.size(), size, chunk.get(chunk.size() - 1));
+            List<Customer> found = commonQuery(conn, IN_LIST_SQL[bucket], args);
+            if (found == null) {
+                return null;
+            }
+            customers.addAll(found);
+        }
+        return customers;
+    }
+
+    private static int bucketIndex(int count) {
+        for (int i = 0; i < IN_LIST_BUCKETS.length; i++) {
+            if (IN_LIST_BUCKETS[i] >= count) {
+                return i;
+            }
+        }
+        return IN_LIST_BUCKETS.length - 1;
+    }
+
+    @Override
+    public int insertAll(Connection conn, List<Customer> customers) {
+        // 批处理的SQL最后不能加分号
+        String sql = "insert into customers(name, birth, email) values(?, ?, ?)";
+        List<Object[]> argsList = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            argsList.add(new Object[]{customer.getName(), customer.getBirth(), customer.getEmail()});
+        }
+        return commonBatchUpdate(conn, sql, argsList);
+    }
+
+    @Override
+    public int updateAll(Connection conn, List<Customer> customers) {
+        String sql = "update customers set name = ?, birth = ?, email = ? where id = ?";
+        List<Object[]> argsList = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            argsList.add(new Object[]{customer.getName(), customer.getBirth(), customer.getEmail(), customer.getId()});
+        }
+        return commonBatchUpdate(conn, sql, argsList);
+    }
+
+    @Override
+    public int deleteByIds(Connection conn, List<Integer> ids) {
+        String sql = "delete from customers where id = ?";
+        // 同一个id出现两次时引用只能减一次
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Object[]> argsList = new ArrayList<>(distinct.size());
+        for (Integer id : distinct) {
+            argsList.add(new Object[]{id});
+        }
+        Integer count = commonTransaction(conn, c -> {
+            Long withPhoto = countPhotos(c, distinct);
+            if (withPhoto == null || commonBatchUpdate(c, RELEASE_PHOTO_SQL, argsList) < withPhoto) {
+                return null;
+            }
+            int deleted = commonBatchUpdate(c, sql, argsList);
+            if (deleted == 0) {
+                return null;
+            }
+            blobStore.purge(c);
+            return deleted;
+        });
+        return count == null ? 0 : count;
+    }
+
+    // 锁住这些id的行，数出其中有照片的行数，出错时返回null
+    private Long countPhotos(Connection conn, List<Integer> ids) {
+        long total = 0;
+        for (int from = 0; from < ids.size(); from += COUNT_PHOTO_BATCH) {
+            List<Integer> part = ids.subList(from, Math.min(ids.size(), from + COUNT_PHOTO_BATCH));
+            StringBuilder sql = new StringBuilder("select count(photo_hash) from customers where id in (");
+            for (int i = 0; i < part.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") for update");
+            Long count = getValue(conn, sql.toString(), part.toArray());
+            if (count == null) {
+                return null;
+            }
+            total += count;
+        }
+        return total;
+    }
+
     @Override
     public List<Customer> getAll(Connection conn) {
         // 获取全部的customer
@@ -51,6 +210,13 @@ public class CustomerDaoImpl extends BaseDao<Customer> implements CustomerDao {
         return commonQuery(conn, sql);
     }
 
+    @Override
+    public Stream<Customer> streamAll(Connection conn) throws SQLException {
+        // 和getAll一样的语句，只是边读边封装
+        String sql = "select id, name, email, birth from customers";
+        return streamQuery(conn, sql);
+    }
+
     @Override
     public Long getCount(Connection conn) {
         String sql = "select count(*) from customers;";
@@ -62,4 +228,45 @@ public class CustomerDaoImpl extends BaseDao<Customer> implements CustomerDao {
         String sql = "select max(birth) from customers;";
         return getValue(conn, sql);
     }
+
+    @Override
+    public BlobTransfer savePhoto(Connection conn, int id, Path file) {
+        long start = System.nanoTime();
+        return commonTransaction(conn, c -> {
+            // 锁住这一行，并发修改同一个customer的照片时，原来的照片只释放一次
+            // 没有照片时查出来的是''，null只表示查询失败或者没有这个id，这两种情况都不能继续，否则原来的照片引用永远减不到0
+            String oldHash = getValue(c, "select coalesce(photo_hash, '') from customers where id = ? for update;", id);
+            if (oldHash == null) {
+                return null;
+            }
+            String hash = blobStore.put(c, file);
+            if (hash == null) {
+                return null;
+            }
+            if (commonUpdate(c, "update customers set photo_hash = ? where id = ?;", hash, id) == 0) {
+                // 没有这个id，回滚掉上面增加的引用
+                return null;
+            }
+            // 新旧照片相同时，上面加1这里减1，引用计数不变
+            if (!oldHash.isEmpty() && blobStore.release(c, oldHash) == 0) {
+                // 没能减少原来照片的引用，回滚，和deleteById一样
+                return null;
+            }
+            // 内容已经存过时没有传输，耗时只是计算hash和增加引用的时间
+            return new BlobTransfer(file.toFile().length(), System.nanoTime() - start);
+        });
+    }
+
+    @Override
+    public BlobTransfer loadPhoto(Connection conn, int id, Path target) {
+        String hash = getValue(conn, "select photo_hash from customers where id = ?;", id);
+        // 照片可能是分块存储的，交给blobStore按存储方式读取
+        return hash == null ? null : blobStore.get(conn, hash, target);
+    }
+
+    @Override
+    public ByteBuffer readPhoto(Connection conn, int id) {
+        String hash = getValue(conn, "select photo_hash from customers where id = ?;", id);
+        return hash == null ? null : blobStore.read(conn, hash);
+    }
 }
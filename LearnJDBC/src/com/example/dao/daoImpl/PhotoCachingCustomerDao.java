@@ -0,0 +1,211 @@
+package com.example.dao.daoImpl;
+
+import com.example.bean.Customer;
+import com.example.blob.BlobTransfer;
+import com.example.dao.CustomerDao;
+import com.example.dao.cache.OffHeapBlobCache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 17:40
+ * @Description:
+ *      在另一个CustomerDao前面加一层堆外的照片缓存，按customer的id缓存
+ *      readPhoto命中时直接返回缓存的只读视图，不查询数据库也不复制；loadPhoto命中时从缓存写入文件
+ *      经过这个Dao的savePhoto、deleteById、deleteByIds会让对应的缓存失效，
+ *      没有经过这个Dao的修改（别的程序、别的Dao对象）不会让缓存失效
+ *
+ *      在调用者自己的事务中（关闭了自动提交）修改时，执行完语句事务还没提交，其他线程这时读到的还是旧照片，
+ *      放进缓存的话会一直留着（缓存没有过期时间）。所以这些id在事务结束前不再放入缓存，
+ *      调用者提交或者回滚之后要对每个修改过的id调用invalidate(id)，之后才会重新缓存：
+ *          conn.setAutoCommit(false);
+ *          customerDao.savePhoto(conn, id, file);
+ *          conn.commit();
+ *          customerDao.invalidate(id);
+ *
+ *      例如：
+ *          CustomerDao customerDao = new PhotoCachingCustomerDao(new CustomerDaoImpl(),
+ *                  new OffHeapBlobCache<>(256L * 1024 * 1024, OffHeapBlobCache.EvictionPolicy.LFU));
+ */
+public class PhotoCachingCustomerDao implements CustomerDao {
+
+    private final CustomerDao delegate;
+    private final OffHeapBlobCache<Integer> cache;
+    // 在还没提交的事务中修改过照片的id，读到的可能是提交之前的旧照片，不放入缓存
+    private final Set<Integer> uncommitted = ConcurrentHashMap.newKeySet();
+
+    public PhotoCachingCustomerDao(CustomerDao delegate, OffHeapBlobCache<Integer> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public ByteBuffer readPhoto(Connection conn, int id) {
+        ByteBuffer cached = cache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = cache.stamp();
+        ByteBuffer loaded = delegate.readPhoto(conn, id);
+        if (loaded == null) {
+            return null;
+        }
+        // 加载期间照片被修改过时不会放入
+        if (!uncommitted.contains(id)) {
+            cache.put(id, loaded, stamp);
+        }
+        return loaded.asReadOnlyBuffer();
+    }
+
+    @Override
+    public BlobTransfer loadPhoto(Connection conn, int id, Path target) {
+        long start = System.nanoTime();
+        ByteBuffer photo = readPhoto(conn, id);
+        if (photo == null) {
+            return null;
+        }
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = photo.remaining();
+            while (photo.hasRemaining()) {
+                out.write(photo);
+            }
+            return new BlobTransfer(size, System.nanoTime() - start);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public BlobTransfer savePhoto(Connection conn, int id, Path file) {
+        beforeModify(conn, Collections.singletonList(id));
+        try {
+            return delegate.savePhoto(conn, id, file);
+        } finally {
+            afterModify(Collections.singletonList(id));
+        }
+    }
+
+    @Override
+    public int deleteById(Connection conn, int id) {
+        beforeModify(conn, Collections.singletonList(id));
+        try {
+            return delegate.deleteById(conn, id);
+        } finally {
+            afterModify(Collections.singletonList(id));
+        }
+    }
+
+    @Override
+    public int deleteByIds(Connection conn, List<Integer> ids) {
+        beforeModify(conn, ids);
+        try {
+            return delegate.deleteByIds(conn, ids);
+        } finally {
+            afterModify(ids);
+        }
+    }
+
+    // 在调用者的事务中时，先把这些id登记为还没提交，要在执行语句之前登记，否则执行完到登记之间读到的旧照片还会放入缓存
+    private void beforeModify(Connection conn, List<Integer> ids) {
+        boolean inTransaction;
+        try {
+            inTransaction = !conn.getAutoCommit();
+        } catch (SQLException e) {
+            // 不知道的话按在事务中处理，最多是少缓存一段时间
+            inTransaction = true;
+        }
+        if (inTransaction) {
+            uncommitted.addAll(ids);
+        }
+    }
+
+    private void afterModify(List<Integer> ids) {
+        for (Integer id : ids) {
+            cache.invalidate(id);
+        }
+    }
+
+    /**
+     * @Date: 2026/10/19 17:50
+     * @Description:
+     *      在自己的事务中通过这个Dao修改过照片的，提交或者回滚之后调用，
+     *      让这个id的缓存再失效一次，并且之后可以重新放入缓存
+     *
+     * @Param: [id]
+     * @return: void
+     */
+    public void invalidate(int id) {
+        uncommitted.remove(id);
+        cache.invalidate(id);
+    }
+
+    @Override
+    public int insert(Connection conn, Customer customer) {
+        return delegate.insert(conn, customer);
+    }
+
+    @Override
+    public int update(Connection conn, Customer customer) {
+        return delegate.update(conn, customer);
+    }
+
+    @Override
+    public Customer getCustomerById(Connection conn, int id) {
+        return delegate.getCustomerById(conn, id);
+    }
+
+    @Override
+    public List<Customer> getCustomersByIds(Connection conn, List<Integer> ids) {
+        return delegate.getCustomersByIds(conn, ids);
+    }
+
+    @Override
+    public int insertAll(Connection conn, List<Customer> customers) {
+        return delegate.insertAll(conn, customers);
+    }
+
+    @Override
+    public int updateAll(Connection conn, List<Customer> customers) {
+        return delegate.updateAll(conn, customers);
+    }
+
+    @Override
+    public List<Customer> getAll(Connection conn) {
+        return delegate.getAll(conn);
+    }
+
+    @Override
+    public Stream<Customer> streamAll(Connection conn) throws SQLException {
+        return delegate.streamAll(conn);
+    }
+
+    @Override
+    public Long getCount(Connection conn) {
+        return delegate.getCount(conn);
+    }
+
+    @Override
+    public Date getMaxBirth(Connection conn) {
+        return delegate.getMaxBirth(conn);
+    }
+
+    public OffHeapBlobCache<Integer> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.dao.event;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 23:35
+ * @Description:
+ *      Dao层的Java Flight Recorder事件入口
+ *      BaseDao的commonQuery、commonUpdate、getValue每次调用都会生成一个 com.example.dao.Operation 事件，
+ *      包含SQL指纹、参数个数、行数、执行耗时、映射耗时和连接池名字
+ *
+ *      使用：
+ *          java -XX:StartFlightRecording=settings=dao.jfc,filename=dao.jfr ...
+ *          dao.jfc（在src下）打开了这个事件，同时打开了GC、锁竞争、socket读等事件，方便在JMC中对照
+ *
+ *      引用了jdk.jfr的DaoOperationEvent、JfrDaoOperationTrace在单独的jfr模块（LearnJDBC/jfr）中，
+ *      只在JDK 11以上编译，主模块仍然按Java 8编译；运行时把jfr模块的输出放到classpath上才会记录事件
+ *
+ *      开销：
+ *          JVM没有JFR（8u262之前的JDK 8）、classpath上没有jfr模块或者系统属性 jdbc.jfr=false 时，begin返回空实现
+ *          有JFR但没有在录制这个事件时，只多一次isEnabled()判断
+ */
+public final class DaoEvents {
+
+    // JfrDaoOperationTrace.begin，不可用时为null
+    private static final MethodHandle BEGIN = detect();
+    private static final boolean AVAILABLE = BEGIN != null;
+
+    private DaoEvents() {
+    }
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * @Date: 2026/10/18 23:40
+     * @Description:
+     *      开始记录一次Dao操作，返回的DaoOperationTrace一定不为null
+     *
+     * @Param: [operation 方法名，比如 commonQuery, entity Dao操作的Bean类型]
+     * @return: com.example.dao.event.DaoOperationTrace
+     */
+    public static DaoOperationTrace begin(String operation, Class<?> entity) {
+        if (!AVAILABLE) {
+            return DaoOperationTrace.NOOP;
+        }
+        try {
+            return (DaoOperationTrace) BEGIN.invokeExact(operation, entity);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // begin没有声明受检异常，不会走到这里
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle detect() {
+        if (!Boolean.parseBoolean(System.getProperty("jdbc.jfr", "true"))) {
+            return null;
+        }
+        try {
+            // 只有确认有jdk.jfr之后才会加载引用了它的类
+            Class.forName("jdk.jfr.Event", false, DaoEvents.class.getClassLoader());
+            Class<?> trace = Class.forName("com.example.dao.event.JfrDaoOperationTrace", true, DaoEvents.class.getClassLoader());
+            return MethodHandles.publicLookup().findStatic(trace, "begin",
+                    MethodType.methodType(DaoOperationTrace.class, String.class, Class.class));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
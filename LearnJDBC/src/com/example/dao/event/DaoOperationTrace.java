@@ -0,0 +1,32 @@
+package com.example.dao.event;
+
+import java.sql.Connection;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 23:25
+ * @Description:
+ *      一次Dao操作的记录过程，由DaoEvents.begin获取
+ *          begin        开始，预编译SQL之前
+ *          executed()   SQL执行完，开始处理结果集
+ *          commit(...)  全部结束，在finally中调用，没调用过executed()时整个耗时都算执行时间
+ *
+ *      这个接口不引用jdk.jfr，BaseDao只依赖它，没有JFR的JVM上拿到的是什么也不做的实现
+ */
+public interface DaoOperationTrace {
+
+    DaoOperationTrace NOOP = new DaoOperationTrace() {
+        @Override
+        public void executed() {
+        }
+
+        @Override
+        public void commit(Connection conn, String sql, int parameterCount, long rows, boolean failed) {
+        }
+    };
+
+    void executed();
+
+    void commit(Connection conn, String sql, int parameterCount, long rows, boolean failed);
+}
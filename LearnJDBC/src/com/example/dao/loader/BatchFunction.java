@@ -0,0 +1,18 @@
+package com.example.dao.loader;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 11:40
+ * @Description:
+ *      BatchLoader用来一次加载一批key的函数，比如一条 select ... where id in (...)
+ *      keys中没有重复，返回的Map中没有的key对应的结果为null
+ */
+@FunctionalInterface
+public interface BatchFunction<K, V> {
+
+    Map<K, V> load(List<K> keys) throws Exception;
+}
@@ -0,0 +1,223 @@
+package com.example.dao.loader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 11:45
+ * @Description:
+ *      合并并发的单个查询（DataLoader的做法）
+ *      load(key)不立即查询，而是先攒起来：从第一个请求开始等maxDelayMicros，或者攒够maxBatchSize个不同的key，
+ *      就把这一批交给BatchFunction一次查出来，再把结果分别交给每个请求的CompletableFuture
+ *      同一批中重复的key只查一次
+ *
+ *      查询在dispatchThreads个后台线程中执行，攒批的等待由一个定时线程负责，调用load的线程不会被阻塞
+ *      用完要close，还没发出去的请求会立即发出
+ */
+public class BatchLoader<K, V> implements AutoCloseable {
+
+    private final BatchFunction<K, V> batchFunction;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService dispatcher;
+
+    private final Object lock = new Object();
+    // 还没发出去的请求，key -> 等这个key的所有Future；由lock保护
+    private Map<K, List<CompletableFuture<V>>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> flushTask;
+    private boolean closed;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedKeys = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    /**
+     * @param batchFunction   一次加载一批key
+     * @param maxBatchSize    一批最多多少个不同的key，攒够了立即发出
+     * @param maxDelayMicros  第一个请求最多等多久（微秒）
+     * @param dispatchThreads 同时执行的批次数，一般不超过连接池的大小
+     */
+    public BatchLoader(BatchFunction<K, V> batchFunction, int maxBatchSize, long maxDelayMicros, int dispatchThreads) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize必须大于0");
+        }
+        this.batchFunction = batchFunction;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "batch-loader-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, r -> {
+            Thread thread = new Thread(r, "batch-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @Date: 2026/10/19 11:55
+     * @Description:
+     *      请求加载一个key，结果通过返回的Future交付，BatchFunction抛出异常时Future也以这个异常完成
+     *
+     * @Param: [key]
+     * @return: java.util.concurrent.CompletableFuture<V>
+     */
+    public CompletableFuture<V> load(K key) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        requests.increment();
+        Map<K, List<CompletableFuture<V>>> batch = null;
+        synchronized (lock) {
+            if (closed) {
+                future.completeExceptionally(new IllegalStateException("BatchLoader已经关闭"));
+                return future;
+            }
+            pending.computeIfAbsent(key, k -> new ArrayList<>(1)).add(future);
+            if (pending.size() >= maxBatchSize) {
+                batch = takePending();
+            } else if (flushTask == null) {
+                flushTask = timer.schedule(this::flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+        return future;
+    }
+
+    /**
+     * @Date: 2026/10/19 12:00
+     * @Description:
+     *      同步加载，等待结果返回
+     *
+     * @Param: [key]
+     * @return: V 没有这个key时返回null
+     */
+    public V get(K key) throws Exception {
+        try {
+            return load(key).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    /**
+     * @Date: 2026/10/19 12:02
+     * @Description:
+     *      不等了，立即发出攒着的请求
+     *
+     * @Param: []
+     * @return: void
+     */
+    public void flush() {
+        Map<K, List<CompletableFuture<V>>> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        dispatch(batch);
+    }
+
+    // 调用时必须持有lock
+    private Map<K, List<CompletableFuture<V>>> takePending() {
+        Map<K, List<CompletableFuture<V>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(Map<K, List<CompletableFuture<V>>> batch) {
+        try {
+            dispatcher.execute(() -> execute(batch));
+        } catch (RuntimeException e) {
+            // 线程池已经关闭
+            completeExceptionally(batch, e);
+        }
+    }
+
+    private void execute(Map<K, List<CompletableFuture<V>>> batch) {
+        batches.increment();
+        batchedKeys.add(batch.size());
+        Map<K, V> results;
+        try {
+            results = batchFunction.load(new ArrayList<>(batch.keySet()));
+        } catch (Exception | Error e) {
+            failedBatches.increment();
+            completeExceptionally(batch, e);
+            return;
+        }
+        for (Map.Entry<K, List<CompletableFuture<V>>> entry : batch.entrySet()) {
+            V value = results == null ? null : results.get(entry.getKey());
+            for (CompletableFuture<V> future : entry.getValue()) {
+                future.complete(value);
+            }
+        }
+    }
+
+    private static <K, V> void completeExceptionally(Map<K, List<CompletableFuture<V>>> batch, Throwable e) {
+        for (List<CompletableFuture<V>> futures : batch.values()) {
+            for (CompletableFuture<V> future : futures) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * 平均每批多少个不同的key
+     */
+    public double getAverageBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) batchedKeys.sum() / count;
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        timer.shutdown();
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dao.loader;
+
+import com.example.bean.Customer;
+import com.example.dao.CustomerDao;
+import com.example.utils.ConnectionSource;
+import com.example.utils.JDBCUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 12:10
+ * @Description:
+ *      合并并发的getCustomerById
+ *      很多线程同时按id查customer时，每个线程都要一次网络往返；
+ *      改用load(id)后，一小段时间内到达的请求合并成一条 select ... where id in (...)（CustomerDao.getCustomersByIds），
+ *      查出来再分给各个请求
+ *
+ *      每一批用ConnectionSource获取一个连接，查完就关闭，调用者不需要自己的连接
+ *
+ *      例如：
+ *          CustomerLoader loader = new CustomerLoader(new CustomerDaoImpl(), JDBCPoolUtils::getConnectionFromDruid, 64, 500, 4);
+ *          Customer customer = loader.get(1);
+ */
+public class CustomerLoader implements AutoCloseable {
+
+    private final CustomerDao customerDao;
+    private final ConnectionSource connectionSource;
+    private final BatchLoader<Integer, Customer> batchLoader;
+
+    /**
+     * @param customerDao      用它的getCustomersByIds批量查询
+     * @param connectionSource 每一批获取一个连接
+     * @param maxBatchSize     一批最多多少个id
+     * @param maxDelayMicros   第一个请求最多等多久（微秒）
+     * @param dispatchThreads  同时执行的查询数
+     */
+    public CustomerLoader(CustomerDao customerDao, ConnectionSource connectionSource,
+                          int maxBatchSize, long maxDelayMicros, int dispatchThreads) {
+        this.customerDao = customerDao;
+        this.connectionSource = connectionSource;
+        this.batchLoader = new BatchLoader<>(this::loadAll, maxBatchSize, maxDelayMicros, dispatchThreads);
+    }
+
+    public CompletableFuture<Customer> load(int id) {
+        return batchLoader.load(id);
+    }
+
+    /**
+     * @Date: 2026/10/19 12:15
+     * @Description:
+     *      同步获取，和getCustomerById不同的是没有这个id时返回null而不是抛出异常
+     *
+     * @Param: [id]
+     * @return: com.example.bean.Customer
+     */
+    public Customer get(int id) throws Exception {
+        return batchLoader.get(id);
+    }
+
+    private Map<Integer, Customer> loadAll(List<Integer> ids) throws Exception {
+        Connection conn = connectionSource.getConnection();
+        try {
+            List<Customer> customers = customerDao.getCustomersByIds(conn, ids);
+            if (customers == null) {
+                // BaseDao出错时返回null，异常已经打印了
+                throw new SQLException("批量查询customers失败，ids：" + ids);
+            }
+            Map<Integer, Customer> byId = new HashMap<>(customers.size() * 2);
+            for (Customer customer : customers) {
+                byId.put(customer.getId(), customer);
+            }
+            return byId;
+        } finally {
+            JDBCUtils.closeResource(conn, null);
+        }
+    }
+
+    public BatchLoader<Integer, Customer> getBatchLoader() {
+        return batchLoader;
+    }
+
+    @Override
+    public void close() {
+        batchLoader.close();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.dao.mapper;
+
+import com.example.blob.LazyBlob;
+import com.example.blob.LazyBlobColumn;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 9:20
+ * @Description:
+ *      基于MethodHandle的Bean封装器
+ *      原来的通用查询每一行、每一列都要 getDeclaredField + setAccessible + Field.set，
+ *      这里在创建时就把 列的位置 -> 属性的setter 一次性解析好，之后每一行直接按下标调用
+ *
+ *      一个BeanRowMapper只对应一种 (Bean类型, 结果集列的顺序) 的组合，
+ *      由 RowMapperCache 负责缓存和复用
+ *
+ *      LazyBlob类型的属性：
+ *          结果集中有这一列    已经读出来了，包装成LazyBlob.loaded
+ *          没有这一列         属性上有@LazyBlobColumn、且结果集中有它的key列时，设置一个延迟加载的LazyBlob，
+ *                            只记下key，用到时才查询BLOB
+ */
+public class BeanRowMapper<T> implements RowMapper<T> {
+
+    // LazyBlob.loaded(Object)，结果集中已有的BLOB列用它转换
+    private static final MethodHandle TO_LAZY_BLOB;
+
+    static {
+        try {
+            TO_LAZY_BLOB = MethodHandles.lookup().findStatic(LazyBlob.class, "loaded",
+                    MethodType.methodType(LazyBlob.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<T> clazz;
+    // 空参构造器，类型已经被适配成 ()Object
+    private final MethodHandle constructor;
+    // setters[i] 对应结果集中第 i+1 列，类型已经被适配成 (Object, Object)void
+    private final MethodHandle[] setters;
+    // 延迟加载的LazyBlob属性，lazySetters[j] 的key在结果集中第 lazyKeyColumns[j] 列
+    private final MethodHandle[] lazySetters;
+    private final int[] lazyKeyColumns;
+    private final String[] lazySelectSql;
+    private final String[] lazyCodecColumns;
+
+    /**
+     * @Date: 2026/10/18 9:25
+     * @Description:
+     *      解析出构造器和每一列对应的属性
+     *      与原来的通用查询保持一致：按列的别名（getColumnLabel）找当前类中声明的同名属性
+     *
+     * @Param: [clazz, columnLabels 结果集中按顺序排列的列别名]
+     * @return:
+     */
+    public BeanRowMapper(Class<T> clazz, String[] columnLabels) throws ReflectiveOperationException {
+        this.clazz = clazz;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        Constructor<T> declaredConstructor = clazz.getDeclaredConstructor();
+        declaredConstructor.setAccessible(true);
+        constructor = lookup.unreflectConstructor(declaredConstructor)
+                .asType(MethodType.methodType(Object.class));
+
+        setters = new MethodHandle[columnLabels.length];
+        for (int i = 0; i < columnLabels.length; i++) {
+            // 找不到属性时和原来一样抛出 NoSuchFieldException
+            Field field = clazz.getDeclaredField(columnLabels[i]);
+            // 防止该属性是私有属性导致无法set成功，只需要在创建时做一次
+            field.setAccessible(true);
+            // 适配成统一的 (Object, Object)void，基本类型会在调用时自动拆箱
+            MethodHandle setter = lookup.unreflectSetter(field);
+            if (field.getType() == LazyBlob.class) {
+                // 先把结果集中的byte[]/Blob转换成LazyBlob
+                setter = MethodHandles.filterArguments(setter, 1, TO_LAZY_BLOB);
+            }
+            setters[i] = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+
+        List<String> labels = Arrays.asList(columnLabels);
+        List<MethodHandle> lazy = new ArrayList<>();
+        List<Integer> keyColumns = new ArrayList<>();
+        List<String> selectSql = new ArrayList<>();
+        List<String> codecColumns = new ArrayList<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            LazyBlobColumn column = field.getAnnotation(LazyBlobColumn.class);
+            if (column == null || field.getType() != LazyBlob.class || labels.contains(field.getName())) {
+                continue;
+            }
+            int keyColumn = labels.indexOf(column.key());
+            if (keyColumn < 0) {
+                // 没有查询key列，定位不到这一行，保持null
+                continue;
+            }
+            field.setAccessible(true);
+            lazy.add(lookup.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, LazyBlob.class)));
+            keyColumns.add(keyColumn + 1);
+            selectSql.add(LazyBlob.selectSql(column));
+            codecColumns.add(column.codecColumn());
+        }
+        lazySetters = lazy.toArray(new MethodHandle[0]);
+        lazyKeyColumns = keyColumns.stream().mapToInt(Integer::intValue).toArray();
+        lazySelectSql = selectSql.toArray(new String[0]);
+        lazyCodecColumns = codecColumns.toArray(new String[0]);
+    }
+
+    @Override
+    public T mapRow(ResultSet resultSet) throws SQLException {
+        try {
+            Object t = (Object) constructor.invokeExact();
+            for (int i = 0; i < setters.length; i++) {
+                // 由于不知道是什么类型，所以还是用Object来取
+                setters[i].invokeExact(t, resultSet.getObject(i + 1));
+            }
+            for (int j = 0; j < lazySetters.length; j++) {
+                Object key = resultSet.getObject(lazyKeyColumns[j]);
+                LazyBlob blob = key == null ? null : LazyBlob.deferred(lazySelectSql[j], lazyCodecColumns[j], key);
+                lazySetters[j].invokeExact(t, blob);
+            }
+            return clazz.cast(t);
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // MethodHandle的调用声明了Throwable，这里统一包装成SQLException交给上层处理
+            throw new SQLException("封装 " + clazz.getName() + " 失败", e);
+        }
+    }
+
+    public int getColumnCount() {
+        return setters.length;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.dao.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 9:12
+ * @Description:
+ *      把结果集的当前行封装成一个对象
+ *      调用前需要由调用者自己 resultSet.next()，这里只负责处理当前这一行
+ */
+public interface RowMapper<T> {
+
+    /**
+     * @Date: 2026/10/18 9:12
+     * @Description:
+     *      将结果集当前行封装成对象
+     *
+     * @Param: [resultSet]
+     * @return: T
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+}
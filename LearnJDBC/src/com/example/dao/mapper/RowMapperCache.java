@@ -0,0 +1,82 @@
+package com.example.dao.mapper;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 9:40
+ * @Description:
+ *      BeanRowMapper的缓存
+ *      key为 (Bean类型, 结果集的形状)，结果集的形状就是按顺序拼起来的列别名
+ *      同一条SQL无论执行多少次、返回多少行，都只会创建一次BeanRowMapper
+ */
+public class RowMapperCache {
+
+    // 列别名之间的分隔符，列别名里不会出现这个字符
+    private static final char SEPARATOR = '\u0000';
+
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, BeanRowMapper<?>>> CACHE =
+            new ConcurrentHashMap<>();
+
+    private RowMapperCache() {
+    }
+
+    /**
+     * @Date: 2026/10/18 9:45
+     * @Description:
+     *      根据结果集元数据获取对应的封装器，没有就创建一个并缓存起来
+     *      每次查询只读一次元数据，而不是每一行都读
+     *
+     * @Param: [clazz, metaData]
+     * @return: com.example.dao.mapper.BeanRowMapper<T>
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanRowMapper<T> getMapper(Class<T> clazz, ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] columnLabels = new String[columnCount];
+        StringBuilder shape = new StringBuilder();
+        for (int i = 0; i < columnCount; i++) {
+            // getColumnLabel()：获取别名，当sql语句没有别名时，这样获取的就是列名
+            columnLabels[i] = metaData.getColumnLabel(i + 1);
+            shape.append(columnLabels[i]).append(SEPARATOR);
+        }
+
+        ConcurrentMap<String, BeanRowMapper<?>> mappers = CACHE.get(clazz);
+        if (mappers == null) {
+            mappers = CACHE.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>());
+        }
+
+        String key = shape.toString();
+        BeanRowMapper<?> mapper = mappers.get(key);
+        if (mapper == null) {
+            try {
+                mapper = new BeanRowMapper<>(clazz, columnLabels);
+            } catch (ReflectiveOperationException e) {
+                // 比如列别名在类中找不到对应的属性
+                throw new SQLException("无法为 " + clazz.getName() + " 创建结果集封装器", e);
+            }
+            // 并发创建时以先放进去的为准
+            BeanRowMapper<?> existing = mappers.putIfAbsent(key, mapper);
+            if (existing != null) {
+                mapper = existing;
+            }
+        }
+        return (BeanRowMapper<T>) mapper;
+    }
+
+    /**
+     * @Date: 2026/10/18 9:50
+     * @Description:
+     *      清空缓存，一般只在类被重新加载时才需要
+     *
+     * @Param: []
+     * @return: void
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+}
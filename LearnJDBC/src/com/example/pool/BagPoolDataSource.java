@@ -0,0 +1,488 @@
+package com.example.pool;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 16:40
+ * @Description:
+ *      自己实现的轻量连接池，作为c3p0、dbcp、druid之外的第四个选择
+ *      c3p0、dbcp、druid借连接的路径上都有synchronized或者锁，线程多了以后竞争很严重
+ *
+ *      借连接的过程见ConcurrentBag：线程本地 -> 共享列表CAS -> 等待交接，全程无锁
+ *      另外，刚刚还回来的连接（aliveBypassWindow内）借出时不再做有效性检查，省掉一次网络往返
+ *      归还时关闭使用者没关的Statement，把改过的自动提交、只读、隔离级别、catalog、网络超时恢复原样，
+ *      下一个借到的人拿到的总是干净的连接
+ *
+ *      配置项（bagpool.properties）：
+ *          driverClassName、url、username、password  与druid.properties相同
+ *          maxPoolSize          最大连接数，默认10
+ *          connectionTimeout    借连接最多等待的毫秒数，默认30000
+ *          aliveBypassWindow    归还后多少毫秒内借出不检查有效性，默认500
+ *          validationTimeout    检查有效性的超时秒数，默认5
+ */
+public class BagPoolDataSource implements DataSource, AutoCloseable {
+
+    private final String url;
+    private final Properties connectionProperties;
+    private final int maxPoolSize;
+    private final long connectionTimeoutNanos;
+    private final long aliveBypassWindowNanos;
+    private final int validationTimeoutSeconds;
+
+    // 归还时需要恢复的状态
+    static final int DIRTY_AUTO_COMMIT = 1;
+    static final int DIRTY_READ_ONLY = 1 << 1;
+    static final int DIRTY_ISOLATION = 1 << 2;
+    static final int DIRTY_CATALOG = 1 << 3;
+    static final int DIRTY_NETWORK_TIMEOUT = 1 << 4;
+
+    private final ConcurrentBag bag = new ConcurrentBag();
+    // 已经建立的和正在建立的连接总数
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private volatile boolean closed;
+
+    private PrintWriter logWriter;
+
+    public BagPoolDataSource(Properties pros) throws ClassNotFoundException {
+        String driverClassName = pros.getProperty("driverClassName");
+        if (driverClassName != null) {
+            // 加载驱动，只需要一次
+            Class.forName(driverClassName);
+        }
+        this.url = pros.getProperty("url");
+        this.connectionProperties = new Properties();
+        if (pros.getProperty("username") != null) {
+            connectionProperties.setProperty("user", pros.getProperty("username"));
+        }
+        if (pros.getProperty("password") != null) {
+            connectionProperties.setProperty("password", pros.getProperty("password"));
+        }
+        this.maxPoolSize = Integer.parseInt(pros.getProperty("maxPoolSize", "10"));
+        this.connectionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+                Long.parseLong(pros.getProperty("connectionTimeout", "30000")));
+        this.aliveBypassWindowNanos = TimeUnit.MILLISECONDS.toNanos(
+                Long.parseLong(pros.getProperty("aliveBypassWindow", "500")));
+        this.validationTimeoutSeconds = Integer.parseInt(pros.getProperty("validationTimeout", "5"));
+        if (maxPoolSize < 1) {
+            throw new IllegalArgumentException("maxPoolSize必须大于0");
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 16:50
+     * @Description:
+     *      借一个连接：有空闲的就用空闲的，没有且没到上限就新建，到了上限就等别人归还
+     *      返回的是代理对象，close()时连接还回池子而不是真正关闭
+     *
+     * @Param: []
+     * @return: java.sql.Connection
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long deadline = System.nanoTime() + connectionTimeoutNanos;
+        try {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("连接池已经关闭");
+                }
+
+                PoolEntry entry = bag.tryBorrow();
+                if (entry == null) {
+                    entry = tryCreate();
+                }
+                if (entry == null) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLTimeoutException("等待连接超时，最大连接数为 " + maxPoolSize
+                                + "，正在使用 " + getActiveCount() + " 个");
+                    }
+                    // 分段等待，期间有连接被移除腾出名额时也能及时新建
+                    entry = bag.awaitHandoff(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+                    if (entry == null) {
+                        continue;
+                    }
+                }
+
+                if (isAlive(entry)) {
+                    return ProxyHandler.newProxy(this, entry);
+                }
+                // 连接已经失效，丢掉重新借
+                closeEntry(entry);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待连接时被中断", e);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("BagPool只使用配置文件中的用户名和密码");
+    }
+
+    /**
+     * @Date: 2026/10/18 16:55
+     * @Description:
+     *      还没到上限时新建一个连接，以借出状态放进池子
+     *
+     * @Param: []
+     * @return: com.example.pool.PoolEntry 到了上限返回null
+     */
+    private PoolEntry tryCreate() throws SQLException {
+        while (true) {
+            int total = totalConnections.get();
+            if (total >= maxPoolSize) {
+                return null;
+            }
+            if (totalConnections.compareAndSet(total, total + 1)) {
+                break;
+            }
+        }
+        Connection conn = null;
+        try {
+            conn = DriverManager.getConnection(url, connectionProperties);
+            PoolEntry entry = new PoolEntry(conn);
+            bag.add(entry);
+            return entry;
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private boolean isAlive(PoolEntry entry) {
+        // 最近刚用过的连接，认为一定是好的
+        if (System.nanoTime() - entry.lastAccessed < aliveBypassWindowNanos) {
+            return true;
+        }
+        try {
+            return entry.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 17:00
+     * @Description:
+     *      代理连接close时调用，恢复连接状态后还回池子
+     *      只恢复使用者改过的（dirty中对应的位），没改过的不多一次网络往返
+     *
+     * @Param: [entry, dirty 使用者改过哪些状态，DIRTY_开头的常量按位或]
+     * @return: void
+     */
+    void release(PoolEntry entry, int dirty) {
+        if (!entry.broken && !closed) {
+            try {
+                if ((dirty & DIRTY_AUTO_COMMIT) != 0) {
+                    // 没提交的事务不能带给下一个使用者
+                    if (!entry.connection.getAutoCommit()) {
+                        entry.connection.rollback();
+                        entry.connection.setAutoCommit(true);
+                    }
+                }
+                if ((dirty & DIRTY_READ_ONLY) != 0) {
+                    entry.connection.setReadOnly(false);
+                }
+                if ((dirty & DIRTY_ISOLATION) != 0) {
+                    entry.connection.setTransactionIsolation(entry.defaultIsolation);
+                }
+                if ((dirty & DIRTY_CATALOG) != 0 && entry.defaultCatalog != null) {
+                    entry.connection.setCatalog(entry.defaultCatalog);
+                }
+                if ((dirty & DIRTY_NETWORK_TIMEOUT) != 0 && entry.defaultNetworkTimeout >= 0) {
+                    entry.connection.setNetworkTimeout(Runnable::run, entry.defaultNetworkTimeout);
+                }
+                entry.connection.clearWarnings();
+            } catch (SQLException e) {
+                entry.broken = true;
+            }
+        }
+
+        if (entry.broken || closed) {
+            closeEntry(entry);
+            return;
+        }
+        entry.lastAccessed = System.nanoTime();
+        bag.requite(entry);
+    }
+
+    private void closeEntry(PoolEntry entry) {
+        if (bag.remove(entry)) {
+            totalConnections.decrementAndGet();
+            try {
+                entry.connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 17:05
+     * @Description:
+     *      关闭连接池：空闲的连接立即关闭，正在使用的连接在归还时关闭
+     *
+     * @Param: []
+     * @return: void
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (PoolEntry entry : bag.values()) {
+            if (entry.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                closeEntry(entry);
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public int getTotalCount() {
+        return bag.size();
+    }
+
+    public int getActiveCount() {
+        return bag.getCount(PoolEntry.STATE_IN_USE);
+    }
+
+    public int getIdleCount() {
+        return bag.getCount(PoolEntry.STATE_NOT_IN_USE);
+    }
+
+    public int getWaitingThreadCount() {
+        return bag.getWaitingThreadCount();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("BagPoolDataSource不是 " + iface.getName() + " 的包装");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+
+    /**
+     * 借出的代理连接
+     *      close()                   关闭使用者没关的Statement，还回池子，重复close无效
+     *      isClosed()                是否已经还回去了
+     *      createStatement等          返回Statement的代理，getConnection()返回这个代理连接而不是物理连接
+     *      unwrap()                  不交出物理连接，只能unwrap成代理自己实现的接口
+     *      其他方法                   直接调用物理连接，遇到连接级别的错误（SQLState以08开头）时标记为坏连接
+     *
+     *      Statement上查出来的ResultSet没有代理，不要通过它的getStatement().getConnection()关闭连接
+     */
+    private static class ProxyHandler implements InvocationHandler {
+        private final BagPoolDataSource pool;
+        private final PoolEntry entry;
+        // 使用者还没关闭的Statement的代理，归还时关闭
+        private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+        private volatile boolean returned;
+        private int dirty;
+
+        private ProxyHandler(BagPoolDataSource pool, PoolEntry entry) {
+            this.pool = pool;
+            this.entry = entry;
+        }
+
+        static Connection newProxy(BagPoolDataSource pool, PoolEntry entry) {
+            return (Connection) Proxy.newProxyInstance(BagPoolDataSource.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new ProxyHandler(pool, entry));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        closeStatements();
+                        pool.release(entry, dirty);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "BagPoolConnection[" + entry.connection + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("BagPool的连接不能unwrap成 " + ((Class<?>) args[0]).getName());
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                case "setAutoCommit":
+                    dirty |= DIRTY_AUTO_COMMIT;
+                    break;
+                case "setReadOnly":
+                    dirty |= DIRTY_READ_ONLY;
+                    break;
+                case "setTransactionIsolation":
+                    dirty |= DIRTY_ISOLATION;
+                    break;
+                case "setCatalog":
+                    dirty |= DIRTY_CATALOG;
+                    break;
+                case "setNetworkTimeout":
+                    dirty |= DIRTY_NETWORK_TIMEOUT;
+                    break;
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("连接已经还回连接池，不能再使用");
+            }
+            Object result = invokeTarget(entry, entry.connection, method, args);
+            if (result instanceof Statement) {
+                // createStatement、prepareStatement、prepareCall，返回值类型就是要代理的接口
+                Statement statement = (Statement) Proxy.newProxyInstance(BagPoolDataSource.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, new StatementHandler(this, (Connection) proxy, (Statement) result));
+                statements.add(statement);
+                return statement;
+            }
+            return result;
+        }
+
+        private void closeStatements() {
+            for (Statement statement : statements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // 关不掉说明物理连接有问题，归还时直接关闭
+                    entry.broken = true;
+                }
+            }
+            statements.clear();
+        }
+    }
+
+    /**
+     * 借出的Statement的代理
+     *      getConnection()   返回代理连接，使用者拿它close只是归还
+     *      close()           同时从代理连接的登记中去掉
+     *      unwrap()          和代理连接一样不交出驱动的对象
+     */
+    private static class StatementHandler implements InvocationHandler {
+        private final ProxyHandler owner;
+        private final Connection connection;
+        private final Statement statement;
+
+        private StatementHandler(ProxyHandler owner, Connection connection, Statement statement) {
+            this.owner = owner;
+            this.connection = connection;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return connection;
+                case "close":
+                    owner.statements.remove(proxy);
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "BagPoolStatement[" + statement + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("BagPool的Statement不能unwrap成 " + ((Class<?>) args[0]).getName());
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                default:
+                    break;
+            }
+            return invokeTarget(owner.entry, statement, method, args);
+        }
+    }
+
+    // 调用物理连接或者它的Statement，遇到连接级别的错误（SQLState以08开头）时标记为坏连接
+    private static Object invokeTarget(PoolEntry entry, Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && sqlState.startsWith("08")) {
+                    entry.broken = true;
+                }
+            }
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.pool;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 17:20
+ * @Description:
+ *      自己实现的BagPool连接池，配置来自 bagpool.properties
+ */
+public class BagPoolProvider implements PoolProvider {
+
+    public static final String NAME = "bagpool";
+
+    private final String resource;
+
+    public BagPoolProvider() {
+        this("bagpool.properties");
+    }
+
+    public BagPoolProvider(String resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public DataSource createDataSource() throws Exception {
+        Properties pros = PoolProperties.load(resource);
+        return new BagPoolDataSource(pros);
+    }
+
+    @Override
+    public void destroy(DataSource dataSource) {
+        ((BagPoolDataSource) dataSource).close();
+    }
+
+    @Override
+    public PoolGauges getGauges(DataSource dataSource) {
+        BagPoolDataSource bagPool = (BagPoolDataSource) dataSource;
+        return new PoolGauges(bagPool.getActiveCount(), bagPool.getIdleCount(), bagPool.getTotalCount(),
+                bagPool.getMaxPoolSize(), bagPool.getWaitingThreadCount());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.pool;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.mchange.v2.c3p0.DataSources;
+
+import javax.sql.DataSource;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 15:15
+ * @Description:
+ *      c3p0数据库连接池，配置来自 c3p0-config.xml 中的 named-config
+ */
+public class C3P0PoolProvider implements PoolProvider {
+
+    public static final String NAME = "c3p0";
+
+    private final String configName;
+
+    public C3P0PoolProvider() {
+        this("helloc3p0");
+    }
+
+    public C3P0PoolProvider(String configName) {
+        this.configName = configName;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public DataSource createDataSource() {
+        // 使用xml配置文件来读取配置信息
+        return new ComboPooledDataSource(configName);
+    }
+
+    @Override
+    public void destroy(DataSource dataSource) throws Exception {
+        // 销毁数据库连接池
+        DataSources.destroy(dataSource);
+    }
+
+    @Override
+    public PoolGauges getGauges(DataSource dataSource) throws Exception {
+        ComboPooledDataSource c3p0 = (ComboPooledDataSource) dataSource;
+        return new PoolGauges(c3p0.getNumBusyConnectionsDefaultUser(), c3p0.getNumIdleConnectionsDefaultUser(),
+                c3p0.getNumConnectionsDefaultUser(), c3p0.getMaxPoolSize(),
+                c3p0.getNumThreadsAwaitingCheckoutDefaultUser());
+    }
+}
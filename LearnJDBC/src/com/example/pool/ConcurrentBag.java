@@ -0,0 +1,179 @@
+package com.example.pool;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 16:15
+ * @Description:
+ *      无锁的连接容器，借出的顺序为：
+ *          1. 当前线程最近归还过的连接（ThreadLocal），大多数情况下同一个线程借了又还，直接命中，不和其他线程竞争
+ *          2. 共享列表中任意一个空闲的连接，CAS抢到就是自己的
+ *          3. 都没有，就在SynchronousQueue上等待其他线程归还时直接交接
+ *
+ *      整个过程没有synchronized，等待用的是SynchronousQueue（内部基于LockSupport.park），
+ *      这样在虚拟线程上等待连接时也不会把载体线程钉住
+ */
+class ConcurrentBag {
+
+    // 每个线程最多记住的最近归还的连接数
+    private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+    private final CopyOnWriteArrayList<PoolEntry> sharedList = new CopyOnWriteArrayList<>();
+    // 只存弱引用，连接被移出池子后不会因为某个线程还记着它而无法回收
+    private final ThreadLocal<List<WeakReference<PoolEntry>>> threadList =
+            ThreadLocal.withInitial(() -> new ArrayList<>(MAX_THREAD_LOCAL_ENTRIES));
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+
+    /**
+     * @Date: 2026/10/18 16:20
+     * @Description:
+     *      借出一个空闲连接，不等待，没有空闲的就返回null
+     *
+     * @Param: []
+     * @return: com.example.pool.PoolEntry
+     */
+    PoolEntry tryBorrow() {
+        // 1. 先从当前线程最近用过的里面找，倒着找最近还的那个
+        List<WeakReference<PoolEntry>> list = threadList.get();
+        for (int i = list.size() - 1; i >= 0; i--) {
+            PoolEntry entry = list.remove(i).get();
+            if (entry != null && entry.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                return entry;
+            }
+        }
+
+        // 2. 再从共享列表中抢
+        for (PoolEntry entry : sharedList) {
+            if (entry.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @Date: 2026/10/18 16:25
+     * @Description:
+     *      等待其他线程归还连接，最多等timeoutNanos
+     *      登记为等待者之后会再扫一遍共享列表，避免在登记之前刚好有连接被归还而错过
+     *
+     * @Param: [timeoutNanos]
+     * @return: com.example.pool.PoolEntry 超时返回null
+     */
+    PoolEntry awaitHandoff(long timeoutNanos) throws InterruptedException {
+        waiters.incrementAndGet();
+        try {
+            for (PoolEntry entry : sharedList) {
+                if (entry.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                    return entry;
+                }
+            }
+
+            long deadline = System.nanoTime() + timeoutNanos;
+            long remaining = timeoutNanos;
+            while (remaining > 0) {
+                PoolEntry entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (entry == null) {
+                    return null;
+                }
+                // 交接过来的连接也可能已经被别的线程从共享列表中抢走了
+                if (entry.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_IN_USE)) {
+                    return entry;
+                }
+                remaining = deadline - System.nanoTime();
+            }
+            return null;
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 16:30
+     * @Description:
+     *      归还连接：先标记为空闲，有人在等就直接交给他，没人等就记到当前线程的最近列表中
+     *
+     * @Param: [entry]
+     * @return: void
+     */
+    void requite(PoolEntry entry) {
+        entry.setState(PoolEntry.STATE_NOT_IN_USE);
+
+        for (int i = 0; waiters.get() > 0; i++) {
+            // 已经被别人抢走了，或者成功交给了等待的线程
+            if (entry.getState() != PoolEntry.STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+                return;
+            }
+            if ((i & 0xff) == 0xff) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+            } else {
+                Thread.yield();
+            }
+        }
+
+        List<WeakReference<PoolEntry>> list = threadList.get();
+        if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+            list.add(new WeakReference<>(entry));
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 16:35
+     * @Description:
+     *      新建的连接直接以借出状态加入
+     *
+     * @Param: [entry]
+     * @return: void
+     */
+    void add(PoolEntry entry) {
+        sharedList.add(entry);
+    }
+
+    /**
+     * @Date: 2026/10/18 16:36
+     * @Description:
+     *      把连接移出池子，只能移除自己持有的（借出状态）或者空闲的
+     *
+     * @Param: [entry]
+     * @return: boolean
+     */
+    boolean remove(PoolEntry entry) {
+        if (!entry.compareAndSet(PoolEntry.STATE_IN_USE, PoolEntry.STATE_REMOVED)
+                && !entry.compareAndSet(PoolEntry.STATE_NOT_IN_USE, PoolEntry.STATE_REMOVED)) {
+            return false;
+        }
+        return sharedList.remove(entry);
+    }
+
+    List<PoolEntry> values() {
+        return new ArrayList<>(sharedList);
+    }
+
+    int getWaitingThreadCount() {
+        return waiters.get();
+    }
+
+    int size() {
+        return sharedList.size();
+    }
+
+    int getCount(int state) {
+        int count = 0;
+        for (PoolEntry entry : sharedList) {
+            if (entry.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.pool;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbcp.BasicDataSourceFactory;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 15:18
+ * @Description:
+ *      dbcp数据库连接池，配置来自 dbcp.properties
+ */
+public class DBCPPoolProvider implements PoolProvider {
+
+    public static final String NAME = "dbcp";
+
+    private final String resource;
+
+    public DBCPPoolProvider() {
+        this("dbcp.properties");
+    }
+
+    public DBCPPoolProvider(String resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public DataSource createDataSource() throws Exception {
+        Properties pros = PoolProperties.load(resource);
+        // 根据配置文件来创建数据库连接池
+        return BasicDataSourceFactory.createDataSource(pros);
+    }
+
+    @Override
+    public void destroy(DataSource dataSource) throws Exception {
+        ((BasicDataSource) dataSource).close();
+    }
+
+    @Override
+    public PoolGauges getGauges(DataSource dataSource) {
+        BasicDataSource dbcp = (BasicDataSource) dataSource;
+        int active = dbcp.getNumActive();
+        int idle = dbcp.getNumIdle();
+        // dbcp 1.4 不提供等待的线程数
+        return new PoolGauges(active, idle, active + idle, dbcp.getMaxActive(), PoolGauges.UNKNOWN);
+    }
+}
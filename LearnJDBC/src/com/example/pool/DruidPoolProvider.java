@@ -0,0 +1,54 @@
+package com.example.pool;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.pool.DruidDataSourceFactory;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 15:20
+ * @Description:
+ *      Druid数据库连接池，配置来自 druid.properties
+ */
+public class DruidPoolProvider implements PoolProvider {
+
+    public static final String NAME = "druid";
+
+    private final String resource;
+
+    public DruidPoolProvider() {
+        this("druid.properties");
+    }
+
+    public DruidPoolProvider(String resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public DataSource createDataSource() throws Exception {
+        Properties pros = PoolProperties.load(resource);
+        // 创建数据库连接池
+        return DruidDataSourceFactory.createDataSource(pros);
+    }
+
+    @Override
+    public void destroy(DataSource dataSource) {
+        ((DruidDataSource) dataSource).close();
+    }
+
+    @Override
+    public PoolGauges getGauges(DataSource dataSource) {
+        DruidDataSource druid = (DruidDataSource) dataSource;
+        int active = druid.getActiveCount();
+        int idle = druid.getPoolingCount();
+        return new PoolGauges(active, idle, active + idle, druid.getMaxActive(), druid.getWaitThreadCount());
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 23:50
+ * @Description:
+ *      连接泄漏检测，每个连接池一个，由PoolMetrics创建
+ *      JDBCPoolUtils.getConnection借出的连接经过track包装，记下借出的时间和线程，close时注销；
+ *      后台线程定期检查，借出超过阈值还没有归还的连接报告为泄漏（打印到System.err），计入PoolMetrics
+ *
+ *      借出位置的堆栈按比例采样，new Throwable()要几微秒，每次借连接都抓开销太大；
+ *      真正的泄漏往往是同一个地方反复发生，采样率不高也很快能抓到
+ *
+ *      强制回收：配置了reclaimMs时，借出超过这个时间的连接会被关闭（还回连接池），
+ *      原来的持有者之后再使用会抛出SQLException；如果它其实还在用（比如很长的报表查询），会被打断，默认不开启
+ *
+ *      系统属性（所有连接池共用，也可以用setter修改）：
+ *          jdbc.leak.thresholdMs       借出多久算泄漏，默认30000，<=0不检测
+ *          jdbc.leak.stackSampleRate   借连接时抓堆栈的比例，0到1，默认0.1
+ *          jdbc.leak.reclaimMs         借出多久强制回收，默认-1不回收
+ *          jdbc.leak.scanIntervalMs    检查的间隔，默认1000
+ */
+public class LeakDetector {
+
+    private static final long SCAN_INTERVAL_MILLIS = Long.getLong("jdbc.leak.scanIntervalMs", 1000);
+
+    private static volatile long thresholdMillis = Long.getLong("jdbc.leak.thresholdMs", 30000);
+    private static volatile double stackSampleRate =
+            Double.parseDouble(System.getProperty("jdbc.leak.stackSampleRate", "0.1"));
+    private static volatile long reclaimMillis = Long.getLong("jdbc.leak.reclaimMs", -1);
+
+    private final String poolName;
+    private final PoolMetrics metrics;
+    // 借出还没归还的连接
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    LeakDetector(String poolName, PoolMetrics metrics) {
+        this.poolName = poolName;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @Date: 2026/10/18 23:55
+     * @Description:
+     *      登记一个刚借出的连接，返回的代理close时注销
+     *      检测和回收都没有开启时原样返回，没有任何开销
+     *
+     * @Param: [conn 从连接池借出的连接]
+     * @return: java.sql.Connection
+     */
+    public Connection track(Connection conn) {
+        if (thresholdMillis <= 0 && reclaimMillis <= 0) {
+            return conn;
+        }
+        double rate = stackSampleRate;
+        Throwable stack = rate > 0 && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate)
+                ? new Throwable("连接借出位置") : null;
+        Lease lease = new Lease(conn, Thread.currentThread().getName(), stack);
+        leases.add(lease);
+        if (scheduled.compareAndSet(false, true)) {
+            Scanner.EXECUTOR.scheduleWithFixedDelay(this::scanQuietly,
+                    SCAN_INTERVAL_MILLIS, SCAN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return (Connection) Proxy.newProxyInstance(LeakDetector.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, lease);
+    }
+
+    /**
+     * @Date: 2026/10/19 0:00
+     * @Description:
+     *      检查一遍借出的连接：超过阈值的报告为泄漏（每个连接只报告一次），超过reclaimMs的强制回收
+     *      后台线程定期调用，也可以手动调用
+     *
+     * @Param: []
+     * @return: int 这次新发现的泄漏数
+     */
+    public int scan() {
+        long threshold = thresholdMillis;
+        long reclaim = reclaimMillis;
+        long now = System.nanoTime();
+        int found = 0;
+        for (Lease lease : leases) {
+            long heldMillis = TimeUnit.NANOSECONDS.toMillis(now - lease.borrowedAt);
+            // 后台线程和手动调用可能同时在检查，只有抢到的那一个报告
+            if (threshold > 0 && heldMillis >= threshold && lease.reported.compareAndSet(false, true)) {
+                metrics.recordLeak();
+                report(lease, heldMillis);
+                found++;
+            }
+            if (reclaim > 0 && heldMillis >= reclaim && lease.reclaim()) {
+                metrics.recordReclaim();
+                System.err.println("连接池 " + poolName + " 强制回收了线程 " + lease.threadName
+                        + " 借出 " + heldMillis + " ms 的连接");
+            }
+        }
+        return found;
+    }
+
+    private void scanQuietly() {
+        try {
+            scan();
+        } catch (RuntimeException e) {
+            // 抛出异常会让后续的检查全部取消
+            e.printStackTrace();
+        }
+    }
+
+    private void report(Lease lease, long heldMillis) {
+        String message = "连接泄漏：连接池 " + poolName + " 的连接被线程 " + lease.threadName
+                + " 借出 " + heldMillis + " ms 还没有归还";
+        if (lease.stack != null) {
+            System.err.println(message);
+            lease.stack.printStackTrace();
+        } else {
+            System.err.println(message + "（这次借出没有采样堆栈，调大 jdbc.leak.stackSampleRate 可以看到借出位置）");
+        }
+    }
+
+    /**
+     * @Date: 2026/10/19 0:05
+     * @Description:
+     *      当前借出的连接数
+     *
+     * @Param: []
+     * @return: int
+     */
+    public int getOutstandingCount() {
+        return leases.size();
+    }
+
+    /**
+     * @Date: 2026/10/19 0:06
+     * @Description:
+     *      当前已经被报告为泄漏、还没有归还的连接数
+     *
+     * @Param: []
+     * @return: int
+     */
+    public int getSuspectedCount() {
+        int count = 0;
+        for (Lease lease : leases) {
+            if (lease.reported.get()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    /**
+     * @Date: 2026/10/19 0:08
+     * @Description:
+     *      修改泄漏阈值，<=0 不检测，只影响之后借出的连接是否被登记
+     *
+     * @Param: [thresholdMillis]
+     * @return: void
+     */
+    public static void setThresholdMillis(long thresholdMillis) {
+        LeakDetector.thresholdMillis = thresholdMillis;
+    }
+
+    public static double getStackSampleRate() {
+        return stackSampleRate;
+    }
+
+    public static void setStackSampleRate(double stackSampleRate) {
+        if (stackSampleRate < 0 || stackSampleRate > 1) {
+            throw new IllegalArgumentException("stackSampleRate必须在0到1之间");
+        }
+        LeakDetector.stackSampleRate = stackSampleRate;
+    }
+
+    public static long getReclaimMillis() {
+        return reclaimMillis;
+    }
+
+    /**
+     * @Date: 2026/10/19 0:10
+     * @Description:
+     *      修改强制回收的时间，<=0 不回收
+     *
+     * @Param: [reclaimMillis]
+     * @return: void
+     */
+    public static void setReclaimMillis(long reclaimMillis) {
+        LeakDetector.reclaimMillis = reclaimMillis;
+    }
+
+
+    /**
+     * 一次借出，同时是借出连接的代理
+     *      close()      注销并还回连接池，重复close无效；被强制回收之后close什么也不做
+     *      isClosed()   已经close或者被回收时为true
+     *      其他方法      被回收之后抛出SQLException，否则直接调用连接池的连接
+     */
+    private class Lease implements InvocationHandler {
+        private final Connection target;
+        private final String threadName;
+        private final Throwable stack;
+        private final long borrowedAt = System.nanoTime();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean reported = new AtomicBoolean();
+        private volatile boolean reclaimed;
+
+        private Lease(Connection target, String threadName, Throwable stack) {
+            this.target = target;
+            this.threadName = threadName;
+            this.stack = stack;
+        }
+
+        boolean reclaim() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            reclaimed = true;
+            leases.remove(this);
+            try {
+                target.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return true;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        leases.remove(this);
+                        if (reported.get()) {
+                            System.err.println("之前报告泄漏的连接在借出 "
+                                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - borrowedAt) + " ms 后归还了");
+                        }
+                        target.close();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get() || target.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Tracked[" + target + "]";
+                default:
+                    break;
+            }
+            if (reclaimed) {
+                throw new SQLException("连接借出时间超过 " + reclaimMillis + " ms，已经被强制回收");
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 所有连接池共用的检查线程，第一次有连接被登记时才创建
+     */
+    private static class Scanner {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pool-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 16:10
+ * @Description:
+ *      BagPool中的一个物理连接
+ *      借出、归还都只是对state做CAS，不需要加锁
+ */
+class PoolEntry {
+
+    static final int STATE_NOT_IN_USE = 0;
+    static final int STATE_IN_USE = 1;
+    static final int STATE_REMOVED = -1;
+
+    private static final AtomicIntegerFieldUpdater<PoolEntry> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(PoolEntry.class, "state");
+
+    final Connection connection;
+    private volatile int state = STATE_IN_USE;
+    // 最后一次归还的时间（System.nanoTime），用来判断借出时是否需要检查连接有效性
+    volatile long lastAccessed;
+    // 使用过程中出现了连接级别的错误，归还时直接关闭
+    volatile boolean broken;
+    // 建立连接时的状态，归还时把使用者改过的恢复成这样
+    final int defaultIsolation;
+    final String defaultCatalog;
+    // 驱动不支持getNetworkTimeout时为-1，不恢复
+    final int defaultNetworkTimeout;
+
+    PoolEntry(Connection connection) throws SQLException {
+        this.connection = connection;
+        this.lastAccessed = System.nanoTime();
+        this.defaultIsolation = connection.getTransactionIsolation();
+        this.defaultCatalog = connection.getCatalog();
+        this.defaultNetworkTimeout = networkTimeoutOf(connection);
+    }
+
+    private static int networkTimeoutOf(Connection connection) {
+        try {
+            return connection.getNetworkTimeout();
+        } catch (SQLException | AbstractMethodError e) {
+            // JDBC 4.1之前的驱动没有这个方法
+            return -1;
+        }
+    }
+
+    int getState() {
+        return state;
+    }
+
+    boolean compareAndSet(int expect, int update) {
+        return STATE_UPDATER.compareAndSet(this, expect, update);
+    }
+
+    void setState(int update) {
+        STATE_UPDATER.set(this, update);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.pool;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 22:20
+ * @Description:
+ *      连接池某一时刻的状态，各个连接池的叫法不一样，这里统一成：
+ *          active   正在使用（借出）的连接数
+ *          idle     空闲的连接数
+ *          total    连接池中的连接总数
+ *          max      最大连接数
+ *          waiting  正在等待借连接的线程数
+ *      连接池不提供的数值为-1
+ */
+public class PoolGauges {
+
+    public static final int UNKNOWN = -1;
+
+    public static final PoolGauges NOT_AVAILABLE = new PoolGauges(UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int max;
+    private final int waiting;
+
+    public PoolGauges(int active, int idle, int total, int max, int waiting) {
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.max = max;
+        this.waiting = waiting;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolGauges{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", total=" + total +
+                ", max=" + max +
+                ", waiting=" + waiting +
+                '}';
+    }
+}
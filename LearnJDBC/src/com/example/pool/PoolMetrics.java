@@ -0,0 +1,293 @@
+package com.example.pool;
+
+import com.example.stats.LatencyHistogram;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 22:40
+ * @Description:
+ *      一个连接池的指标：借连接的等待时间直方图、失败次数、超时次数，加上从连接池读出来的PoolGauges
+ *      c3p0、dbcp、druid、BagPool的状态由各自的PoolProvider.getGauges换算成统一的数值
+ *
+ *      借连接的耗时由JDBCPoolUtils.getConnection记录；连接池创建后注册为MBean，销毁时注销
+ *      借出的连接由LeakDetector跟踪，发现的泄漏数和强制回收数也记在这里
+ */
+public class PoolMetrics implements PoolMetricsMXBean {
+
+    public static final String OBJECT_NAME_PREFIX = "com.example.pool:type=PoolMetrics,name=";
+
+    private final String poolName;
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder reclaimed = new LongAdder();
+    private final LeakDetector leakDetector;
+
+    // 连接池创建后才有
+    private volatile PoolProvider provider;
+    private volatile DataSource dataSource;
+
+    public PoolMetrics(String poolName) {
+        this.poolName = poolName;
+        this.leakDetector = new LeakDetector(poolName, this);
+    }
+
+    /**
+     * @Date: 2026/10/18 22:45
+     * @Description:
+     *      记录一次成功借到连接的等待时间
+     *
+     * @Param: [waitNanos]
+     * @return: void
+     */
+    public void recordBorrow(long waitNanos) {
+        borrowWait.record(waitNanos);
+    }
+
+    /**
+     * @Date: 2026/10/18 22:46
+     * @Description:
+     *      记录一次借连接失败，等待超时的单独计数
+     *
+     * @Param: [e]
+     * @return: void
+     */
+    public void recordFailure(SQLException e) {
+        failures.increment();
+        if (isTimeout(e)) {
+            timeouts.increment();
+        }
+    }
+
+    void recordLeak() {
+        leaks.increment();
+    }
+
+    void recordReclaim() {
+        reclaimed.increment();
+    }
+
+    /**
+     * @Date: 2026/10/19 0:15
+     * @Description:
+     *      这个连接池的泄漏检测，JDBCPoolUtils.getConnection用它包装借出的连接
+     *
+     * @Param: []
+     * @return: com.example.pool.LeakDetector
+     */
+    public LeakDetector getLeakDetector() {
+        return leakDetector;
+    }
+
+    /**
+     * 各个连接池超时抛出的异常不一样：
+     *      BagPool   SQLTimeoutException
+     *      druid     GetConnectionTimeoutException
+     *      c3p0      "An attempt by a client to checkout a Connection has timed out."
+     *      dbcp      "Cannot get a connection, pool error Timeout waiting for idle object"
+     */
+    static boolean isTimeout(SQLException e) {
+        if (e instanceof SQLTimeoutException || e.getClass().getSimpleName().contains("Timeout")) {
+            return true;
+        }
+        String message = e.getMessage();
+        return message != null && (message.contains("timed out") || message.contains("Timeout"));
+    }
+
+    /**
+     * @Date: 2026/10/18 22:50
+     * @Description:
+     *      连接池创建后调用，开始读取它的状态并注册MBean
+     *
+     * @Param: [provider, dataSource]
+     * @return: void
+     */
+    public void bind(PoolProvider provider, DataSource dataSource) {
+        this.provider = provider;
+        this.dataSource = dataSource;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = getObjectName();
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                // 同名的连接池被重新注册过，换成现在这个
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 22:52
+     * @Description:
+     *      连接池销毁时调用，注销MBean，累计的借连接统计保留
+     *
+     * @Param: []
+     * @return: void
+     */
+    public void unbind() {
+        this.provider = null;
+        this.dataSource = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(getObjectName());
+        } catch (InstanceNotFoundException e) {
+            // 没有注册过
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public ObjectName getObjectName() throws JMException {
+        return new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(poolName));
+    }
+
+    /**
+     * @Date: 2026/10/18 22:55
+     * @Description:
+     *      从连接池读出当前状态，连接池还没创建时返回PoolGauges.NOT_AVAILABLE
+     *
+     * @Param: []
+     * @return: com.example.pool.PoolGauges
+     */
+    public PoolGauges getGauges() {
+        PoolProvider currentProvider = provider;
+        DataSource currentDataSource = dataSource;
+        if (currentProvider == null || currentDataSource == null) {
+            return PoolGauges.NOT_AVAILABLE;
+        }
+        try {
+            return currentProvider.getGauges(currentDataSource);
+        } catch (Exception e) {
+            // 连接池正在关闭之类的情况
+            return PoolGauges.NOT_AVAILABLE;
+        }
+    }
+
+    public PoolMetricsSnapshot snapshot() {
+        long count = borrowWait.getCount();
+        return new PoolMetricsSnapshot(poolName, System.currentTimeMillis(), isInitialized(), getGauges(),
+                count, failures.sum(), timeouts.sum(), count == 0 ? 0 : borrowWait.getTotalNanos() / count,
+                borrowWait.getPercentileNanos(50), borrowWait.getPercentileNanos(99), borrowWait.getMaxNanos(),
+                leaks.sum(), reclaimed.sum(), leakDetector.getSuspectedCount());
+    }
+
+    public LatencyHistogram getBorrowWaitHistogram() {
+        return borrowWait;
+    }
+
+    @Override
+    public String getPoolName() {
+        return poolName;
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return dataSource != null;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return getGauges().getActive();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return getGauges().getIdle();
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return getGauges().getTotal();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return getGauges().getMax();
+    }
+
+    @Override
+    public int getThreadsAwaitingConnection() {
+        return getGauges().getWaiting();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return borrowWait.getCount();
+    }
+
+    @Override
+    public long getBorrowFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getBorrowTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public double getBorrowWaitMeanMillis() {
+        long count = borrowWait.getCount();
+        return count == 0 ? 0 : millis(borrowWait.getTotalNanos() / count);
+    }
+
+    @Override
+    public double getBorrowWaitP50Millis() {
+        return millis(borrowWait.getPercentileNanos(50));
+    }
+
+    @Override
+    public double getBorrowWaitP99Millis() {
+        return millis(borrowWait.getPercentileNanos(99));
+    }
+
+    @Override
+    public double getBorrowWaitMaxMillis() {
+        return millis(borrowWait.getMaxNanos());
+    }
+
+    @Override
+    public long getLeakCount() {
+        return leaks.sum();
+    }
+
+    @Override
+    public long getReclaimedCount() {
+        return reclaimed.sum();
+    }
+
+    @Override
+    public int getSuspectedLeaks() {
+        return leakDetector.getSuspectedCount();
+    }
+
+    @Override
+    public void resetBorrowStatistics() {
+        borrowWait.reset();
+        failures.reset();
+        timeouts.reset();
+        leaks.reset();
+        reclaimed.reset();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.pool;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 22:30
+ * @Description:
+ *      连接池指标的MBean接口，注册在 com.example.pool:type=PoolMetrics,name=连接池名字 下，
+ *      用jconsole、VisualVM等工具可以直接查看
+ *      时间的单位都是毫秒，连接池还没创建或者不提供的数值为-1
+ */
+public interface PoolMetricsMXBean {
+
+    String getPoolName();
+
+    boolean isInitialized();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getTotalConnections();
+
+    int getMaxConnections();
+
+    int getThreadsAwaitingConnection();
+
+    long getBorrowCount();
+
+    long getBorrowFailures();
+
+    long getBorrowTimeouts();
+
+    double getBorrowWaitMeanMillis();
+
+    double getBorrowWaitP50Millis();
+
+    double getBorrowWaitP99Millis();
+
+    double getBorrowWaitMaxMillis();
+
+    /**
+     * 累计发现的泄漏连接数
+     */
+    long getLeakCount();
+
+    /**
+     * 累计强制回收的连接数
+     */
+    long getReclaimedCount();
+
+    /**
+     * 当前被报告为泄漏、还没有归还的连接数
+     */
+    int getSuspectedLeaks();
+
+    void resetBorrowStatistics();
+}
@@ -0,0 +1,128 @@
+package com.example.pool;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 22:35
+ * @Description:
+ *      某个连接池某一时刻的指标，不可变
+ *      借连接的次数、失败次数、超时次数、泄漏数、回收数是从创建（或上次reset）起累计的，两个快照相减就是这段时间内的值
+ */
+public class PoolMetricsSnapshot {
+
+    private final String poolName;
+    private final long timestamp;
+    private final boolean initialized;
+    private final PoolGauges gauges;
+    private final long borrowCount;
+    private final long borrowFailures;
+    private final long borrowTimeouts;
+    private final long borrowWaitMeanNanos;
+    private final long borrowWaitP50Nanos;
+    private final long borrowWaitP99Nanos;
+    private final long borrowWaitMaxNanos;
+    private final long leakCount;
+    private final long reclaimedCount;
+    private final int suspectedLeaks;
+
+    PoolMetricsSnapshot(String poolName, long timestamp, boolean initialized, PoolGauges gauges,
+                        long borrowCount, long borrowFailures, long borrowTimeouts, long borrowWaitMeanNanos,
+                        long borrowWaitP50Nanos, long borrowWaitP99Nanos, long borrowWaitMaxNanos,
+                        long leakCount, long reclaimedCount, int suspectedLeaks) {
+        this.poolName = poolName;
+        this.timestamp = timestamp;
+        this.initialized = initialized;
+        this.gauges = gauges;
+        this.borrowCount = borrowCount;
+        this.borrowFailures = borrowFailures;
+        this.borrowTimeouts = borrowTimeouts;
+        this.borrowWaitMeanNanos = borrowWaitMeanNanos;
+        this.borrowWaitP50Nanos = borrowWaitP50Nanos;
+        this.borrowWaitP99Nanos = borrowWaitP99Nanos;
+        this.borrowWaitMaxNanos = borrowWaitMaxNanos;
+        this.leakCount = leakCount;
+        this.reclaimedCount = reclaimedCount;
+        this.suspectedLeaks = suspectedLeaks;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * 快照的时间，System.currentTimeMillis()
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public PoolGauges getGauges() {
+        return gauges;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getBorrowFailures() {
+        return borrowFailures;
+    }
+
+    public long getBorrowTimeouts() {
+        return borrowTimeouts;
+    }
+
+    public long getBorrowWaitMeanNanos() {
+        return borrowWaitMeanNanos;
+    }
+
+    public long getBorrowWaitP50Nanos() {
+        return borrowWaitP50Nanos;
+    }
+
+    public long getBorrowWaitP99Nanos() {
+        return borrowWaitP99Nanos;
+    }
+
+    public long getBorrowWaitMaxNanos() {
+        return borrowWaitMaxNanos;
+    }
+
+    public long getLeakCount() {
+        return leakCount;
+    }
+
+    public long getReclaimedCount() {
+        return reclaimedCount;
+    }
+
+    /**
+     * 快照时已经被报告为泄漏、还没有归还的连接数
+     */
+    public int getSuspectedLeaks() {
+        return suspectedLeaks;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetricsSnapshot{" +
+                "poolName='" + poolName + '\'' +
+                ", initialized=" + initialized +
+                ", gauges=" + gauges +
+                ", borrowCount=" + borrowCount +
+                ", borrowFailures=" + borrowFailures +
+                ", borrowTimeouts=" + borrowTimeouts +
+                ", borrowWaitMeanNanos=" + borrowWaitMeanNanos +
+                ", borrowWaitP50Nanos=" + borrowWaitP50Nanos +
+                ", borrowWaitP99Nanos=" + borrowWaitP99Nanos +
+                ", borrowWaitMaxNanos=" + borrowWaitMaxNanos +
+                ", leakCount=" + leakCount +
+                ", reclaimedCount=" + reclaimedCount +
+                ", suspectedLeaks=" + suspectedLeaks +
+                '}';
+    }
+}
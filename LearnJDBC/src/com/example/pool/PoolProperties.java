@@ -0,0 +1,31 @@
+package com.example.pool;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 15:22
+ * @Description:
+ *      从类路径读取连接池的配置文件
+ */
+class PoolProperties {
+
+    private PoolProperties() {
+    }
+
+    static Properties load(String resource) throws IOException {
+        Properties pros = new Properties();
+        // 反射。先获取 系统类加载器，再加载配置文件
+        try (InputStream resourceAsStream = ClassLoader.getSystemClassLoader().getResourceAsStream(resource)) {
+            if (resourceAsStream == null) {
+                throw new FileNotFoundException("类路径下找不到配置文件：" + resource);
+            }
+            pros.load(resourceAsStream);
+        }
+        return pros;
+    }
+}
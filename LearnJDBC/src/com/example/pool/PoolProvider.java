@@ -0,0 +1,60 @@
+package com.example.pool;
+
+import javax.sql.DataSource;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 15:10
+ * @Description:
+ *      数据库连接池的提供者
+ *      JDBCPoolUtils原来在类加载时就把c3p0、dbcp、druid三个连接池全部创建好，
+ *      现在改为注册提供者，第一次真正用到某个连接池时才调用createDataSource创建
+ *
+ *      自定义的连接池实现这个接口后通过 JDBCPoolUtils.register 注册即可
+ */
+public interface PoolProvider {
+
+    /**
+     * @Date: 2026/10/18 15:10
+     * @Description:
+     *      连接池的名字，作为在JDBCPoolUtils中注册和获取连接时的key，比如 "druid"
+     *
+     * @Param: []
+     * @return: java.lang.String
+     */
+    String getName();
+
+    /**
+     * @Date: 2026/10/18 15:11
+     * @Description:
+     *      创建连接池，只会被调用一次
+     *
+     * @Param: []
+     * @return: javax.sql.DataSource
+     */
+    DataSource createDataSource() throws Exception;
+
+    /**
+     * @Date: 2026/10/18 15:12
+     * @Description:
+     *      销毁由createDataSource创建的连接池，释放其中的全部连接
+     *
+     * @Param: [dataSource]
+     * @return: void
+     */
+    void destroy(DataSource dataSource) throws Exception;
+
+    /**
+     * @Date: 2026/10/18 22:25
+     * @Description:
+     *      读取由createDataSource创建的连接池当前的状态，换算成统一的PoolGauges
+     *      默认返回PoolGauges.NOT_AVAILABLE，自定义的连接池可以不实现
+     *
+     * @Param: [dataSource]
+     * @return: com.example.pool.PoolGauges
+     */
+    default PoolGauges getGauges(DataSource dataSource) throws Exception {
+        return PoolGauges.NOT_AVAILABLE;
+    }
+}
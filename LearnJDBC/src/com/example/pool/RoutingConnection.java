@@ -0,0 +1,57 @@
+package com.example.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 19:40
+ * @Description:
+ *      RoutingDataSource借出的连接，背后最多有两个物理连接：一个从库的、一个主库的，都是用到时才借
+ *      BaseDao的查询方法用forRead，增删改和事务用forWrite，拿到物理连接后在上面执行
+ *
+ *      直接在这个连接上调用JDBC方法时：
+ *          setReadOnly(true)且自动提交时走从库，其他情况走主库
+ *          setAutoCommit(false)开始事务，之后的读写全部走主库
+ *      用过主库之后，这个连接上的读也走主库，保证能读到自己刚写的内容
+ */
+public interface RoutingConnection extends Connection {
+
+    /**
+     * @Date: 2026/10/19 19:45
+     * @Description:
+     *      执行查询用的物理连接：没有开始事务、也没有用过主库时是负载最低且延迟没有超过上限的从库，
+     *      没有可用的从库时是主库
+     *
+     * @Param: []
+     * @return: java.sql.Connection 不要关闭，随这个连接一起关闭
+     */
+    Connection forRead() throws SQLException;
+
+    /**
+     * @Date: 2026/10/19 19:45
+     * @Description:
+     *      执行增删改和事务用的物理连接，总是主库
+     *
+     * @Param: []
+     * @return: java.sql.Connection 不要关闭，随这个连接一起关闭
+     */
+    Connection forWrite() throws SQLException;
+
+    /**
+     * @Date: 2026/10/19 19:45
+     * @Description:
+     *      BaseDao中用的：是RoutingConnection时换成forRead的物理连接，否则原样返回
+     *
+     * @Param: [conn]
+     * @return: java.sql.Connection
+     */
+    static Connection forRead(Connection conn) throws SQLException {
+        return conn instanceof RoutingConnection ? ((RoutingConnection) conn).forRead() : conn;
+    }
+
+    static Connection forWrite(Connection conn) throws SQLException {
+        return conn instanceof RoutingConnection ? ((RoutingConnection) conn).forWrite() : conn;
+    }
+}
@@ -0,0 +1,524 @@
+package com.example.pool;
+
+import com.example.utils.ConnectionSource;
+import com.example.utils.StatementCache;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-19 19:50
+ * @Description:
+ *      读写分离：查询走从库，增删改和事务走主库
+ *      原来所有的DAO调用（包括getAll、getCustomerById这些大量的查询）都打到jdbc.properties / druid.properties中的那一个库上
+ *
+ *      借出的连接是RoutingConnection，背后的物理连接用到时才从对应的ConnectionSource借，见RoutingConnection
+ *      BaseDao按方法的类型选择：commonQuery、streamQuery、getValue、commonBlobQuery用forRead，
+ *      commonUpdate、commonBatchUpdate、commonBlobUpdate、commonTransaction用forWrite
+ *
+ *      从库的选择：
+ *          1. 后台线程每隔lagCheckMillis用LagProbe检查一次每个从库的复制延迟，
+ *             超过maxLagMillis、检查失败或者借连接失败的从库暂时不用，下一次检查正常后恢复
+ *          2. 剩下的从库中选当前借出连接最少的，一样多时轮流
+ *          3. 一个可用的从库都没有时读主库
+ *
+ *      系统属性：
+ *          jdbc.routing.maxLagMillis     从库最多落后主库多少毫秒，默认1000
+ *          jdbc.routing.lagCheckMillis   检查复制延迟的间隔毫秒数，默认1000
+ *
+ *      例如：
+ *          RoutingDataSource dataSource = new RoutingDataSource(JDBCPoolUtils::getConnectionFromDruid,
+ *                  Arrays.asList(new ConnectionFactory("replica.properties")::getConnection));
+ *          Connection conn = dataSource.getConnection();
+ *          customerDao.getAll(conn);          // 从库
+ *          customerDao.insert(conn, ...);     // 主库，之后这个连接上的查询也走主库
+ *      用完要close
+ */
+public class RoutingDataSource implements DataSource, AutoCloseable {
+
+    public static final long DEFAULT_MAX_LAG_MILLIS = Long.getLong("jdbc.routing.maxLagMillis", 1000);
+    public static final long DEFAULT_LAG_CHECK_MILLIS = Long.getLong("jdbc.routing.lagCheckMillis", 1000);
+
+    // MySQL的 show slave status：不是从库时（比如本地用来代替从库的另一个库）没有结果，当作没有延迟；
+    // Seconds_Behind_Master为null说明复制停了
+    public static final LagProbe SLAVE_STATUS = conn -> {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("show slave status")) {
+            if (!rs.next()) {
+                return 0;
+            }
+            long seconds = rs.getLong("Seconds_Behind_Master");
+            if (rs.wasNull()) {
+                throw new SQLException("复制没有在运行");
+            }
+            return TimeUnit.SECONDS.toMillis(seconds);
+        }
+    };
+
+    // 不可用的从库的延迟
+    private static final long UNAVAILABLE = Long.MAX_VALUE;
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final ConnectionSource primary;
+    private final Replica[] replicas;
+    private final LagProbe lagProbe;
+    private final long maxLagMillis;
+    // 没有从库时为null
+    private final ScheduledExecutorService lagChecker;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // 因为事务、用过主库或者没有可用的从库而读主库的次数
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private volatile boolean closed;
+
+    private PrintWriter logWriter;
+
+    public RoutingDataSource(ConnectionSource primary, List<ConnectionSource> replicas) {
+        this(primary, replicas, SLAVE_STATUS, DEFAULT_MAX_LAG_MILLIS, DEFAULT_LAG_CHECK_MILLIS);
+    }
+
+    /**
+     * @param primary        主库
+     * @param replicas       从库，可以为空，这时全部走主库
+     * @param lagProbe       查询从库的复制延迟，例如用心跳表时换成查询心跳表的时间差
+     * @param maxLagMillis   延迟超过这个值的从库暂时不用
+     * @param lagCheckMillis 检查延迟的间隔
+     */
+    public RoutingDataSource(ConnectionSource primary, List<ConnectionSource> replicas, LagProbe lagProbe,
+                             long maxLagMillis, long lagCheckMillis) {
+        if (maxLagMillis < 0 || lagCheckMillis < 1) {
+            throw new IllegalArgumentException("maxLagMillis不能小于0，lagCheckMillis必须大于0");
+        }
+        this.primary = primary;
+        this.replicas = new Replica[replicas.size()];
+        for (int i = 0; i < this.replicas.length; i++) {
+            this.replicas[i] = new Replica("replica-" + (i + 1), replicas.get(i));
+        }
+        this.lagProbe = lagProbe;
+        this.maxLagMillis = maxLagMillis;
+        if (this.replicas.length == 0) {
+            this.lagChecker = null;
+            return;
+        }
+        int poolNumber = POOL_NUMBER.incrementAndGet();
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-checker-" + poolNumber);
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagChecker.scheduleWithFixedDelay(this::checkLagQuietly, 0, lagCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @Date: 2026/10/19 20:00
+     * @Description:
+     *      借一个读写分离的连接，这时还没有借任何物理连接
+     *
+     * @Param: []
+     * @return: java.sql.Connection 是RoutingConnection
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("RoutingDataSource已经关闭");
+        }
+        return (Connection) Proxy.newProxyInstance(RoutingDataSource.class.getClassLoader(),
+                new Class<?>[]{RoutingConnection.class}, new RoutingHandler());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("用户名和密码在主库、从库各自的ConnectionSource中配置");
+    }
+
+    /**
+     * @Date: 2026/10/19 20:05
+     * @Description:
+     *      立即检查一遍所有从库的复制延迟，后台线程定期调用，也可以手动调用
+     *
+     * @Param: []
+     * @return: int 可用的从库数
+     */
+    public int checkLag() {
+        int available = 0;
+        for (Replica replica : replicas) {
+            long lag;
+            try (Connection conn = replica.source.getConnection()) {
+                lag = lagProbe.lagMillis(conn);
+            } catch (Exception e) {
+                lag = UNAVAILABLE;
+                if (replica.lagMillis != UNAVAILABLE) {
+                    System.err.println("从库 " + replica.name + " 检查复制延迟失败，暂时不用：" + e);
+                }
+            }
+            replica.lagMillis = lag;
+            if (isAvailable(replica)) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    private void checkLagQuietly() {
+        try {
+            checkLag();
+        } catch (RuntimeException e) {
+            // 抛出异常会让后续的检查全部取消
+            e.printStackTrace();
+        }
+    }
+
+    private boolean isAvailable(Replica replica) {
+        return replica.lagMillis <= maxLagMillis;
+    }
+
+    /**
+     * 可用的从库中借出连接最少的，从轮到的那个开始找，一样多时选先找到的，相当于轮流
+     */
+    private Replica chooseReplica() {
+        int n = replicas.length;
+        if (n == 0) {
+            return null;
+        }
+        int start = (nextReplica.getAndIncrement() & Integer.MAX_VALUE) % n;
+        Replica best = null;
+        for (int i = 0; i < n; i++) {
+            Replica replica = replicas[(start + i) % n];
+            if (isAvailable(replica) && (best == null || replica.active.get() < best.active.get())) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    /**
+     * @Date: 2026/10/19 20:10
+     * @Description:
+     *      每个从库的读次数
+     *
+     * @Param: []
+     * @return: java.util.Map<java.lang.String,java.lang.Long>
+     */
+    public Map<String, Long> getReplicaReads() {
+        Map<String, Long> reads = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            reads.put(replica.name, replica.reads.sum());
+        }
+        return reads;
+    }
+
+    /**
+     * @Date: 2026/10/19 20:10
+     * @Description:
+     *      每个从库最近一次检查到的复制延迟，不可用的为-1
+     *
+     * @Param: []
+     * @return: java.util.Map<java.lang.String,java.lang.Long>
+     */
+    public Map<String, Long> getReplicaLagMillis() {
+        Map<String, Long> lags = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            long lag = replica.lagMillis;
+            lags.put(replica.name, lag == UNAVAILABLE ? -1 : lag);
+        }
+        return lags;
+    }
+
+    @Override
+    public String toString() {
+        return "RoutingDataSource{" +
+                "primaryReads=" + getPrimaryReads() +
+                ", writes=" + getWrites() +
+                ", replicaReads=" + getReplicaReads() +
+                ", replicaLagMillis=" + getReplicaLagMillis() +
+                ", maxLagMillis=" + maxLagMillis +
+                '}';
+    }
+
+    /**
+     * @Date: 2026/10/19 20:12
+     * @Description:
+     *      停止检查复制延迟，已经借出的连接不受影响；主库、从库的连接池由创建它们的地方关闭
+     *
+     * @Param: []
+     * @return: void
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("RoutingDataSource不是 " + iface.getName() + " 的包装");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+
+    /**
+     * 查询从库的复制延迟
+     */
+    @FunctionalInterface
+    public interface LagProbe {
+        /**
+         * @return 落后主库的毫秒数，判断不了时抛出异常，这个从库会被暂时停用
+         */
+        long lagMillis(Connection conn) throws SQLException;
+    }
+
+    private static class Replica {
+        final String name;
+        final ConnectionSource source;
+        // 当前借出的连接数，用来选负载最低的
+        final AtomicInteger active = new AtomicInteger();
+        final LongAdder reads = new LongAdder();
+        // 第一次检查之前当作可用
+        volatile long lagMillis;
+
+        Replica(String name, ConnectionSource source) {
+            this.name = name;
+            this.source = source;
+        }
+    }
+
+    /**
+     * 借出的RoutingConnection
+     *      forRead / forWrite    见RoutingConnection
+     *      setAutoCommit         记下来，关闭自动提交时借主库并开始事务
+     *      setReadOnly           记下来，已经借了主库时也设置到主库上
+     *      close()               把借的物理连接都还回去，重复close无效
+     *      其他方法               只读且自动提交、没用过主库时调用从库的连接，否则调用主库的连接
+     *  和普通的Connection一样不是线程安全的
+     */
+    private class RoutingHandler implements InvocationHandler {
+        private Connection primaryConn;
+        private Connection replicaConn;
+        private Replica replica;
+        private boolean autoCommit = true;
+        private boolean readOnly;
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "RoutingConnection[primary=" + primaryConn + ", " +
+                            (replica == null ? "replica=null" : replica.name + "=" + replicaConn) + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            checkOpen();
+            switch (name) {
+                case "forRead":
+                    return forRead();
+                case "forWrite":
+                    writes.increment();
+                    return primary();
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    if (!autoCommit || primaryConn != null) {
+                        primary().setAutoCommit(autoCommit);
+                    }
+                    return null;
+                case "isReadOnly":
+                    return readOnly;
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    if (primaryConn != null) {
+                        primaryConn.setReadOnly(readOnly);
+                    }
+                    return null;
+                default:
+                    break;
+            }
+
+            Connection target = readOnly && autoCommit && primaryConn == null ? forRead() : primary();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Connection forRead() throws SQLException {
+            if (!autoCommit || primaryConn != null) {
+                primaryReads.increment();
+                return primary();
+            }
+            if (replicaConn != null) {
+                replica.reads.increment();
+                return replicaConn;
+            }
+            Replica chosen;
+            while ((chosen = chooseReplica()) != null) {
+                try {
+                    replicaConn = chosen.source.getConnection();
+                } catch (Exception e) {
+                    // 下一次检查延迟正常后才会再用这个从库
+                    chosen.lagMillis = UNAVAILABLE;
+                    System.err.println("从库 " + chosen.name + " 借连接失败，暂时不用：" + e);
+                    continue;
+                }
+                replica = chosen;
+                chosen.active.incrementAndGet();
+                chosen.reads.increment();
+                return replicaConn;
+            }
+            primaryReads.increment();
+            return primary();
+        }
+
+        private Connection primary() throws SQLException {
+            if (primaryConn == null) {
+                Connection conn;
+                try {
+                    conn = primary.getConnection();
+                } catch (SQLException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new SQLException("从主库借连接失败", e);
+                }
+                try {
+                    if (!autoCommit) {
+                        conn.setAutoCommit(false);
+                    }
+                    if (readOnly) {
+                        conn.setReadOnly(true);
+                    }
+                } catch (SQLException e) {
+                    conn.close();
+                    throw e;
+                }
+                primaryConn = conn;
+            }
+            return primaryConn;
+        }
+
+        private void checkOpen() throws SQLException {
+            if (closed) {
+                throw new SQLException("连接已经关闭，不能再使用");
+            }
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            SQLException failure = null;
+            if (replicaConn != null) {
+                replica.active.decrementAndGet();
+                failure = closeQuietly(replicaConn, failure);
+                replicaConn = null;
+            }
+            if (primaryConn != null) {
+                failure = closeQuietly(primaryConn, failure);
+                primaryConn = null;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        // 物理连接上BaseDao缓存的Statement跟着清掉，两个连接都要还回去
+        private SQLException closeQuietly(Connection conn, SQLException failure) {
+            StatementCache.evict(conn);
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                if (failure == null) {
+                    return e;
+                }
+                failure.addSuppressed(e);
+            }
+            return failure;
+        }
+    }
+}
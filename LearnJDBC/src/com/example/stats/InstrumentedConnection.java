@@ -0,0 +1,279 @@
+package com.example.stats;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 21:20
+ * @Description:
+ *      统计用的连接代理
+ *          prepareStatement / prepareCall  返回的Statement执行时按创建时的SQL记录
+ *          createStatement                 返回的Statement按execute时传入的SQL记录
+ *      execute系列方法的耗时记为一次调用，executeUpdate和executeBatch影响的行数记为rows；
+ *      查询返回的行数在遍历结果集时累加，遍历了多少行就记多少行
+ *      超过慢查询阈值的执行连同绑定的参数交给SlowQueryLog
+ *
+ *      代理对象的equals、hashCode按代理本身比较，可以作为StatementCache中的key，连接关闭或者被淘汰时从中清除
+ */
+class InstrumentedConnection implements InvocationHandler {
+
+    private final Connection target;
+    private final String source;
+
+    private InstrumentedConnection(Connection target, String source) {
+        this.target = target;
+        this.source = source;
+    }
+
+    static Connection wrap(Connection conn, String source) {
+        return (Connection) Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new InstrumentedConnection(conn, source));
+    }
+
+    static boolean isInstrumented(Connection conn) {
+        return Proxy.isProxyClass(conn.getClass()) && Proxy.getInvocationHandler(conn) instanceof InstrumentedConnection;
+    }
+
+    static String sourceOf(Connection conn) {
+        return isInstrumented(conn) ? ((InstrumentedConnection) Proxy.getInvocationHandler(conn)).source : null;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Instrumented[" + target + "]";
+            default:
+                break;
+        }
+
+        Object result = invokeTarget(target, method, args);
+        if (result instanceof PreparedStatement) {
+            String sql = (String) args[0];
+            Class<?> type = result instanceof CallableStatement ? CallableStatement.class : PreparedStatement.class;
+            return wrapStatement(type, (Statement) result, proxy, sql, SqlStatsRegistry.statsFor(source, sql));
+        }
+        if (result instanceof Statement) {
+            return wrapStatement(Statement.class, (Statement) result, proxy, null, null);
+        }
+        return result;
+    }
+
+    private Object wrapStatement(Class<?> type, Statement statement, Object connection,
+                                 String preparedSql, StatementStats stats) {
+        return Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+                new Class<?>[]{type}, new InstrumentedStatement(statement, connection, preparedSql, stats));
+    }
+
+    static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+
+    /**
+     * Statement代理，stats为null时（普通Statement）每次执行按传入的SQL查找统计对象
+     */
+    private class InstrumentedStatement implements InvocationHandler {
+        private final Statement statement;
+        private final Object connection;
+        private final String preparedSql;
+        private final StatementStats preparedStats;
+        // 普通Statement上addBatch的第一条SQL，executeBatch时记在它名下
+        private String batchSql;
+        // 绑定的参数，慢查询日志用，下标0对应第一个占位符
+        private Object[] parameters;
+        private int parameterCount;
+
+        private InstrumentedStatement(Statement statement, Object connection, String preparedSql,
+                                      StatementStats preparedStats) {
+            this.statement = statement;
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+            this.preparedStats = preparedStats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getConnection":
+                    return connection;
+                case "addBatch":
+                    if (args != null && args.length == 1 && batchSql == null) {
+                        batchSql = (String) args[0];
+                    }
+                    break;
+                case "clearBatch":
+                    batchSql = null;
+                    break;
+                case "clearParameters":
+                    parameterCount = 0;
+                    break;
+                default:
+                    // setInt(1, x)、setObject(1, x)、setNull(1, type) 之类
+                    if (args != null && args.length >= 2 && args[0] instanceof Integer && name.startsWith("set")) {
+                        bindParameter((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+                    }
+                    break;
+            }
+            if (!name.startsWith("execute")) {
+                Object result = invokeTarget(statement, method, args);
+                if (result instanceof ResultSet && "getResultSet".equals(name)) {
+                    return wrapResultSet((ResultSet) result, currentStats(null));
+                }
+                return result;
+            }
+
+            String sql = preparedSql != null ? preparedSql
+                    : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : batchSql;
+            StatementStats stats = currentStats(sql);
+            if ("executeBatch".equals(name)) {
+                batchSql = null;
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(statement, method, args);
+            } catch (Throwable e) {
+                recordExecution(stats, sql, System.nanoTime() - start, 0, true);
+                throw e;
+            }
+            recordExecution(stats, sql, System.nanoTime() - start, affectedRows(result), false);
+            if (result instanceof ResultSet) {
+                return wrapResultSet((ResultSet) result, stats);
+            }
+            return result;
+        }
+
+        private void bindParameter(int index, Object value) {
+            if (!SlowQueryLog.isEnabled() || index < 1) {
+                return;
+            }
+            if (parameters == null || parameters.length < index) {
+                int length = parameters == null ? 4 : parameters.length * 2;
+                parameters = Arrays.copyOf(parameters == null ? new Object[0] : parameters, Math.max(index, length));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        private void recordExecution(StatementStats stats, String sql, long elapsedNanos, long rows, boolean failed) {
+            if (stats == null) {
+                return;
+            }
+            stats.record(elapsedNanos, rows, failed);
+            if (SlowQueryLog.isSlow(elapsedNanos)) {
+                Object[] bound = parameterCount == 0 ? null : Arrays.copyOf(parameters, parameterCount);
+                SlowQueryLog.record(source, sql != null ? sql : stats.getSampleSql(), bound, elapsedNanos, failed);
+            }
+        }
+
+        private StatementStats currentStats(String sql) {
+            if (preparedStats != null) {
+                return preparedStats;
+            }
+            return sql == null ? null : SqlStatsRegistry.statsFor(source, sql);
+        }
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        if (result instanceof Long) {
+            return (Long) result;
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                // SUCCESS_NO_INFO（-2）算作一行
+                rows += count >= 0 ? count : count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+            }
+            return rows;
+        }
+        if (result instanceof long[]) {
+            long rows = 0;
+            for (long count : (long[]) result) {
+                rows += count >= 0 ? count : count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+            }
+            return rows;
+        }
+        return 0;
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet, StatementStats stats) {
+        if (resultSet == null || stats == null) {
+            return resultSet;
+        }
+        return (ResultSet) Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new CountingResultSet(resultSet, stats));
+    }
+
+
+    /**
+     * 结果集代理，next()返回true时行数加一，关闭或遍历完时一次性记到统计里
+     */
+    private static class CountingResultSet implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final StatementStats stats;
+        private long rows;
+
+        CountingResultSet(ResultSet resultSet, StatementStats stats) {
+            this.resultSet = resultSet;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    boolean hasNext = resultSet.next();
+                    if (hasNext) {
+                        rows++;
+                    } else {
+                        flush();
+                    }
+                    return hasNext;
+                case "close":
+                    flush();
+                    resultSet.close();
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return invokeTarget(resultSet, method, args);
+            }
+        }
+
+        private void flush() {
+            if (rows > 0) {
+                stats.addRows(rows);
+                rows = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.stats;
+
+import com.example.pool.BagPoolDataSource;
+import com.example.pool.PoolGauges;
+import com.example.utils.ConnectionFactory;
+import com.example.utils.ConnectionSource;
+import com.example.utils.JDBCPoolUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 21:50
+ * @Description:
+ *      慢查询日志，经过SqlStatsRegistry包装的连接上执行的SQL超过阈值时记录：时间、来源、耗时、SQL、绑定的参数
+ *      BaseDao的可变参数args都是通过setObject绑定的，代理Statement记下了这些值，所以日志中的参数就是调用DAO时传的args
+ *
+ *      某个SQL指纹第一次超过阈值时，还会在同一来源的另一个连接上执行一次 EXPLAIN，把执行计划也写进日志，之后同一指纹不再EXPLAIN
+ *      连接池没有空闲连接时不等，这次跳过（日志中记 explain skipped），下次超过阈值时再试
+ *      写文件和EXPLAIN都在后台线程中进行，不会让本来就慢的查询更慢；后台来不及处理时丢弃并计数
+ *
+ *      配置（系统属性，也可以调用对应的set方法修改）：
+ *          jdbc.slowlog.thresholdMs   阈值毫秒数，默认1000，小于0表示关闭慢查询日志
+ *          jdbc.slowlog.sampleRate    超过阈值的SQL按这个比例记录（0到1），默认1；每个指纹第一次超过阈值时总会记录
+ *          jdbc.slowlog.explain       是否自动EXPLAIN，默认true
+ *          jdbc.slowlog.file          日志文件，默认 logs/slow-query.log
+ *          jdbc.slowlog.maxBytes      单个文件的最大字节数，默认10MB，超过后滚动
+ *          jdbc.slowlog.maxFiles      保留的旧文件个数，默认5
+ */
+public class SlowQueryLog {
+
+    // 参数值最多记录的字符数，太长的截断
+    private static final int MAX_ARG_LENGTH = 200;
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private static volatile long thresholdNanos =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("jdbc.slowlog.thresholdMs", 1000));
+    private static volatile double sampleRate =
+            Double.parseDouble(System.getProperty("jdbc.slowlog.sampleRate", "1"));
+    private static volatile boolean explainEnabled =
+            Boolean.parseBoolean(System.getProperty("jdbc.slowlog.explain", "true"));
+    // 根据慢查询的来源获取执行EXPLAIN用的连接
+    private static volatile Function<String, ConnectionSource> explainConnections = SlowQueryLog::defaultExplainConnection;
+
+    private static final RollingLogFile LOG_FILE = new RollingLogFile(
+            Paths.get(System.getProperty("jdbc.slowlog.file", "logs/slow-query.log")),
+            Long.getLong("jdbc.slowlog.maxBytes", 10L * 1024 * 1024),
+            Integer.getInteger("jdbc.slowlog.maxFiles", 5));
+
+    // 已经超过过阈值的 (来源, 指纹)，只有第一次会EXPLAIN
+    private static final Set<String> SEEN = ConcurrentHashMap.newKeySet();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder LOGGED = new LongAdder();
+
+    private static final ThreadPoolExecutor WRITER = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+        Thread thread = new Thread(r, "jdbc-slow-query-log");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SlowQueryLog() {
+    }
+
+    public static boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    /**
+     * @Date: 2026/10/18 21:55
+     * @Description:
+     *      是否超过了阈值，代理Statement每次执行后调用
+     *
+     * @Param: [elapsedNanos]
+     * @return: boolean
+     */
+    static boolean isSlow(long elapsedNanos) {
+        long threshold = thresholdNanos;
+        return threshold >= 0 && elapsedNanos >= threshold;
+    }
+
+    /**
+     * @Date: 2026/10/18 22:00
+     * @Description:
+     *      记录一次慢查询，只是放进队列，由后台线程写文件和EXPLAIN
+     *
+     * @Param: [source, sql, parameters 绑定的参数，下标0对应第一个占位符, elapsedNanos, failed]
+     * @return: void
+     */
+    static void record(String source, String sql, Object[] parameters, long elapsedNanos, boolean failed) {
+        String key = source + '\u0000' + SqlFingerprint.of(sql);
+        boolean first = SEEN.add(key);
+        if (!first && sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        long timestamp = System.currentTimeMillis();
+        Object[] args = parameters == null ? new Object[0] : parameters;
+        try {
+            WRITER.execute(() -> write(timestamp, source, sql, args, elapsedNanos, failed, first));
+        } catch (RejectedExecutionException e) {
+            DROPPED.increment();
+            if (first) {
+                // 没写进去，下次超过阈值时再试一次EXPLAIN
+                SEEN.remove(key);
+            }
+        }
+    }
+
+    private static void write(long timestamp, String source, String sql, Object[] args,
+                              long elapsedNanos, boolean failed, boolean first) {
+        StringBuilder entry = new StringBuilder(256);
+        entry.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.ROOT).format(new Date(timestamp)))
+                .append(" source=").append(source)
+                .append(" elapsed_ms=").append(String.format(Locale.ROOT, "%.3f", elapsedNanos / 1e6))
+                .append(failed ? " failed" : "")
+                .append('\n');
+        entry.append("  sql: ").append(sql.trim().replace('\n', ' ')).append('\n');
+        entry.append("  args: ").append(formatArgs(args)).append('\n');
+        if (first && explainEnabled && isExplainable(sql) && !explain(entry, source, sql, args)) {
+            // 这次借不到连接，下次超过阈值时再试
+            SEEN.remove(source + '\u0000' + SqlFingerprint.of(sql));
+        }
+        try {
+            LOG_FILE.append(entry.toString());
+            LOGGED.increment();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 在另一个连接上执行 EXPLAIN sql，执行计划的每一行写成 列名=值 的形式
+     * 因为借不到连接跳过时返回false
+     */
+    private static boolean explain(StringBuilder entry, String source, String sql, Object[] args) {
+        String explainSql = "explain " + stripSemicolon(sql.trim());
+        try {
+            ConnectionSource connections = explainConnections.apply(source);
+            try (Connection conn = connections.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(explainSql)) {
+                for (int i = 0; i < args.length; i++) {
+                    ps.setObject(i + 1, args[i]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    ResultSetMetaData metaData = rs.getMetaData();
+                    while (rs.next()) {
+                        entry.append("  explain:");
+                        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                            entry.append(' ').append(metaData.getColumnLabel(i)).append('=').append(rs.getObject(i));
+                        }
+                        entry.append('\n');
+                    }
+                }
+            }
+        } catch (ExplainSkippedException e) {
+            entry.append("  explain skipped: ").append(e.getMessage()).append('\n');
+            return false;
+        } catch (Exception e) {
+            entry.append("  explain failed: ").append(e).append('\n');
+        }
+        return true;
+    }
+
+    /**
+     * 默认用慢查询来源的那个连接池；来源不是连接池时（JDBCUtils直接获取的连接）用JDBCUtils背后的ConnectionFactory，
+     * 不会为了EXPLAIN去创建一个没用过的连接池，也保证EXPLAIN的是同一个库
+     * 都不经过SqlStatsRegistry包装，EXPLAIN本身不计入统计
+     *
+     * 查询变慢的时候往往正是连接池被借光的时候，这时去借连接会让唯一的后台线程等上connectionTimeout，
+     * 后面的日志都会被丢弃；所以连接池没有空闲连接、也不能再新建时不EXPLAIN，只在日志中记一行 explain skipped
+     */
+    private static ConnectionSource defaultExplainConnection(String source) {
+        if (JDBCPoolUtils.getPoolNames().contains(source)) {
+            return () -> {
+                checkAvailable(JDBCPoolUtils.getMetrics(source).getGauges());
+                return JDBCPoolUtils.getDataSource(source).getConnection();
+            };
+        }
+        return () -> {
+            ConnectionFactory factory = ConnectionFactory.getDefault();
+            BagPoolDataSource pool = factory.getPool();
+            if (pool != null) {
+                checkAvailable(new PoolGauges(pool.getActiveCount(), pool.getIdleCount(), pool.getTotalCount(),
+                        pool.getMaxPoolSize(), pool.getWaitingThreadCount()));
+            }
+            return factory.getConnection();
+        };
+    }
+
+    // 没有空闲连接，总数也到了上限时借连接要等，抛出ExplainSkippedException；连接池不提供这些数值时照常去借
+    private static void checkAvailable(PoolGauges gauges) throws ExplainSkippedException {
+        if (gauges.getIdle() == 0 && gauges.getMax() > 0 && gauges.getTotal() >= gauges.getMax()) {
+            throw new ExplainSkippedException("连接池没有空闲连接 " + gauges);
+        }
+    }
+
+    /**
+     * 执行EXPLAIN用的连接借不到时抛出，日志中记为 explain skipped，而不是 explain failed
+     */
+    static class ExplainSkippedException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        ExplainSkippedException(String reason) {
+            super(reason);
+        }
+    }
+
+    static boolean isExplainable(String sql) {
+        String fingerprint = SqlFingerprint.of(sql);
+        return fingerprint.startsWith("select ") || fingerprint.startsWith("insert ")
+                || fingerprint.startsWith("update ") || fingerprint.startsWith("delete ")
+                || fingerprint.startsWith("replace ");
+    }
+
+    private static String stripSemicolon(String sql) {
+        return sql.endsWith(";") ? sql.substring(0, sql.length() - 1) : sql;
+    }
+
+    static String formatArgs(Object[] args) {
+        String[] formatted = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            String value;
+            if (arg == null) {
+                value = "null";
+            } else if (arg instanceof byte[]) {
+                value = "<" + ((byte[]) arg).length + " bytes>";
+            } else if (arg instanceof CharSequence || arg instanceof java.util.Date) {
+                value = "'" + arg + "'";
+            } else if (arg instanceof Number || arg instanceof Boolean) {
+                value = arg.toString();
+            } else {
+                // 流、Blob之类的只记类型
+                value = "<" + arg.getClass().getSimpleName() + ">";
+            }
+            formatted[i] = value.length() > MAX_ARG_LENGTH ? value.substring(0, MAX_ARG_LENGTH) + "..." : value;
+        }
+        return Arrays.toString(formatted);
+    }
+
+    public static long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    /**
+     * @Date: 2026/10/18 22:05
+     * @Description:
+     *      修改阈值，小于0时关闭慢查询日志
+     *
+     * @Param: [thresholdMillis]
+     * @return: void
+     */
+    public static void setThresholdMillis(long thresholdMillis) {
+        thresholdNanos = thresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    public static double getSampleRate() {
+        return sampleRate;
+    }
+
+    public static void setSampleRate(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate必须在0到1之间");
+        }
+        SlowQueryLog.sampleRate = sampleRate;
+    }
+
+    public static void setExplainEnabled(boolean explainEnabled) {
+        SlowQueryLog.explainEnabled = explainEnabled;
+    }
+
+    /**
+     * @Date: 2026/10/18 22:08
+     * @Description:
+     *      指定执行EXPLAIN用的连接从哪里来
+     *
+     * @Param: [resolver]
+     * @return: void
+     */
+    public static void setExplainConnections(Function<String, ConnectionSource> resolver) {
+        explainConnections = resolver;
+    }
+
+    public static Path getLogFile() {
+        return LOG_FILE.getFile();
+    }
+
+    public static long getLoggedCount() {
+        return LOGGED.sum();
+    }
+
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * @Date: 2026/10/18 22:10
+     * @Description:
+     *      等待已经记录的慢查询全部写入文件
+     *
+     * @Param: [timeoutMillis]
+     * @return: boolean 是否在超时前写完
+     */
+    public static boolean flush(long timeoutMillis) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            try {
+                WRITER.execute(latch::countDown);
+                break;
+            } catch (RejectedExecutionException e) {
+                // 队列满了，等一会儿再放
+                if (System.currentTimeMillis() >= deadline) {
+                    return false;
+                }
+                Thread.sleep(10);
+            }
+        }
+        return latch.await(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+}
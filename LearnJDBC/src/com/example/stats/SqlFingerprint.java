@@ -0,0 +1,181 @@
+package com.example.stats;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 20:10
+ * @Description:
+ *      SQL指纹：把SQL规范化，只有常量值、空白、大小写、注释不同的SQL得到同一个指纹，相当于pg_stat_statements的query列
+ *          1. 字符串、数字常量替换为 ?
+ *          2. 注释去掉，连续的空白合并，关键字和标识符转为小写（反引号中的标识符不变）
+ *          3. in (?, ?, ?) 不管有几个元素都写成 in (...)
+ *
+ *      例如 "SELECT id,name FROM customers WHERE id IN (1, 2,3)" 和 "select id, name from customers where id in (?)"
+ *      的指纹都是 "select id, name from customers where id in (...)"
+ *
+ *      DAO中的SQL基本都是常量，规范化的结果按原始SQL缓存起来
+ */
+public class SqlFingerprint {
+
+    private static final int MAX_CACHED = 10000;
+
+    private static final ConcurrentMap<String, String> CACHE = new ConcurrentHashMap<>();
+
+    private SqlFingerprint() {
+    }
+
+    /**
+     * @Date: 2026/10/18 20:15
+     * @Description:
+     *      获取SQL的指纹
+     *
+     * @Param: [sql]
+     * @return: java.lang.String
+     */
+    public static String of(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String fingerprint = CACHE.get(sql);
+        if (fingerprint == null) {
+            fingerprint = normalize(sql);
+            // 拼接了常量的SQL会让缓存无限增长，满了就整个清掉
+            if (CACHE.size() >= MAX_CACHED) {
+                CACHE.clear();
+            }
+            CACHE.put(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-'
+                    || c == '#') {
+                // 单行注释
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+                appendToken(out, "?");
+            } else if (c == '`') {
+                int end = sql.indexOf('`', i + 1);
+                end = end < 0 ? length : end + 1;
+                appendToken(out, sql.substring(i, end));
+                i = end;
+            } else if (isDigit(c) || c == '.' && i + 1 < length && isDigit(sql.charAt(i + 1))) {
+                // 数字常量，包括小数、科学计数法和0x开头的十六进制
+                i++;
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                appendToken(out, "?");
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < length && (Character.isJavaIdentifierPart(sql.charAt(i)))) {
+                    i++;
+                }
+                appendToken(out, sql.substring(start, i).toLowerCase());
+            } else if (isOperator(c)) {
+                // 负号、正号不和前面的运算符连在一起，"=-1" 和 "= -1" 的指纹相同
+                int start = i++;
+                while (i < length && isOperator(sql.charAt(i)) && sql.charAt(i) != '-' && sql.charAt(i) != '+') {
+                    i++;
+                }
+                appendToken(out, sql.substring(start, i));
+            } else {
+                // ; 结尾的分号不算在指纹里
+                if (c != ';') {
+                    appendToken(out, String.valueOf(c));
+                }
+                i++;
+            }
+        }
+        return collapseInLists(out);
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                // 两个引号连写是转义
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 逗号、右括号、点的前面和左括号、点的后面不加空格，其他记号之间用一个空格隔开
+     */
+    private static void appendToken(StringBuilder out, String token) {
+        if (out.length() > 0) {
+            char last = out.charAt(out.length() - 1);
+            char first = token.charAt(0);
+            boolean glued = first == ',' || first == ')' || first == '.' || last == '(' || last == '.';
+            if (!glued) {
+                out.append(' ');
+            }
+        }
+        out.append(token);
+    }
+
+    /**
+     * in (?, ?, ?) -> in (...)
+     */
+    private static String collapseInLists(StringBuilder buffer) {
+        String sql = buffer.toString();
+        if (!sql.contains("in (?")) {
+            return sql;
+        }
+        StringBuilder out = new StringBuilder(sql.length());
+        String marker = "in (?";
+        int copied = 0;
+        int index = sql.indexOf(marker);
+        while (index >= 0) {
+            int end = index + marker.length();
+            if (index == 0 || sql.charAt(index - 1) == ' ') {
+                while (sql.startsWith(", ?", end)) {
+                    end += 3;
+                }
+                if (end < sql.length() && sql.charAt(end) == ')') {
+                    out.append(sql, copied, index).append("in (...)");
+                    copied = end + 1;
+                }
+            }
+            index = sql.indexOf(marker, end);
+        }
+        return out.append(sql, copied, sql.length()).toString();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isOperator(char c) {
+        return c == '=' || c == '<' || c == '>' || c == '!' || c == '+' || c == '-' || c == '*'
+                || c == '/' || c == '%' || c == '|' || c == '&' || c == '^' || c == '~' || c == ':';
+    }
+}
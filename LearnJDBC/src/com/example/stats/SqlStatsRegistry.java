@@ -0,0 +1,181 @@
+package com.example.stats;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 21:00
+ * @Description:
+ *      客户端版的pg_stat_statements：按 (来源, SQL指纹) 统计执行次数、行数、总耗时、p50/p99/max
+ *      JDBCUtils和JDBCPoolUtils返回的连接都经过wrap包装，通过它创建的Statement每次执行都会记录到这里
+ *
+ *      查询：snapshot() 按总耗时从大到小返回全部统计，get() 返回某一条SQL的统计
+ *      输出：dump() 打印成表格；系统属性 jdbc.stats.dumpOnExit=true 时JVM退出前打印到标准输出
+ *      开关：系统属性 jdbc.stats=false 时不包装连接，没有任何额外开销
+ */
+public class SqlStatsRegistry {
+
+    // 来源和指纹之间的分隔符
+    private static final char SEPARATOR = '\u0000';
+
+    private static final ConcurrentMap<String, StatementStats> STATS = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = Boolean.parseBoolean(System.getProperty("jdbc.stats", "true"));
+
+    static {
+        if (Boolean.getBoolean("jdbc.stats.dumpOnExit")) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(System.out), "jdbc-stats-dump"));
+        }
+    }
+
+    private SqlStatsRegistry() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @Date: 2026/10/18 21:02
+     * @Description:
+     *      打开或关闭统计，只影响之后获取的连接
+     *
+     * @Param: [enabled]
+     * @return: void
+     */
+    public static void setEnabled(boolean enabled) {
+        SqlStatsRegistry.enabled = enabled;
+    }
+
+    /**
+     * @Date: 2026/10/18 21:05
+     * @Description:
+     *      包装连接，之后通过它执行的SQL都会被统计，关闭统计时原样返回
+     *
+     * @Param: [conn, source 连接的来源，比如 "jdbc"、"druid"]
+     * @return: java.sql.Connection
+     */
+    public static Connection wrap(Connection conn, String source) {
+        if (!enabled || conn == null || InstrumentedConnection.isInstrumented(conn)) {
+            return conn;
+        }
+        return InstrumentedConnection.wrap(conn, source);
+    }
+
+    /**
+     * @Date: 2026/10/18 23:15
+     * @Description:
+     *      连接包装时指定的来源，连接没有经过wrap包装（比如关闭了统计）时返回null
+     *
+     * @Param: [conn]
+     * @return: java.lang.String
+     */
+    public static String sourceOf(Connection conn) {
+        return conn == null ? null : InstrumentedConnection.sourceOf(conn);
+    }
+
+    /**
+     * @Date: 2026/10/18 21:08
+     * @Description:
+     *      获取某个来源某条SQL的统计对象，没有就创建
+     *
+     * @Param: [source, sql]
+     * @return: com.example.stats.StatementStats
+     */
+    public static StatementStats statsFor(String source, String sql) {
+        String fingerprint = SqlFingerprint.of(sql);
+        String key = source + SEPARATOR + fingerprint;
+        StatementStats stats = STATS.get(key);
+        if (stats == null) {
+            stats = STATS.computeIfAbsent(key, k -> new StatementStats(source, fingerprint, sql));
+        }
+        return stats;
+    }
+
+    /**
+     * @Date: 2026/10/18 21:10
+     * @Description:
+     *      某个来源某条SQL（按指纹匹配）的统计快照
+     *
+     * @Param: [source, sql]
+     * @return: com.example.stats.StatementStatsSnapshot 没有执行过时返回null
+     */
+    public static StatementStatsSnapshot get(String source, String sql) {
+        StatementStats stats = STATS.get(source + SEPARATOR + SqlFingerprint.of(sql));
+        return stats == null ? null : stats.snapshot();
+    }
+
+    /**
+     * @Date: 2026/10/18 21:12
+     * @Description:
+     *      全部统计的快照，按总耗时从大到小排列，排在前面的就是最占数据库时间的SQL
+     *
+     * @Param: []
+     * @return: java.util.List<com.example.stats.StatementStatsSnapshot>
+     */
+    public static List<StatementStatsSnapshot> snapshot() {
+        List<StatementStatsSnapshot> snapshots = new ArrayList<>();
+        for (StatementStats stats : STATS.values()) {
+            snapshots.add(stats.snapshot());
+        }
+        snapshots.sort(Comparator.comparingLong(StatementStatsSnapshot::getTotalNanos).reversed());
+        return snapshots;
+    }
+
+    /**
+     * @Date: 2026/10/18 21:15
+     * @Description:
+     *      清空所有统计
+     *
+     * @Param: []
+     * @return: void
+     */
+    public static void reset() {
+        for (StatementStats stats : STATS.values()) {
+            stats.reset();
+        }
+        STATS.clear();
+    }
+
+    public static void dump(PrintStream out) {
+        out.print(dump());
+        out.flush();
+    }
+
+    /**
+     * @Date: 2026/10/18 21:18
+     * @Description:
+     *      把全部统计格式化成表格，时间单位为毫秒
+     *
+     * @Param: []
+     * @return: java.lang.String
+     */
+    public static String dump() {
+        StringWriter buffer = new StringWriter();
+        PrintWriter out = new PrintWriter(buffer);
+        out.printf("%-8s %10s %10s %7s %12s %10s %10s %10s %10s  %s%n",
+                "source", "calls", "rows", "errors", "total_ms", "mean_ms", "p50_ms", "p99_ms", "max_ms", "query");
+        for (StatementStatsSnapshot s : snapshot()) {
+            out.printf("%-8s %10d %10d %7d %12.3f %10.3f %10.3f %10.3f %10.3f  %s%n",
+                    s.getSource(), s.getCalls(), s.getRows(), s.getErrors(), millis(s.getTotalNanos()),
+                    millis(s.getMeanNanos()), millis(s.getP50Nanos()), millis(s.getP99Nanos()),
+                    millis(s.getMaxNanos()), s.getFingerprint());
+        }
+        out.flush();
+        return buffer.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
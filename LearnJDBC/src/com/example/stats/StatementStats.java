@@ -0,0 +1,102 @@
+package com.example.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 20:45
+ * @Description:
+ *      一个 (来源, SQL指纹) 的累计统计，所有计数都是无锁的
+ *      来源是连接的出处：JDBCUtils直接获取的为 "jdbc"，连接池中获取的为连接池的名字
+ */
+public class StatementStats {
+
+    private final String source;
+    private final String fingerprint;
+    // 第一次执行时的原始SQL，方便对照
+    private final String sampleSql;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    StatementStats(String source, String fingerprint, String sampleSql) {
+        this.source = source;
+        this.fingerprint = fingerprint;
+        this.sampleSql = sampleSql;
+    }
+
+    /**
+     * @Date: 2026/10/18 20:48
+     * @Description:
+     *      记录一次执行
+     *
+     * @Param: [elapsedNanos, rowsAffected 更新影响的行数，查询时为0，返回的行数在遍历结果集时由addRows记录, failed]
+     * @return: void
+     */
+    public void record(long elapsedNanos, long rowsAffected, boolean failed) {
+        latency.record(elapsedNanos);
+        if (rowsAffected > 0) {
+            rows.add(rowsAffected);
+        }
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public void addRows(long rowsReturned) {
+        rows.add(rowsReturned);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getSampleSql() {
+        return sampleSql;
+    }
+
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getTotalNanos() {
+        return latency.getTotalNanos();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    void reset() {
+        latency.reset();
+        rows.reset();
+        errors.reset();
+    }
+
+    /**
+     * @Date: 2026/10/18 20:50
+     * @Description:
+     *      当前统计的快照
+     *
+     * @Param: []
+     * @return: com.example.stats.StatementStatsSnapshot
+     */
+    public StatementStatsSnapshot snapshot() {
+        return new StatementStatsSnapshot(source, fingerprint, sampleSql, getCalls(), getRows(), getErrors(),
+                getTotalNanos(), latency.getPercentileNanos(50), latency.getPercentileNanos(99), latency.getMaxNanos());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.stats;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 20:52
+ * @Description:
+ *      StatementStats某一时刻的快照，不可变，时间单位都是纳秒
+ */
+public class StatementStatsSnapshot {
+
+    private final String source;
+    private final String fingerprint;
+    private final String sampleSql;
+    private final long calls;
+    private final long rows;
+    private final long errors;
+    private final long totalNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+
+    StatementStatsSnapshot(String source, String fingerprint, String sampleSql, long calls, long rows, long errors,
+                           long totalNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+        this.source = source;
+        this.fingerprint = fingerprint;
+        this.sampleSql = sampleSql;
+        this.calls = calls;
+        this.rows = rows;
+        this.errors = errors;
+        this.totalNanos = totalNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getSampleSql() {
+        return sampleSql;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMeanNanos() {
+        return calls == 0 ? 0 : totalNanos / calls;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementStatsSnapshot{" +
+                "source='" + source + '\'' +
+                ", fingerprint='" + fingerprint + '\'' +
+                ", calls=" + calls +
+                ", rows=" + rows +
+                ", errors=" + errors +
+                ", totalNanos=" + totalNanos +
+                ", p50Nanos=" + p50Nanos +
+                ", p99Nanos=" + p99Nanos +
+                ", maxNanos=" + maxNanos +
+                '}';
+    }
+}
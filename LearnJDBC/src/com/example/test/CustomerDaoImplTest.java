@@ -2,18 +2,33 @@ package com.example.test;
 
 import com.example.bean.Customer;
 import com.example.dao.CustomerDao;
+import com.example.dao.cache.CacheStats;
+import com.example.dao.daoImpl.AggregatingCustomerDao;
+import com.example.dao.daoImpl.CachingCustomerDao;
 import com.example.dao.daoImpl.CustomerDaoImpl;
+import com.example.dao.loader.CustomerLoader;
+import com.example.pool.RoutingDataSource;
+import com.example.stats.SlowQueryLog;
+import com.example.stats.SqlStatsRegistry;
+import com.example.stats.StatementStatsSnapshot;
+import com.example.utils.ConnectionFactory;
 import com.example.utils.JDBCPoolUtils;
 import com.example.utils.JDBCUtils;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -39,6 +54,18 @@ public class CustomerDaoImplTest {
         JDBCUtils.closeResource(conn, null);
     }
 
+    @Test
+    public void streamAll() throws SQLException, IOException, ClassNotFoundException {
+        Connection conn = JDBCUtils.getConnection();
+
+        // 流式读取，Stream用完一定要关闭
+        try (Stream<Customer> customers = customerDao.streamAll(conn)) {
+            customers.forEach(System.out::println);
+        }
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
     @Test
     public void insert() throws SQLException, IOException, ClassNotFoundException, ParseException {
         Connection conn = JDBCUtils.getConnection();
@@ -51,6 +78,43 @@ public class CustomerDaoImplTest {
         JDBCUtils.closeResource(conn, null);
     }
 
+    @Test
+    public void insertAll() throws SQLException, IOException, ClassNotFoundException {
+        Connection conn = JDBCUtils.getConnection();
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 1; i <= 10000; i++) {
+            customers.add(new Customer(0, "name_" + i, "email_" + i + "@qq.com", Date.valueOf("2020-11-08")));
+        }
+        int count = customerDao.insertAll(conn, customers);
+        System.out.println("插入了 " + count + " 条数据");
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    @Test
+    public void updateAll() throws SQLException, IOException, ClassNotFoundException {
+        Connection conn = JDBCUtils.getConnection();
+
+        List<Customer> customers = new ArrayList<>();
+        customers.add(new Customer(21, "石原里美", "shiyuan@qq.com", Date.valueOf("2020-11-08")));
+        customers.add(new Customer(22, "长泽雅美", "yamei@qq.com", Date.valueOf("2020-11-07")));
+        int count = customerDao.updateAll(conn, customers);
+        System.out.println("更新了 " + count + " 条数据");
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    @Test
+    public void deleteByIds() throws SQLException, IOException, ClassNotFoundException {
+        Connection conn = JDBCUtils.getConnection();
+
+        int count = customerDao.deleteByIds(conn, Arrays.asList(4, 5, 6));
+        System.out.println("删除了 " + count + " 条数据");
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
     @Test
     public void deleteById() throws SQLException, IOException, ClassNotFoundException {
         Connection conn = JDBCUtils.getConnection();
@@ -104,4 +168,148 @@ public class CustomerDaoImplTest {
 
         JDBCUtils.closeResource(conn, null);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void statementStats() throws SQLException, IOException, ClassNotFoundException {
+        Connection conn = JDBCUtils.getConnection();
+
+        for (int i = 0; i < 100; i++) {
+            customerDao.getCustomerById(conn, 1);
+            customerDao.getCount(conn);
+        }
+        customerDao.getAll(conn);
+
+        // 按总耗时从大到小列出每条SQL的调用次数、行数和耗时
+        SqlStatsRegistry.dump(System.out);
+        StatementStatsSnapshot stats = SqlStatsRegistry.get("jdbc", "select count(*) from customers");
+        assertNotNull(stats);
+        assertTrue(stats.getCalls() >= 100);
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    @Test
+    public void slowQueryLog() throws Exception {
+        // 阈值设为0，所有SQL都算慢查询，第一次还会自动EXPLAIN
+        SlowQueryLog.setThresholdMillis(0);
+        Connection conn = JDBCUtils.getConnection();
+
+        customerDao.getAll(conn);
+        customerDao.getCustomerById(conn, 1);
+
+        assertTrue(SlowQueryLog.flush(5000));
+        System.out.println(new String(Files.readAllBytes(SlowQueryLog.getLogFile()), StandardCharsets.UTF_8));
+
+        JDBCUtils.closeResource(conn, null);
+        SlowQueryLog.setThresholdMillis(1000);
+    }
+
+    @Test
+    public void cachedGetCustomerById() throws Exception {
+        CachingCustomerDao cachingDao = new CachingCustomerDao(customerDao, 1000);
+        Connection conn = JDBCUtils.getConnection();
+
+        // 第一次查数据库，之后都从缓存中取
+        for (int i = 0; i < 100; i++) {
+            cachingDao.getCustomerById(conn, 1);
+        }
+        Customer customer = cachingDao.getCustomerById(conn, 1);
+        System.out.println(customer);
+
+        // 通过Dao修改后缓存失效，下一次重新查数据库
+        cachingDao.update(conn, customer);
+        cachingDao.getCustomerById(conn, 1);
+
+        CacheStats stats = cachingDao.getStats();
+        System.out.println(stats);
+        assertEquals(2, stats.getLoads());
+        assertEquals(100, stats.getHits());
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    @Test
+    public void aggregates() throws Exception {
+        // 每分钟和数据库对账一次
+        try (AggregatingCustomerDao aggregatingDao = new AggregatingCustomerDao(customerDao, JDBCUtils::getConnection, 60000)) {
+            Connection conn = JDBCUtils.getConnection();
+
+            // 第一次查询数据库，之后都直接返回
+            Long count = aggregatingDao.getCount(conn);
+            Date maxBirth = aggregatingDao.getMaxBirth(conn);
+            System.out.println(count + " " + maxBirth);
+
+            Date later = new Date(maxBirth.getTime() + 24L * 60 * 60 * 1000);
+            aggregatingDao.insert(conn, new Customer(0, "聚合", "aggregate@example.com", later));
+            assertEquals(count + 1, (long) aggregatingDao.getCount(conn));
+            assertEquals(later, aggregatingDao.getMaxBirth(conn));
+
+            // 和数据库中实际的值一致
+            assertTrue(aggregatingDao.reconcile());
+            assertEquals(customerDao.getCount(conn), aggregatingDao.getCount(conn));
+            assertEquals(customerDao.getMaxBirth(conn), aggregatingDao.getMaxBirth(conn));
+
+            JDBCUtils.closeResource(conn, null);
+        }
+    }
+
+    @Test
+    public void getCustomersByIds() throws Exception {
+        Connection conn = JDBCUtils.getConnection();
+
+        // 3个id补齐成4个占位符
+        List<Customer> customers = customerDao.getCustomersByIds(conn, Arrays.asList(1, 2, 3));
+        customers.forEach(System.out::println);
+
+        JDBCUtils.closeResource(conn, null);
+    }
+
+    @Test
+    public void customerLoader() throws Exception {
+        // 最多等1毫秒，攒够64个就发出
+        try (CustomerLoader loader = new CustomerLoader(customerDao, JDBCPoolUtils::getConnectionFromDruid, 64, 1000, 4)) {
+            List<CompletableFuture<Customer>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(loader.load(i % 20 + 1));
+            }
+            for (CompletableFuture<Customer> future : futures) {
+                future.get();
+            }
+            System.out.println("请求数：" + loader.getBatchLoader().getRequestCount()
+                    + "，查询次数：" + loader.getBatchLoader().getBatchCount()
+                    + "，平均每次查询的id数：" + loader.getBatchLoader().getAverageBatchSize());
+            assertTrue(loader.getBatchLoader().getBatchCount() < 1000);
+        }
+        JDBCPoolUtils.shutdown(JDBCPoolUtils.DRUID);
+    }
+
+    // 读写分离：本地用同一个MySQL中的两个库代替主库和从库，从库没有复制，插入之后两边的数量不一样
+    //      create database jdbc_test_replica;
+    //      create table jdbc_test_replica.customers like jdbc_test.customers;
+    @Test
+    public void routingDataSource() throws Exception {
+        try (ConnectionFactory replica = new ConnectionFactory("replica.properties");
+             RoutingDataSource dataSource = new RoutingDataSource(JDBCPoolUtils::getConnectionFromDruid,
+                     Arrays.asList(replica::getConnection))) {
+            Connection conn = dataSource.getConnection();
+            Long replicaCount = customerDao.getCount(conn);
+            // 写走主库，之后这个连接上的查询也走主库
+            customerDao.insert(conn, new Customer(0, "Gakki", "Gakki@qq.com", Date.valueOf("1988-06-11")));
+            Long primaryCount = customerDao.getCount(conn);
+            JDBCUtils.closeResource(conn, null);
+            System.out.println("从库：" + replicaCount + "，主库：" + primaryCount);
+            System.out.println(dataSource);
+
+            // 事务中的查询走主库
+            conn = dataSource.getConnection();
+            conn.setAutoCommit(false);
+            assertEquals(primaryCount, customerDao.getCount(conn));
+            conn.commit();
+            JDBCUtils.closeResource(conn, null);
+
+            assertEquals(1, dataSource.getReplicaReads().get("replica-1").longValue());
+            assertEquals(2, dataSource.getPrimaryReads());
+        }
+        JDBCPoolUtils.shutdown(JDBCPoolUtils.DRUID);
+    }
+}
@@ -1,11 +1,12 @@
 package com.example.transaction;
 
 import com.example.bean.User;
+import com.example.dao.mapper.BeanRowMapper;
+import com.example.dao.mapper.RowMapperCache;
 import com.example.utils.JDBCUtils;
 import org.junit.Test;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -110,32 +111,14 @@ public class TransactionTest {
             if (resultSet != null){
                 // 获取结果集的元数据
                 ResultSetMetaData metaData = resultSet.getMetaData();
+                // 根据 类 和 结果集的列 获取缓存好的封装器，每条SQL只解析一次属性，而不是每一行每一列都反射一次
+                BeanRowMapper<T> rowMapper = RowMapperCache.getMapper(clazz, metaData);
                 // 结果集不为空的时候，才会创建返回的List
                 List<T> tList = new ArrayList<>();
 
                 while(resultSet.next()){
-                    // 这时不能直接通过new来获取实现类对象
-                    // 那么就用反射
-                    T t = clazz.newInstance();
-
-                    // metaData.getColumnCount()：从结果集元数据中提取出字段个数
-                    for (int i = 0; i < metaData.getColumnCount(); i++) {
-                        // 从结果集中，提取字段的值
-                        Object columnValue = resultSet.getObject(i + 1);// 由于不知道是什么类型，所以用Object
-
-                        // 从结果集元数据中，提取字段的字段名，与值对应
-                        // getColumnName()：获取列名 ---不推荐使用
-                        // getColumnLabel()：获取别名，当sql语句没有别名时，这样获取的就是列名
-//                        String columnName = metaData.getColumnName(i + 1);
-                        String columnLabel = metaData.getColumnLabel(i + 1);
-
-                        // 通过反射给创建的这个 t 对象属性赋值
-                        // 获取当前的字段对应类中的属性镀锡
-                        Field field = clazz.getDeclaredField(columnLabel);
-                        // 防止该属性是私有属性导致无法set成功
-                        field.setAccessible(true);
-                        field.set(t, columnValue); // 给指定 t 对象set指定属性的值
-                    }
+                    // 由封装器创建对象并给属性赋值
+                    T t = rowMapper.mapRow(resultSet);
 
                     // 完成一个 t 的属性填充，就向返回tList中添加
                     tList.add(t);
@@ -0,0 +1,345 @@
+package com.example.utils;
+
+import com.example.pool.BagPoolDataSource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 19:40
+ * @Description:
+ *      JDBCUtils.getConnection原来每次都要：读jdbc.properties -> 解析 -> Class.forName -> DriverManager建立新的物理连接，
+ *      现在改为由ConnectionFactory完成：
+ *          1. 配置文件只在创建时和文件被修改时解析，平时直接用解析好的配置
+ *          2. 同一个驱动类只加载一次
+ *          3. 配置了 pooled=true 时，连接来自内部的BagPoolDataSource，close()时还回池子而不是真正关闭
+ *          4. 配置文件在磁盘上（不是在jar中）时，用WatchService监视它，修改后自动重新加载；
+ *             如果用了池子，旧池子中正在使用的连接不受影响，归还时才关闭，新借的连接来自新池子
+ *
+ *      jdbc.properties中除了原来的user、password、url、driverClass，还可以配置：
+ *          pooled              是否使用连接池，默认false，和原来一样每次都建立新连接
+ *          maxPoolSize         连接池最大连接数，默认10
+ *          connectionTimeout   从连接池借连接最多等待的毫秒数，默认30000
+ *          watch               是否监视配置文件的修改，默认true
+ */
+public class ConnectionFactory implements AutoCloseable {
+
+    public static final String DEFAULT_RESOURCE = "jdbc.properties";
+
+    // 文件修改时往往连着产生好几个事件，等这么久没有新事件了再重新加载
+    private static final long RELOAD_QUIET_MILLIS = 100;
+
+    private static volatile ConnectionFactory defaultFactory;
+
+    // 已经加载过的驱动类
+    private static final Set<String> LOADED_DRIVERS = ConcurrentHashMap.newKeySet();
+
+    private final String resource;
+    // 配置文件在磁盘上的路径，在jar中时为null，不能监视
+    private final Path configFile;
+    private volatile State state;
+    private volatile Thread watcher;
+    private volatile WatchService watchService;
+    private volatile boolean closed;
+
+    public ConnectionFactory(String resource) throws IOException, ClassNotFoundException {
+        this.resource = resource;
+        URL url = ConnectionFactory.class.getClassLoader().getResource(resource);
+        if (url == null) {
+            throw new FileNotFoundException("类路径下找不到配置文件：" + resource);
+        }
+        this.configFile = toPath(url);
+        this.state = createState(load());
+        if (configFile != null && Boolean.parseBoolean(state.properties.getProperty("watch", "true"))) {
+            startWatcher();
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 19:45
+     * @Description:
+     *      JDBCUtils使用的默认工厂，读取类路径下的jdbc.properties，第一次调用时才创建
+     *
+     * @Param: []
+     * @return: com.example.utils.ConnectionFactory
+     */
+    public static ConnectionFactory getDefault() throws IOException, ClassNotFoundException {
+        ConnectionFactory factory = defaultFactory;
+        if (factory == null) {
+            synchronized (ConnectionFactory.class) {
+                factory = defaultFactory;
+                if (factory == null) {
+                    factory = new ConnectionFactory(DEFAULT_RESOURCE);
+                    defaultFactory = factory;
+                }
+            }
+        }
+        return factory;
+    }
+
+    /**
+     * @Date: 2026/10/18 19:50
+     * @Description:
+     *      获取连接，配置了pooled=true时从连接池借，否则建立一个新的物理连接
+     *      借连接期间（包括在旧池子中等待时）配置被重新加载、旧池子被关闭的，换到新池子重新借
+     *
+     * @Param: []
+     * @return: java.sql.Connection
+     */
+    public Connection getConnection() throws SQLException {
+        while (true) {
+            if (closed) {
+                throw new SQLException("ConnectionFactory已经关闭");
+            }
+            State current = state;
+            if (current.pool == null) {
+                return DriverManager.getConnection(current.url, current.info);
+            }
+            try {
+                return current.pool.getConnection();
+            } catch (SQLException e) {
+                if (!current.pool.isClosed() || state == current) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 19:55
+     * @Description:
+     *      重新读取配置文件，配置没有变化时什么也不做
+     *      新配置生效后，旧的连接池被关闭：空闲的连接立即关闭，正在使用的连接归还时才关闭
+     *
+     * @Param: []
+     * @return: boolean 配置是否发生了变化
+     */
+    public synchronized boolean reload() throws IOException, ClassNotFoundException {
+        if (closed) {
+            return false;
+        }
+        Properties properties = load();
+        State previous = state;
+        if (properties.equals(previous.properties)) {
+            return false;
+        }
+        state = createState(properties);
+        if (previous.pool != null) {
+            previous.pool.close();
+        }
+        return true;
+    }
+
+    public String getUrl() {
+        return state.url;
+    }
+
+    public boolean isPooled() {
+        return state.pool != null;
+    }
+
+    /**
+     * @Date: 2026/10/18 19:58
+     * @Description:
+     *      连接池，没有配置pooled=true时为null
+     *
+     * @Param: []
+     * @return: com.example.pool.BagPoolDataSource
+     */
+    public BagPoolDataSource getPool() {
+        return state.pool;
+    }
+
+    public boolean isWatching() {
+        return watcher != null;
+    }
+
+    /**
+     * @Date: 2026/10/18 20:00
+     * @Description:
+     *      停止监视配置文件，关闭连接池
+     *
+     * @Param: []
+     * @return: void
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (state.pool != null) {
+            state.pool.close();
+        }
+        synchronized (ConnectionFactory.class) {
+            if (defaultFactory == this) {
+                defaultFactory = null;
+            }
+        }
+    }
+
+    private Properties load() throws IOException {
+        Properties properties = new Properties();
+        if (configFile != null) {
+            // 直接读文件，类加载器可能会缓存资源
+            try (InputStream is = Files.newInputStream(configFile)) {
+                properties.load(is);
+            }
+            return properties;
+        }
+        try (InputStream is = ConnectionFactory.class.getClassLoader().getResourceAsStream(resource)) {
+            if (is == null) {
+                throw new FileNotFoundException("类路径下找不到配置文件：" + resource);
+            }
+            properties.load(is);
+        }
+        return properties;
+    }
+
+    private static State createState(Properties properties) throws ClassNotFoundException {
+        String driverClass = properties.getProperty("driverClass");
+        if (driverClass != null && LOADED_DRIVERS.add(driverClass)) {
+            try {
+                Class.forName(driverClass);
+            } catch (ClassNotFoundException e) {
+                LOADED_DRIVERS.remove(driverClass);
+                throw e;
+            }
+        }
+
+        String url = properties.getProperty("url");
+        Properties info = new Properties();
+        if (properties.getProperty("user") != null) {
+            info.setProperty("user", properties.getProperty("user"));
+        }
+        if (properties.getProperty("password") != null) {
+            info.setProperty("password", properties.getProperty("password"));
+        }
+
+        BagPoolDataSource pool = null;
+        if (Boolean.parseBoolean(properties.getProperty("pooled", "false"))) {
+            // 换成BagPoolDataSource使用的配置名
+            Properties pros = new Properties();
+            pros.setProperty("url", url);
+            if (driverClass != null) {
+                pros.setProperty("driverClassName", driverClass);
+            }
+            if (info.getProperty("user") != null) {
+                pros.setProperty("username", info.getProperty("user"));
+            }
+            if (info.getProperty("password") != null) {
+                pros.setProperty("password", info.getProperty("password"));
+            }
+            pros.setProperty("maxPoolSize", properties.getProperty("maxPoolSize", "10"));
+            pros.setProperty("connectionTimeout", properties.getProperty("connectionTimeout", "30000"));
+            pool = new BagPoolDataSource(pros);
+        }
+        return new State(properties, url, info, pool);
+    }
+
+    private static Path toPath(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private void startWatcher() throws IOException {
+        Path directory = configFile.getParent();
+        watchService = FileSystems.getDefault().newWatchService();
+        // 只能监视目录，事件里再按文件名过滤
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(this::watch, "jdbc-config-watcher-" + resource);
+        thread.setDaemon(true);
+        watcher = thread;
+        thread.start();
+    }
+
+    private void watch() {
+        Path fileName = configFile.getFileName();
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                boolean changed = pollEvents(key, fileName);
+                // 把紧接着的事件一起处理掉，只重新加载一次
+                while ((key = watchService.poll(RELOAD_QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= pollEvents(key, fileName);
+                }
+                if (changed) {
+                    try {
+                        reload();
+                    } catch (Exception e) {
+                        // 配置写错了就继续用旧的配置
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // close()时关闭了WatchService，正常退出
+        } finally {
+            watcher = null;
+        }
+    }
+
+    private static boolean pollEvents(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context()) || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+
+    /**
+     * 一份配置以及按它创建的连接池，整体替换，保证getConnection看到的url、用户名和池子是同一份配置的
+     */
+    private static class State {
+        final Properties properties;
+        final String url;
+        final Properties info;
+        final BagPoolDataSource pool;
+
+        State(Properties properties, String url, Properties info, BagPoolDataSource pool) {
+            this.properties = properties;
+            this.url = url;
+            this.info = info;
+            this.pool = pool;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.utils;
+
+import java.sql.Connection;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 13:10
+ * @Description:
+ *      获取连接的方式
+ *      JDBCUtils 和 JDBCPoolUtils 中获取连接的方法声明的异常各不相同，这里统一成 throws Exception，
+ *      这样就可以直接用方法引用，比如 JDBCPoolUtils::getConnectionFromDruid、JDBCUtils::getConnection
+ */
+@FunctionalInterface
+public interface ConnectionSource {
+
+    /**
+     * @Date: 2026/10/18 13:10
+     * @Description:
+     *      获取一个连接，用完由调用者自己关闭（如果是连接池就是还回池中）
+     *
+     * @Param: []
+     * @return: java.sql.Connection
+     */
+    Connection getConnection() throws Exception;
+}
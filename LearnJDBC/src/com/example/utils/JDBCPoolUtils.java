@@ -1,18 +1,36 @@
 package com.example.utils;
 
-import com.alibaba.druid.pool.DruidDataSource;
-import com.alibaba.druid.pool.DruidDataSourceFactory;
-import com.mchange.v2.c3p0.ComboPooledDataSource;
-import com.mchange.v2.c3p0.DataSources;
-import org.apache.commons.dbcp.BasicDataSourceFactory;
+import com.example.pool.BagPoolProvider;
+import com.example.pool.C3P0PoolProvider;
+import com.example.pool.DBCPPoolProvider;
+import com.example.pool.DruidPoolProvider;
+import com.example.pool.PoolMetrics;
+import com.example.pool.PoolMetricsSnapshot;
+import com.example.pool.PoolGauges;
+import com.example.pool.PoolProvider;
+import com.example.stats.SqlStatsRegistry;
 
 import javax.sql.DataSource;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.Properties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * @author: Yi-27
@@ -20,83 +38,391 @@ import java.util.Properties;
  * @create: 2020-11-08 16:28
  * @Description:
  *      数据库连接池工具类
+ *
+ *      原来c3p0、dbcp、druid三个连接池都在静态代码块中创建，类一加载三个池子的初始连接就全部建立了，
+ *      现在改为按提供者（PoolProvider）注册，第一次从某个池子获取连接时才创建这个池子，没用到的池子不会建立任何连接
+ *
+ *      系统属性 jdbc.pool 指定实际使用的连接池（默认druid），prewarmConfiguredPool只会预热这一个
+ *
+ *      每个连接池都有一个PoolMetrics：getConnection记录借连接的等待时间、失败和超时次数，
+ *      连接池创建后注册为MBean，也可以用getMetricsSnapshots / scheduleMetricsSnapshots获取
+ *      借出的连接由PoolMetrics.getLeakDetector()跟踪，借出太久没有归还的会被报告，配置了的话还会强制回收
  */
 public class JDBCPoolUtils {
 
-    // c3p0数据库连接池创建一次就够
-    private static ComboPooledDataSource cpds = new ComboPooledDataSource("helloc3p0");
+    public static final String C3P0 = C3P0PoolProvider.NAME;
+    public static final String DBCP = DBCPPoolProvider.NAME;
+    public static final String DRUID = DruidPoolProvider.NAME;
+    public static final String BAG_POOL = BagPoolProvider.NAME;
 
+    // prewarm最多等多久
+    public static final long PREWARM_TIMEOUT_MILLIS = Long.getLong("jdbc.pool.prewarmTimeoutMillis", 30000);
 
-    // dbcp数据库连接池可以使用静态代码块来获取
-    private static DataSource sourceDBCP;
-    static { // 这样就可以保证数据库连接池只创建一次
+    // 注册的连接池，key为PoolProvider.getName()
+    private static final ConcurrentMap<String, LazyPool> POOLS = new ConcurrentHashMap<>();
+    static {
+        // 注册只是记录下提供者，并不会创建连接池
+        register(new C3P0PoolProvider());
+        register(new DBCPPoolProvider());
+        register(new DruidPoolProvider());
+        register(new BagPoolProvider());
+    }
+
+
+    /**
+     * @Date: 2020/11/8 17:02
+     * @Description:
+     *      使用c3p0数据库连接池获取连接
+     *
+     * @Param: []
+     * @return: java.sql.Connection
+     */
+    public static Connection getConnectionFromC3P0() throws SQLException {
+        return getConnection(C3P0);
+    }
+
+    /**
+     * @Date: 2020/11/8 17:02
+     * @Description:
+     *      使用dbcp连接池技术获取连接
+     *
+     * @Param: []
+     * @return: java.sql.Connection
+     */
+    public static Connection getConnectionFromDBCP() throws Exception {
+        return getConnection(DBCP);
+    }
+
+
+    public static Connection getConnectionFromDruid() throws SQLException {
+        return getConnection(DRUID);
+    }
+
+    /**
+     * @Date: 2026/10/18 17:25
+     * @Description:
+     *      使用自己实现的无锁连接池BagPool获取连接
+     *
+     * @Param: []
+     * @return: java.sql.Connection
+     */
+    public static Connection getConnectionFromBagPool() throws SQLException {
+        return getConnection(BAG_POOL);
+    }
+
+
+    /**
+     * @Date: 2026/10/18 15:30
+     * @Description:
+     *      从指定名字的连接池获取连接，池子还没创建的话先创建
+     *      返回的连接经过SqlStatsRegistry包装，执行的SQL记在连接池名字名下
+     *      同时登记到LeakDetector，close时注销
+     *
+     * @Param: [poolName]
+     * @return: java.sql.Connection
+     */
+    public static Connection getConnection(String poolName) throws SQLException {
+        LazyPool pool = lookup(poolName);
+        DataSource dataSource = pool.get();
+
+        // 只统计从连接池借连接的时间，不包括第一次创建连接池的时间
+        long start = System.nanoTime();
+        Connection conn;
         try {
-            Properties pros = new Properties();
+            conn = dataSource.getConnection();
+        } catch (SQLException e) {
+            pool.metrics.recordFailure(e);
+            throw e;
+        }
+        pool.metrics.recordBorrow(System.nanoTime() - start);
+        return SqlStatsRegistry.wrap(pool.metrics.getLeakDetector().track(conn), poolName);
+    }
 
-            // 获取流的两种方式
-            // 方式1：反射。先获取 系统类加载器，再加载配置文件
-            InputStream resourceAsStream = ClassLoader.getSystemClassLoader().getResourceAsStream("dbcp.properties");
-            // 从该文件流中读取配置到Properties中
-            pros.load(resourceAsStream);
+    /**
+     * @Date: 2026/10/18 15:32
+     * @Description:
+     *      获取指定名字的连接池，第一次调用时才会真正创建
+     *
+     * @Param: [poolName]
+     * @return: javax.sql.DataSource
+     */
+    public static DataSource getDataSource(String poolName) throws SQLException {
+        return lookup(poolName).get();
+    }
 
-            // 方式2：直接提取，这时是从项目根目录开始
-//        FileInputStream fis = new FileInputStream("src/dbcp.properties");
-//        pros.load(fis);
+    private static LazyPool lookup(String poolName) throws SQLException {
+        LazyPool pool = POOLS.get(poolName);
+        if (pool == null) {
+            throw new SQLException("没有注册名为 " + poolName + " 的连接池，已注册的有：" + getPoolNames());
+        }
+        return pool;
+    }
 
-            // 根据配置文件来创建数据库连接池
-            sourceDBCP = BasicDataSourceFactory.createDataSource(pros);
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * @Date: 2026/10/18 15:35
+     * @Description:
+     *      注册连接池提供者，同名的会被替换，被替换的池子如果已经创建了会被销毁
+     *
+     * @Param: [provider]
+     * @return: void
+     */
+    public static void register(PoolProvider provider) {
+        LazyPool previous = POOLS.put(provider.getName(), new LazyPool(provider));
+        if (previous != null) {
+            previous.destroy();
         }
+    }
 
+    public static Set<String> getPoolNames() {
+        return new TreeSet<>(POOLS.keySet());
     }
 
+    /**
+     * @Date: 2026/10/18 15:36
+     * @Description:
+     *      指定的连接池是否已经创建
+     *
+     * @Param: [poolName]
+     * @return: boolean
+     */
+    public static boolean isInitialized(String poolName) {
+        LazyPool pool = POOLS.get(poolName);
+        return pool != null && pool.dataSource != null;
+    }
 
-    // Druid数据库连接池创建一个就够了
-    private static DataSource sourceDruid;
-    static {
-        try {
-            Properties pros = new Properties();
+    /**
+     * @Date: 2026/10/18 15:38
+     * @Description:
+     *      实际使用的连接池名字，由系统属性 jdbc.pool 指定，默认druid
+     *
+     * @Param: []
+     * @return: java.lang.String
+     */
+    public static String getConfiguredPoolName() {
+        return System.getProperty("jdbc.pool", DRUID);
+    }
 
-            // 反射获取类
-            InputStream resourceAsStream = ClassLoader.getSystemClassLoader().getResourceAsStream("druid.properties");
-            pros.load(resourceAsStream);
+    /**
+     * @Date: 2026/10/18 15:40
+     * @Description:
+     *      预热实际使用的那一个连接池
+     *
+     * @Param: [connections 并行建立的连接数]
+     * @return: int 成功建立的连接数
+     */
+    public static int prewarmConfiguredPool(int connections) throws SQLException {
+        return prewarm(getConfiguredPoolName(), connections);
+    }
 
-            // 创建数据库连接池
-            sourceDruid = DruidDataSourceFactory.createDataSource(pros);
+    /**
+     * @Date: 2026/10/18 15:42
+     * @Description:
+     *      预热连接池：创建池子，然后用多个线程同时借出connections个连接再还回去
+     *      连接池自己初始化时是一个一个串行建立连接的，这里并行建立可以缩短启动时间
+     *      个别连接建立失败不影响其他连接，只是少预热几个
+     *      connections超过连接池的最大连接数时按最大连接数预热；连接池不报告最大连接数时，
+     *      最多等PREWARM_TIMEOUT_MILLIS，没借到的取消，不会因为借不到而一直等下去
+     *      超时或者被中断时已经借到的连接照样还回去；取消之后才借到的（连接池不理会中断时会这样），由借到的线程自己还
+     *
+     * @Param: [poolName, connections]
+     * @return: int 成功建立的连接数
+     */
+    public static int prewarm(String poolName, int connections) throws SQLException {
+        LazyPool pool = lookup(poolName);
+        DataSource dataSource = pool.get();
+        int max = maxPoolSize(pool, dataSource);
+        if (max > 0) {
+            connections = Math.min(connections, max);
+        }
+        if (connections <= 0) {
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(connections, r -> {
+            Thread thread = new Thread(r, "pool-prewarm-" + poolName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 借到的连接先放在这里，全部借出来之后再一起还，否则先还回去的连接会被后面的线程重复借到
+        Queue<Connection> borrowed = new ConcurrentLinkedQueue<>();
+        // 超时或者被中断后不再等了，之后才借到的连接由借到的线程自己还回去
+        AtomicBoolean abandoned = new AtomicBoolean();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                futures.add(executor.submit(() -> {
+                    Connection conn = dataSource.getConnection();
+                    borrowed.add(conn);
+                    // 先放进去再检查：放进去时已经放弃了的话，主线程可能已经取完了，能从队列中拿回来就自己还
+                    if (abandoned.get() && borrowed.remove(conn)) {
+                        JDBCUtils.closeResource(conn, null);
+                    }
+                    return null;
+                }));
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PREWARM_TIMEOUT_MILLIS);
+            for (Future<?> future : futures) {
+                try {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // 剩下的也不等了
+                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                }
+            }
+        } finally {
+            abandoned.set(true);
+            // 不理会中断的连接池里，被取消的线程照样可能借到连接，那时abandoned已经是true，由它自己还回去
+            executor.shutdownNow();
+        }
+        int count = 0;
+        Connection conn;
+        while ((conn = borrowed.poll()) != null) {
+            JDBCUtils.closeResource(conn, null);
+            count++;
+        }
+        return count;
+    }
+
+    private static int maxPoolSize(LazyPool pool, DataSource dataSource) {
+        try {
+            return pool.provider.getGauges(dataSource).getMax();
         } catch (Exception e) {
-            e.printStackTrace();
+            return PoolGauges.UNKNOWN;
         }
     }
 
+    /**
+     * @Date: 2026/10/18 15:50
+     * @Description:
+     *      销毁指定的连接池，之后再获取连接时会重新创建
+     *
+     * @Param: [poolName]
+     * @return: void
+     */
+    public static void shutdown(String poolName) {
+        LazyPool pool = POOLS.get(poolName);
+        if (pool != null) {
+            pool.destroy();
+        }
+    }
 
+    public static void shutdownAll() {
+        for (LazyPool pool : POOLS.values()) {
+            pool.destroy();
+        }
+    }
 
     /**
-     * @Date: 2020/11/8 17:02
+     * @Date: 2026/10/18 23:00
      * @Description:
-     *      使用c3p0数据库连接池获取连接
+     *      指定连接池的指标，池子还没创建时也能获取，只是PoolGauges中的数值都是-1
      *
-     * @Param: []
-     * @return: java.sql.Connection
-     */        
-    public static Connection getConnectionFromC3P0() throws SQLException {
-        return cpds.getConnection();
+     * @Param: [poolName]
+     * @return: com.example.pool.PoolMetrics
+     */
+    public static PoolMetrics getMetrics(String poolName) throws SQLException {
+        return lookup(poolName).metrics;
     }
 
     /**
-     * @Date: 2020/11/8 17:02
-     * @Description: 
-     *      使用dbcp连接池技术获取连接
+     * @Date: 2026/10/18 23:02
+     * @Description:
+     *      所有注册的连接池当前的指标，按名字排序
      *
      * @Param: []
-     * @return: java.sql.Connection
-     */        
-    public static Connection getConnectionFromDBCP() throws Exception {
-        return sourceDBCP.getConnection();
+     * @return: java.util.List<com.example.pool.PoolMetricsSnapshot>
+     */
+    public static List<PoolMetricsSnapshot> getMetricsSnapshots() {
+        List<PoolMetricsSnapshot> snapshots = new ArrayList<>();
+        for (String poolName : getPoolNames()) {
+            LazyPool pool = POOLS.get(poolName);
+            if (pool != null) {
+                snapshots.add(pool.metrics.snapshot());
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * @Date: 2026/10/18 23:05
+     * @Description:
+     *      定期获取所有连接池的指标交给consumer，比如写日志或者推给监控系统
+     *      在一个后台守护线程中执行，返回的ScheduledFuture用来取消
+     *
+     * @Param: [period, unit, consumer]
+     * @return: java.util.concurrent.ScheduledFuture<?>
+     */
+    public static ScheduledFuture<?> scheduleMetricsSnapshots(long period, TimeUnit unit,
+                                                              Consumer<List<PoolMetricsSnapshot>> consumer) {
+        return MetricsScheduler.EXECUTOR.scheduleAtFixedRate(() -> {
+            try {
+                consumer.accept(getMetricsSnapshots());
+            } catch (RuntimeException e) {
+                // 抛出异常会让后续的执行全部取消
+                e.printStackTrace();
+            }
+        }, period, period, unit);
     }
 
 
-    public static Connection getConnectionFromDruid() throws SQLException {
-        return sourceDruid.getConnection();
+    /**
+     * 定期获取指标用的线程，第一次用到时才创建
+     */
+    private static class MetricsScheduler {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pool-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 延迟创建的连接池，双重检查保证只创建一次
+     */
+    private static class LazyPool {
+        private final PoolProvider provider;
+        private final PoolMetrics metrics;
+        private volatile DataSource dataSource;
+
+        LazyPool(PoolProvider provider) {
+            this.provider = provider;
+            this.metrics = new PoolMetrics(provider.getName());
+        }
+
+        DataSource get() throws SQLException {
+            DataSource ds = dataSource;
+            if (ds == null) {
+                synchronized (this) {
+                    ds = dataSource;
+                    if (ds == null) {
+                        try {
+                            ds = provider.createDataSource();
+                        } catch (Exception e) {
+                            throw new SQLException("创建连接池 " + provider.getName() + " 失败", e);
+                        }
+                        dataSource = ds;
+                        metrics.bind(provider, ds);
+                    }
+                }
+            }
+            return ds;
+        }
+
+        synchronized void destroy() {
+            if (dataSource != null) {
+                metrics.unbind();
+                try {
+                    provider.destroy(dataSource);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+                dataSource = null;
+            }
+        }
     }
 }
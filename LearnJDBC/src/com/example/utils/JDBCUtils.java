@@ -1,12 +1,10 @@
 package com.example.utils;
 
-import com.example.crud.PreparedStatementUpdateTest;
+import com.example.stats.SqlStatsRegistry;
 import org.apache.commons.dbutils.DbUtils;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.sql.*;
-import java.util.Properties;
 
 /**
  * @author: Yi-27
@@ -16,28 +14,20 @@ import java.util.Properties;
  */
 public class JDBCUtils {
 
+    // SqlStatsRegistry中直接获取的连接的来源名
+    public static final String SOURCE = "jdbc";
+
     /**
      * @Date: 2020/11/6 10:23
      * @Description: 获取数据库连接操作
+     *      配置文件的解析、驱动的加载都交给ConnectionFactory，只在第一次调用时做一次
+     *      jdbc.properties中配置了 pooled=true 时，得到的是连接池中的连接，closeResource时还回池子
+     *      返回的连接经过SqlStatsRegistry包装，执行的SQL记在来源 "jdbc" 名下
      * @Param: []
      * @return: java.sql.Connection
      */
     public static Connection getConnection() throws ClassNotFoundException, SQLException, IOException {
-        // 1. 从配置文件中加载信息
-        InputStream is = PreparedStatementUpdateTest.class.getClassLoader().getResourceAsStream("jdbc.properties");
-        Properties properties = new Properties();
-        properties.load(is);
-        if (is != null)
-            is.close(); // 关闭流
-
-        String user = properties.getProperty("user");
-        String password = properties.getProperty("password");
-        String url = properties.getProperty("url");
-        String driverClass = properties.getProperty("driverClass");
-
-        // 2. 获取Diver实现类及获取连接
-        Class.forName(driverClass);
-        return DriverManager.getConnection(url, user, password);
+        return SqlStatsRegistry.wrap(ConnectionFactory.getDefault().getConnection(), SOURCE);
     }
 
     /**
@@ -55,8 +45,11 @@ public class JDBCUtils {
             e.printStackTrace();
         }
         try {
-            if (conn != null)
+            if (conn != null) {
+                // 连接关闭后缓存在它上面的Statement也就没用了
+                StatementCache.evict(conn);
                 conn.close();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -103,6 +96,7 @@ public class JDBCUtils {
 //        } catch (SQLException e) {
 //            e.printStackTrace();
 //        }
+        StatementCache.evict(conn);
         DbUtils.closeQuietly(conn, statement, resultSet);
         // 这内部的代码与自己写的上面的代码一模一样
     }
@@ -0,0 +1,241 @@
+package com.example.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author: Yi-27
+ * @projectName: LearnJDBC
+ * @create: 2026-10-18 14:20
+ * @Description:
+ *      PreparedStatement缓存，key为 (连接, SQL)
+ *      BaseDao原来每次调用都要 prepareStatement 然后 close，同一个连接上反复执行同一条SQL时预编译完全浪费了
+ *      这里每个连接维护一个按访问顺序淘汰的LRU，命中时 clearParameters 之后直接复用
+ *
+ *      用法：
+ *          ps = StatementCache.prepare(conn, sql);            // 代替 conn.prepareStatement(sql)
+ *          ...
+ *          StatementCache.discard(conn, sql);                 // 出错时调用，把可能状态不对的Statement踢掉
+ *          StatementCache.release(conn, sql, ps);             // 代替 ps.close()，在缓存中的不会被关闭
+ *
+ *      连接不管是JDBCUtils直接获取的，还是JDBCPoolUtils从连接池中获取的，都以调用者拿到的那个Connection对象为key；
+ *      JDBCUtils.closeResource关闭连接时会顺便清掉这个连接的缓存，其他地方关闭连接前应该调用evict；
+ *      缓存的Statement强引用着自己的连接，没有evict就直接关闭的连接不会被GC自动清掉，
+ *      只能靠有新连接加入缓存时顺便检查一遍（每秒最多一次，由一个线程在锁外完成）
+ *
+ *      缓存大小由系统属性 jdbc.statementCacheSize 指定，默认每个连接64条，设置为0时关闭缓存
+ */
+public class StatementCache {
+
+    public static final int DEFAULT_MAX_STATEMENTS_PER_CONNECTION = 64;
+
+    private static volatile int maxStatementsPerConnection =
+            Integer.getInteger("jdbc.statementCacheSize", DEFAULT_MAX_STATEMENTS_PER_CONNECTION);
+
+    // 清理已经关闭的连接的最小间隔
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final ConcurrentMap<Connection, LruStatements> CACHE = new ConcurrentHashMap<>();
+    private static final AtomicBoolean PURGING = new AtomicBoolean();
+    private static volatile long lastPurgeNanos = System.nanoTime();
+
+    private StatementCache() {
+    }
+
+    /**
+     * @Date: 2026/10/18 14:30
+     * @Description:
+     *      获取预编译的Statement，缓存中有就清空参数后复用，没有就预编译一个并放进缓存
+     *
+     * @Param: [conn, sql]
+     * @return: java.sql.PreparedStatement
+     */
+    public static PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        int max = maxStatementsPerConnection;
+        if (max <= 0) {
+            return conn.prepareStatement(sql);
+        }
+
+        LruStatements statements = statementsOf(conn, true);
+        PreparedStatement ps;
+        synchronized (statements) {
+            ps = statements.get(sql);
+        }
+        if (ps != null) {
+            try {
+                // 清空上一次填的占位符
+                ps.clearParameters();
+                return ps;
+            } catch (SQLException e) {
+                // 一般是Statement已经被关闭了（比如连接池回收了连接），重新预编译一个
+                discard(conn, sql);
+                JDBCUtils.closeResource(null, ps);
+            }
+        }
+
+        ps = conn.prepareStatement(sql);
+        PreparedStatement previous;
+        synchronized (statements) {
+            statements.maxSize = max;
+            previous = statements.put(sql, ps);
+        }
+        if (previous != null && previous != ps) {
+            JDBCUtils.closeResource(null, previous);
+        }
+        return ps;
+    }
+
+    /**
+     * @Date: 2026/10/18 14:40
+     * @Description:
+     *      用完之后归还Statement，缓存中的留着下次用，不在缓存中的（被淘汰了、缓存关闭了）直接关闭
+     *
+     * @Param: [conn, sql, ps]
+     * @return: void
+     */
+    public static void release(Connection conn, String sql, PreparedStatement ps) {
+        if (ps == null) {
+            return;
+        }
+        LruStatements statements = statementsOf(conn, false);
+        if (statements != null) {
+            synchronized (statements) {
+                if (statements.get(sql) == ps) {
+                    return;
+                }
+            }
+        }
+        JDBCUtils.closeResource(null, ps);
+    }
+
+    /**
+     * @Date: 2026/10/18 14:45
+     * @Description:
+     *      执行出错时把这条SQL的Statement从缓存中移除，之后release时会被关闭
+     *
+     * @Param: [conn, sql]
+     * @return: void
+     */
+    public static void discard(Connection conn, String sql) {
+        LruStatements statements = statementsOf(conn, false);
+        if (statements != null) {
+            synchronized (statements) {
+                statements.remove(sql);
+            }
+        }
+    }
+
+    /**
+     * @Date: 2026/10/18 14:50
+     * @Description:
+     *      清除并关闭某个连接上缓存的全部Statement，关闭连接之前调用
+     *
+     * @Param: [conn]
+     * @return: void
+     */
+    public static void evict(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        LruStatements statements = CACHE.remove(conn);
+        if (statements != null) {
+            closeAll(statements);
+        }
+    }
+
+    public static int getMaxStatementsPerConnection() {
+        return maxStatementsPerConnection;
+    }
+
+    /**
+     * @Date: 2026/10/18 14:52
+     * @Description:
+     *      修改每个连接最多缓存的Statement数，已经缓存的会在下一次放入时按新的大小淘汰
+     *
+     * @Param: [max 0表示关闭缓存]
+     * @return: void
+     */
+    public static void setMaxStatementsPerConnection(int max) {
+        maxStatementsPerConnection = max;
+    }
+
+    private static LruStatements statementsOf(Connection conn, boolean create) {
+        LruStatements statements = CACHE.get(conn);
+        if (statements == null && create) {
+            // 新连接加入前，顺便清理掉已经关闭的连接
+            purgeClosedConnectionsIfDue();
+            statements = new LruStatements(maxStatementsPerConnection);
+            LruStatements existing = CACHE.putIfAbsent(conn, statements);
+            if (existing != null) {
+                statements = existing;
+            }
+        }
+        return statements;
+    }
+
+    private static void purgeClosedConnectionsIfDue() {
+        if (System.nanoTime() - lastPurgeNanos < PURGE_INTERVAL_NANOS || !PURGING.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // isClosed可能要访问连接，不持有任何全局锁，其他线程照常使用缓存
+            for (Map.Entry<Connection, LruStatements> entry : CACHE.entrySet()) {
+                boolean closed;
+                try {
+                    closed = entry.getKey().isClosed();
+                } catch (SQLException e) {
+                    closed = true;
+                }
+                if (closed && CACHE.remove(entry.getKey(), entry.getValue())) {
+                    closeAll(entry.getValue());
+                }
+            }
+        } finally {
+            lastPurgeNanos = System.nanoTime();
+            PURGING.set(false);
+        }
+    }
+
+    private static void closeAll(LruStatements statements) {
+        List<PreparedStatement> toClose;
+        synchronized (statements) {
+            toClose = new ArrayList<>(statements.values());
+            statements.clear();
+        }
+        for (PreparedStatement ps : toClose) {
+            JDBCUtils.closeResource(null, ps);
+        }
+    }
+
+    /**
+     * 一个连接上的Statement，按访问顺序排列，超过上限时关闭最久没用的那个
+     */
+    private static class LruStatements extends LinkedHashMap<String, PreparedStatement> {
+        private static final long serialVersionUID = 1L;
+
+        private int maxSize;
+
+        LruStatements(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > maxSize) {
+                JDBCUtils.closeResource(null, eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+}